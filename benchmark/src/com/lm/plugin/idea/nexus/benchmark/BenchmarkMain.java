@@ -0,0 +1,26 @@
+package com.lm.plugin.idea.nexus.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 运行全部基准测试，同时输出吞吐量和内存分配速率（相当于命令行的-prof gc）
+ * <p>
+ * 参数是要运行的基准测试的正则表达式，默认运行本包下的全部基准测试
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkMain.class.getPackage().getName();
+        new Runner(new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
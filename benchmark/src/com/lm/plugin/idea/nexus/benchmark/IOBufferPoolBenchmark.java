@@ -0,0 +1,89 @@
+package com.lm.plugin.idea.nexus.benchmark;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓冲池在不同线程数下的竞争情况（每次取出4个缓冲区再全部归还，模拟一个包装类的使用），与直接新建缓冲区对比
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOBufferPoolBenchmark {
+
+    // 每次取出的缓冲区个数
+    private static final int TAKE_COUNT = 4;
+
+    private final IOBufferPool pool = IOBufferPool.getInstance();
+
+    /**
+     * 每个线程复用的数组（避免统计到数组本身的内存分配）
+     */
+    @State(Scope.Thread)
+    public static class ThreadBuffers {
+        final IOBuffer[] buffers = new IOBuffer[TAKE_COUNT];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public IOBuffer pool1Thread(ThreadBuffers threadBuffers) {
+        return takeAndRecycle(threadBuffers.buffers);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public IOBuffer pool4Threads(ThreadBuffers threadBuffers) {
+        return takeAndRecycle(threadBuffers.buffers);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public IOBuffer pool16Threads(ThreadBuffers threadBuffers) {
+        return takeAndRecycle(threadBuffers.buffers);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public IOBuffer pool32Threads(ThreadBuffers threadBuffers) {
+        return takeAndRecycle(threadBuffers.buffers);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public IOBuffer new1Thread() {
+        IOBuffer last = null;
+        for (int i = 0; i < TAKE_COUNT; i++) {
+            last = new IOBuffer();
+        }
+        return last;
+    }
+
+    @Benchmark
+    @Threads(32)
+    public IOBuffer new32Threads() {
+        IOBuffer last = null;
+        for (int i = 0; i < TAKE_COUNT; i++) {
+            last = new IOBuffer();
+        }
+        return last;
+    }
+
+    private IOBuffer takeAndRecycle(IOBuffer[] buffers) {
+        for (int i = 0; i < TAKE_COUNT; i++) {
+            buffers[i] = pool.take();
+        }
+        for (IOBuffer buffer : buffers) {
+            pool.recycle(buffer);
+        }
+        return buffers[0];
+    }
+}
@@ -0,0 +1,93 @@
+package com.lm.plugin.idea.nexus.benchmark;
+
+import com.lm.plugin.idea.nexus.utils.io.InputStreamWrapper;
+import com.lm.plugin.idea.nexus.utils.io.LegacyIndexOfInputStreamWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InputStreamWrapper.indexOf（每次比较8个字节，从上次停止的位置继续）与原来的实现（逐个字节比较，每次从head开始）的对比
+ * <p>
+ * 两者都从内存中的输入流读取，查找每一个换行符并跳过，和按行读取的用法相同
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexOfBenchmark {
+
+    // 数据总大小
+    private static final int DATA_SIZE = 4 * 1024 * 1024;
+
+    // 平均行长度
+    @Param({"16", "80", "4096"})
+    public int lineLength;
+
+    private byte[] data;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        data = new byte[DATA_SIZE];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt(lineLength) == 0 ? (byte) '\n' : (byte) ('a' + random.nextInt(26));
+        }
+    }
+
+    /**
+     * 原来的实现：逐个字节比较
+     */
+    @Benchmark
+    public int legacyIndexOf() throws IOException {
+        LegacyIndexOfInputStreamWrapper input = new LegacyIndexOfInputStreamWrapper(new ByteArrayInputStream(data));
+        int count = 0;
+        long index;
+        while ((index = input.legacyIndexOf((byte) '\n', 0)) != -1) {
+            count++;
+            input.skip(index + 1);
+        }
+        input.close();
+        return count;
+    }
+
+    /**
+     * 现在的实现：每次比较8个字节
+     */
+    @Benchmark
+    public int indexOf() throws IOException {
+        InputStreamWrapper input = new InputStreamWrapper(new ByteArrayInputStream(data));
+        int count = 0;
+        long index;
+        while ((index = input.indexOf((byte) '\n')) != -1) {
+            count++;
+            input.skip(index + 1);
+        }
+        input.close();
+        return count;
+    }
+
+    /**
+     * 现在的实现：同时查找多个字符
+     */
+    @Benchmark
+    public int indexOfAny() throws IOException {
+        InputStreamWrapper input = new InputStreamWrapper(new ByteArrayInputStream(data));
+        int count = 0;
+        long index;
+        while ((index = input.indexOfAny((byte) '\r', (byte) '\n')) != -1) {
+            count++;
+            input.skip(index + 1);
+        }
+        input.close();
+        return count;
+    }
+}
@@ -0,0 +1,91 @@
+package com.lm.plugin.idea.nexus.benchmark;
+
+import com.lm.plugin.idea.nexus.utils.io.IOUtils;
+import com.lm.plugin.idea.nexus.utils.io.InputStreamWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按行读取文件：InputStreamWrapper与BufferedReader的对比
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadLineBenchmark {
+
+    // 文件大小（小文件类似build.gradle，大文件类似日志）
+    @Param({"4096", "8388608"})
+    public int fileSize;
+
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("ReadLineBenchmark", ".txt");
+        Random random = new Random(0);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            int written = 0;
+            while (written < fileSize) {
+                int lineLength = 10 + random.nextInt(100);
+                StringBuilder line = new StringBuilder(lineLength + 1);
+                for (int i = 0; i < lineLength; i++) {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+                line.append('\n');
+                writer.write(line.toString());
+                written += line.length();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int wrapperReadUTF8Line() throws IOException {
+        InputStreamWrapper inputStreamWrapper = IOUtils.inputStreamWrapper(file);
+        int count = 0;
+        String line;
+        while ((line = inputStreamWrapper.readUTF8Line()) != null) {
+            count += line.length();
+        }
+        inputStreamWrapper.close();
+        return count;
+    }
+
+    @Benchmark
+    public int wrapperForEachLine() throws IOException {
+        InputStreamWrapper inputStreamWrapper = IOUtils.inputStreamWrapper(file);
+        int[] count = new int[1];
+        inputStreamWrapper.forEachLine(line -> {
+            count[0] += line.length();
+            return true;
+        });
+        inputStreamWrapper.close();
+        return count[0];
+    }
+
+    @Benchmark
+    public int bufferedReader() throws IOException {
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                count += line.length();
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,103 @@
+package com.lm.plugin.idea.nexus.benchmark;
+
+import com.lm.plugin.idea.nexus.utils.io.InputStreamWrapper;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读int/long：InputStreamWrapper与DataInputStream的对比，offset不为0时部分数值跨越两个缓冲区
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadPrimitiveBenchmark {
+
+    // 数据总大小
+    private static final int DATA_SIZE = 1024 * 1024;
+
+    // 开头跳过的字节数（不是4和8的倍数时，每个缓冲区结尾的数值跨越两个缓冲区）
+    @Param({"0", "1", "3"})
+    public int offset;
+
+    private byte[] data;
+
+    private int[] ints;
+
+    @Setup
+    public void setup() {
+        data = new byte[DATA_SIZE + offset];
+        new Random(0).nextBytes(data);
+        ints = new int[DATA_SIZE / 4];
+    }
+
+    @Benchmark
+    public long wrapperReadInt() throws IOException {
+        InputStreamWrapper inputStreamWrapper = newWrapper();
+        long sum = 0;
+        for (int i = 0; i < DATA_SIZE / 4; i++) {
+            sum += inputStreamWrapper.readInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long wrapperReadLong() throws IOException {
+        InputStreamWrapper inputStreamWrapper = newWrapper();
+        long sum = 0;
+        for (int i = 0; i < DATA_SIZE / 8; i++) {
+            sum += inputStreamWrapper.readLong();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int[] wrapperReadInts() throws IOException {
+        newWrapper().readInts(ints);
+        return ints;
+    }
+
+    @Benchmark
+    public long dataInputStreamReadInt() throws IOException {
+        DataInputStream inputStream = newDataInputStream();
+        long sum = 0;
+        for (int i = 0; i < DATA_SIZE / 4; i++) {
+            sum += inputStream.readInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long dataInputStreamReadLong() throws IOException {
+        DataInputStream inputStream = newDataInputStream();
+        long sum = 0;
+        for (int i = 0; i < DATA_SIZE / 8; i++) {
+            sum += inputStream.readLong();
+        }
+        return sum;
+    }
+
+    private InputStreamWrapper newWrapper() throws IOException {
+        InputStreamWrapper inputStreamWrapper = new InputStreamWrapper(new ByteArrayInputStream(data));
+        if (offset > 0) inputStreamWrapper.skip(offset);
+        return inputStreamWrapper;
+    }
+
+    private DataInputStream newDataInputStream() throws IOException {
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(data), IOBuffer.BUFFER_SIZE));
+        if (offset > 0) inputStream.skipBytes(offset);
+        return inputStream;
+    }
+}
@@ -0,0 +1,106 @@
+package com.lm.plugin.idea.nexus.benchmark;
+
+import com.lm.plugin.idea.nexus.utils.io.OutputStreamWrapper;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入字符串和大数组：OutputStreamWrapper与BufferedWriter、BufferedOutputStream的对比（写入到丢弃数据的输出流）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    // 丢弃全部数据的输出流
+    private static final OutputStream NULL_OUTPUT_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    // 字符串内容：纯ASCII或者中英文混合
+    @Param({"ascii", "mixed"})
+    public String content;
+
+    // 大数组的大小
+    @Param({"65536", "1048576"})
+    public int arraySize;
+
+    private String[] lines;
+
+    private byte[] array;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        lines = new String[1000];
+        for (int i = 0; i < lines.length; i++) {
+            StringBuilder line = new StringBuilder();
+            int lineLength = 10 + random.nextInt(100);
+            for (int j = 0; j < lineLength; j++) {
+                if ("mixed".equals(content) && random.nextInt(4) == 0) {
+                    line.append((char) (0x4e00 + random.nextInt(0x5000)));
+                } else {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+            }
+            lines[i] = line.append('\n').toString();
+        }
+        array = new byte[arraySize];
+        random.nextBytes(array);
+    }
+
+    @Benchmark
+    public void wrapperWriteUTF8() throws IOException {
+        OutputStreamWrapper outputStreamWrapper = new OutputStreamWrapper(NULL_OUTPUT_STREAM);
+        for (String line : lines) {
+            outputStreamWrapper.writeUTF8(line);
+        }
+        outputStreamWrapper.flush();
+        outputStreamWrapper.close();
+    }
+
+    @Benchmark
+    public void bufferedWriter() throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(NULL_OUTPUT_STREAM, StandardCharsets.UTF_8), IOBuffer.BUFFER_SIZE);
+        for (String line : lines) {
+            writer.write(line);
+        }
+        writer.flush();
+    }
+
+    @Benchmark
+    public void wrapperWriteBytes() throws IOException {
+        OutputStreamWrapper outputStreamWrapper = new OutputStreamWrapper(NULL_OUTPUT_STREAM);
+        for (int i = 0; i < 16; i++) {
+            outputStreamWrapper.writeBytes(array);
+        }
+        outputStreamWrapper.flush();
+        outputStreamWrapper.close();
+    }
+
+    @Benchmark
+    public void bufferedOutputStream() throws IOException {
+        OutputStream outputStream = new BufferedOutputStream(NULL_OUTPUT_STREAM, IOBuffer.BUFFER_SIZE);
+        for (int i = 0; i < 16; i++) {
+            outputStream.write(array);
+        }
+        outputStream.flush();
+    }
+}
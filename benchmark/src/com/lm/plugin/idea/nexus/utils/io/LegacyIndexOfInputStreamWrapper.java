@@ -0,0 +1,64 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 保留原来indexOf实现的InputStreamWrapper（只用于基准测试对比）：每次从head开始逐个字节比较，没找到时读入一段再从头查找
+ * <p>
+ * 需要访问缓冲区链，所以放在InputStreamWrapper的包中
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class LegacyIndexOfInputStreamWrapper extends InputStreamWrapper {
+
+    public LegacyIndexOfInputStreamWrapper(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    /**
+     * 原来的InputStreamWrapper.indexOf(byte, long)
+     *
+     * @param content    要查找的字符
+     * @param startIndex 开始位置
+     * @return 字符位置，找不到时返回-1
+     * @throws IOException IO异常
+     */
+    public long legacyIndexOf(byte content, long startIndex) throws IOException {
+        long resultIndex;
+        while ((resultIndex = findInBuffer(content, startIndex)) == -1) {
+            startIndex = size;
+            if (read(IOBuffer.BUFFER_SIZE) == -1) return -1;
+        }
+        return resultIndex;
+    }
+
+    private long findInBuffer(byte content, long startIndex) {
+        if (head == null) return -1L;
+
+        IOBuffer buffer = head;
+        long offset = 0L;
+
+        do {
+            int bufferDataCount = buffer.limit - buffer.pos;
+
+            if (startIndex >= bufferDataCount) {
+                startIndex -= bufferDataCount;
+            } else {
+                for (long pos = buffer.pos + startIndex, limit = buffer.limit; pos < limit; pos++) {
+                    if (buffer.data[(int) pos] == content) {
+                        return offset + pos - buffer.pos;
+                    }
+                }
+                startIndex = 0;
+            }
+            offset += bufferDataCount;
+            buffer = buffer.next;
+        } while (buffer != head);
+
+        return -1L;
+    }
+}
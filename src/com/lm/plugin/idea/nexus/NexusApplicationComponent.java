@@ -0,0 +1,36 @@
+package com.lm.plugin.idea.nexus;
+
+import com.intellij.openapi.components.ApplicationComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferLeakDetector;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 插件的应用级组件，IDE启动时初始化一次
+ * <p>
+ * 缓冲区泄漏报告写入IDE日志（idea.log），不打印到System.err；插件卸载时恢复默认（不输出），不再引用插件的Logger
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class NexusApplicationComponent implements ApplicationComponent {
+
+    private static final Logger LOG = Logger.getInstance(NexusApplicationComponent.class);
+
+    @Override
+    public void initComponent() {
+        IOBufferLeakDetector.setReporter(leak -> LOG.warn(leak));
+    }
+
+    @Override
+    public void disposeComponent() {
+        IOBufferLeakDetector.setReporter(leak -> {
+        });
+    }
+
+    @NotNull
+    @Override
+    public String getComponentName() {
+        return "NexusApplicationComponent";
+    }
+}
@@ -0,0 +1,544 @@
+package com.lm.plugin.idea.nexus;
+
+import com.lm.plugin.idea.nexus.utils.io.ByteString;
+import com.lm.plugin.idea.nexus.utils.io.HashingOutputStreamWrapper;
+import com.lm.plugin.idea.nexus.utils.io.IOUtils;
+import com.lm.plugin.idea.nexus.utils.io.InputStreamWrapper;
+import com.lm.plugin.idea.nexus.utils.io.OutputStreamWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 直接通过HTTP PUT部署到Nexus的maven2仓库（不经过Gradle uploadArchives）
+ * <p>
+ * 构件、POM、sources/javadoc包按maven2目录结构上传，每个文件后面跟着.md5和.sha1校验文件。
+ * 文件从磁盘流式写入连接（固定长度流模式，不复制到临时文件，内存占用不随文件大小增长），校验值在写入的同时计算。
+ * SNAPSHOT版本使用带时间戳的唯一版本，并更新maven-metadata.xml。
+ * 生成的POM不包含依赖（没有Gradle的依赖模型），声明了会发布到POM的依赖的模块需要通过Gradle上传，见findPublishedDependencies()
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class NexusDeployer {
+
+    private static final int CONNECT_TIMEOUT = 15 * 1000;
+    private static final int READ_TIMEOUT = 60 * 1000;
+
+    private static final String SNAPSHOT = "SNAPSHOT";
+
+    private static final Pattern BUILD_NUMBER = Pattern.compile("<buildNumber>\\s*(\\d+)\\s*</buildNumber>");
+    private static final Pattern VERSION = Pattern.compile("<version>\\s*([^<\\s]+)\\s*</version>");
+
+    // buildscript块和dependencies块的开头
+    private static final Pattern BUILDSCRIPT_BLOCK = Pattern.compile("(?<![\\w.])buildscript\\s*\\{");
+    private static final Pattern DEPENDENCIES_BLOCK = Pattern.compile("(?<![\\w.])dependencies\\s*\\{");
+
+    // 会被uploadArchives写入POM的依赖声明：api、implementation、compile、runtime、runtimeOnly，可以带变体前缀（例如releaseImplementation）
+    private static final Pattern PUBLISHED_DEPENDENCY = Pattern.compile(
+            "^\\s*(\\w*?)(api|implementation|compile|runtime|runtimeOnly|Api|Implementation|Compile|Runtime|RuntimeOnly)\\s*[(\\s'\"]\\s*(.*)$");
+
+    // 只在测试和调试时使用的变体前缀
+    private static final String[] UNPUBLISHED_PREFIXES = {"test", "androidTest", "debug"};
+
+    // 以/结尾的仓库地址
+    private final String repositoryUrl;
+
+    // Basic认证（用户名为空时不认证）
+    private final String authorization;
+
+    /**
+     * @param repositoryUrl 仓库地址（例如 http://localhost:8085/repository/maven-snapshots/）
+     * @param userName      用户名
+     * @param password      密码
+     */
+    public NexusDeployer(String repositoryUrl, String userName, String password) {
+        if (repositoryUrl == null || repositoryUrl.trim().length() == 0)
+            throw new IllegalArgumentException("url == null");
+        this.repositoryUrl = repositoryUrl.endsWith("/") ? repositoryUrl : repositoryUrl + "/";
+        if (userName == null || userName.length() == 0) {
+            this.authorization = null;
+        } else {
+            String credentials = userName + ":" + (password != null ? password : "");
+            this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * 部署构件
+     *
+     * @param groupId     groupId
+     * @param artifactId  artifactId
+     * @param version     版本（以-SNAPSHOT结尾时按快照版本部署）
+     * @param packaging   打包类型（也是构件文件的扩展名，例如aar、jar）
+     * @param description 描述
+     * @param artifact    构件文件
+     * @param sourcesJar  sources包（没有时为null）
+     * @param javadocJar  javadoc包（没有时为null）
+     * @throws IOException IO异常或者服务器返回错误
+     */
+    public void deploy(String groupId, String artifactId, String version, String packaging, String description,
+                       File artifact, File sourcesJar, File javadocJar) throws IOException {
+        checkParam(groupId, "groupId == null");
+        checkParam(artifactId, "artifactId == null");
+        checkParam(version, "version == null");
+        checkParam(packaging, "packaging == null");
+        if (artifact == null || !artifact.isFile()) throw new IOException("artifact not found: " + artifact);
+
+        String artifactPath = groupId.replace('.', '/') + "/" + artifactId + "/";
+        String versionPath = artifactPath + version + "/";
+        Date now = new Date();
+
+        // 先读取已有的元数据，认证失败等错误在上传构件之前就能发现
+        List<String> versions = existingVersions(artifactPath + "maven-metadata.xml");
+
+        String fileVersion = version;
+        boolean snapshot = version.endsWith("-" + SNAPSHOT);
+        int buildNumber = 0;
+        String timestamp = null;
+        if (snapshot) {
+            buildNumber = lastBuildNumber(versionPath + "maven-metadata.xml") + 1;
+            timestamp = format("yyyyMMdd.HHmmss", now);
+            fileVersion = version.substring(0, version.length() - SNAPSHOT.length()) + timestamp + "-" + buildNumber;
+        }
+
+        String baseName = versionPath + artifactId + "-" + fileVersion;
+        putFile(baseName + "." + packaging, artifact);
+        if (sourcesJar != null) putFile(baseName + "-sources.jar", sourcesJar);
+        if (javadocJar != null) putFile(baseName + "-javadoc.jar", javadocJar);
+        putContent(baseName + ".pom", buildPom(groupId, artifactId, version, packaging, description));
+
+        String lastUpdated = format("yyyyMMddHHmmss", now);
+        if (snapshot) {
+            putContent(versionPath + "maven-metadata.xml", buildSnapshotMetadata(groupId, artifactId, version, packaging,
+                    fileVersion, timestamp, buildNumber, lastUpdated, sourcesJar != null, javadocJar != null));
+        }
+        if (!versions.contains(version)) versions.add(version);
+        putContent(artifactPath + "maven-metadata.xml", buildArtifactMetadata(groupId, artifactId, version, snapshot, versions, lastUpdated));
+    }
+
+    /**
+     * 上传文件（从磁盘流式写入，同时计算校验值），再上传校验文件
+     *
+     * @param path 仓库中的路径
+     * @param file 文件
+     * @throws IOException IO异常
+     */
+    private void putFile(String path, File file) throws IOException {
+        HttpURLConnection connection = open(path, "PUT");
+        connection.setFixedLengthStreamingMode(file.length());
+
+        HashingOutputStreamWrapper body = IOUtils.hashingOutputStreamWrapper(requestBody(connection), "MD5", "SHA-1");
+        InputStreamWrapper input = null;
+        ByteString md5;
+        ByteString sha1;
+        try {
+            input = IOUtils.inputStreamWrapper(file);
+            body.writeAll(input);
+            body.flush();
+            md5 = body.digest("MD5");
+            sha1 = body.digest("SHA-1");
+        } catch (IOException e) {
+            // 服务器可能在读完请求体之前就返回了错误（例如401），优先报告服务器的错误
+            throw responseError(connection, e);
+        } finally {
+            if (input != null) input.close();
+            closeQuietly(body);
+        }
+        checkResponse(connection);
+
+        put(path + ".md5", ByteString.encodeUTF8(md5.hex()));
+        put(path + ".sha1", ByteString.encodeUTF8(sha1.hex()));
+    }
+
+    /**
+     * 上传生成的内容，再上传校验文件
+     *
+     * @param path    仓库中的路径
+     * @param content 内容
+     * @throws IOException IO异常
+     */
+    private void putContent(String path, String content) throws IOException {
+        ByteString data = ByteString.encodeUTF8(content);
+        put(path, data);
+        put(path + ".md5", ByteString.encodeUTF8(data.md5().hex()));
+        put(path + ".sha1", ByteString.encodeUTF8(data.sha1().hex()));
+    }
+
+    /**
+     * @param path    仓库中的路径
+     * @param content 内容
+     * @throws IOException IO异常
+     */
+    private void put(String path, ByteString content) throws IOException {
+        HttpURLConnection connection = open(path, "PUT");
+        connection.setFixedLengthStreamingMode(content.size());
+        OutputStreamWrapper body = requestBody(connection);
+        try {
+            body.writeByteString(content).flush();
+        } catch (IOException e) {
+            throw responseError(connection, e);
+        } finally {
+            closeQuietly(body);
+        }
+        checkResponse(connection);
+    }
+
+    /**
+     * @param path 仓库中的路径
+     * @return 文件内容，不存在时返回null
+     * @throws IOException IO异常
+     */
+    private String get(String path) throws IOException {
+        HttpURLConnection connection = open(path, "GET");
+        int code = connection.getResponseCode();
+        if (code == HttpURLConnection.HTTP_NOT_FOUND) {
+            discard(connection.getErrorStream());
+            return null;
+        }
+        if (code / 100 != 2) {
+            discard(connection.getErrorStream());
+            throw new IOException("GET " + connection.getURL() + " failed: " + code + " " + connection.getResponseMessage());
+        }
+        InputStreamWrapper input = IOUtils.inputStreamWrapper(connection.getInputStream());
+        try {
+            return input.readAllUTF8();
+        } finally {
+            input.close();
+        }
+    }
+
+    private HttpURLConnection open(String path, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(repositoryUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setUseCaches(false);
+        if (authorization != null) connection.setRequestProperty("Authorization", authorization);
+        if ("PUT".equals(method)) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+        }
+        return connection;
+    }
+
+    /**
+     * 打开请求体（连接失败或者服务器拒绝时报告服务器的错误）
+     *
+     * @param connection 连接
+     * @return 请求体
+     * @throws IOException IO异常或者服务器返回错误
+     */
+    private static OutputStreamWrapper requestBody(HttpURLConnection connection) throws IOException {
+        try {
+            return IOUtils.outputStreamWrapper(connection.getOutputStream());
+        } catch (IOException e) {
+            throw responseError(connection, e);
+        }
+    }
+
+    /**
+     * 检查响应码，并读完响应内容（连接可以被复用）
+     *
+     * @param connection 连接
+     * @throws IOException 服务器返回错误
+     */
+    private static void checkResponse(HttpURLConnection connection) throws IOException {
+        int code = connection.getResponseCode();
+        if (code / 100 != 2) {
+            discard(connection.getErrorStream());
+            throw new IOException(connection.getRequestMethod() + " " + connection.getURL() + " failed: "
+                    + code + " " + connection.getResponseMessage());
+        }
+        discard(connection.getInputStream());
+    }
+
+    /**
+     * 写入请求体失败时获取服务器的错误
+     *
+     * @param connection 连接
+     * @param cause      写入时的异常
+     * @return 服务器返回错误时是包含响应码的异常，否则是包含请求和cause的异常
+     * （服务器在请求体写到一半时返回错误并关闭连接的话，HttpURLConnection拿不到响应码）
+     */
+    private static IOException responseError(HttpURLConnection connection, IOException cause) {
+        try {
+            int code = connection.getResponseCode();
+            if (code == -1 || code / 100 == 2) return requestError(connection, cause);
+            IOException error = new IOException(connection.getRequestMethod() + " " + connection.getURL() + " failed: "
+                    + code + " " + connection.getResponseMessage());
+            error.addSuppressed(cause);
+            return error;
+        } catch (IOException e) {
+            return requestError(connection, cause);
+        }
+    }
+
+    private static IOException requestError(HttpURLConnection connection, IOException cause) {
+        return new IOException(connection.getRequestMethod() + " " + connection.getURL() + " failed: " + cause.getMessage(), cause);
+    }
+
+    private static void discard(InputStream inputStream) throws IOException {
+        if (inputStream == null) return;
+        InputStreamWrapper input = IOUtils.inputStreamWrapper(inputStream);
+        try {
+            // 响应内容很小，读出后丢弃
+            input.readAllUTF8();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 关闭请求体（已经有异常时不再抛出关闭时写入剩余数据的异常）
+     */
+    private static void closeQuietly(OutputStreamWrapper body) {
+        try {
+            body.close();
+        } catch (UncheckedIOException ignored) {
+        }
+    }
+
+    /**
+     * @param metadataPath 版本目录下maven-metadata.xml的路径
+     * @return 已有的最大快照构建号，没有时返回0
+     * @throws IOException IO异常
+     */
+    private int lastBuildNumber(String metadataPath) throws IOException {
+        String metadata = get(metadataPath);
+        if (metadata == null) return 0;
+        Matcher matcher = BUILD_NUMBER.matcher(metadata);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : 0;
+    }
+
+    /**
+     * @param metadataPath 构件目录下maven-metadata.xml的路径
+     * @return 已有的版本列表
+     * @throws IOException IO异常
+     */
+    private List<String> existingVersions(String metadataPath) throws IOException {
+        List<String> versions = new ArrayList<>();
+        String metadata = get(metadataPath);
+        if (metadata == null) return versions;
+        int start = metadata.indexOf("<versions>");
+        int end = metadata.indexOf("</versions>");
+        if (start == -1 || end == -1) return versions;
+        Matcher matcher = VERSION.matcher(metadata.substring(start, end));
+        while (matcher.find()) {
+            versions.add(matcher.group(1));
+        }
+        return versions;
+    }
+
+    /**
+     * 查找构建脚本中会发布到POM的依赖声明（buildscript中的依赖、本地jar、测试和调试依赖不算）
+     * <p>
+     * 按文本查找，不执行脚本：直接上传生成的POM没有依赖，找到时应该拒绝直接上传，改用Gradle uploadArchives
+     *
+     * @param buildScript build.gradle的内容
+     * @return 依赖声明（去掉首尾空白的行），没有时为空列表
+     */
+    public static List<String> findPublishedDependencies(String buildScript) {
+        String script = removeComments(buildScript);
+        Matcher buildscript;
+        while ((buildscript = BUILDSCRIPT_BLOCK.matcher(script)).find()) {
+            script = script.substring(0, buildscript.start()) + script.substring(blockEnd(script, buildscript.end()));
+        }
+
+        List<String> dependencies = new ArrayList<>();
+        Matcher block = DEPENDENCIES_BLOCK.matcher(script);
+        int index = 0;
+        while (block.find(index)) {
+            int end = blockEnd(script, block.end());
+            for (String line : script.substring(block.end(), end).split("\r?\n|\r")) {
+                Matcher matcher = PUBLISHED_DEPENDENCY.matcher(line);
+                if (!matcher.matches() || isUnpublishedPrefix(matcher.group(1))) continue;
+                String notation = matcher.group(3);
+                if (notation.startsWith("fileTree") || notation.startsWith("files")) continue;
+                dependencies.add(line.trim());
+            }
+            index = end;
+        }
+        return dependencies;
+    }
+
+    private static boolean isUnpublishedPrefix(String prefix) {
+        for (String unpublished : UNPUBLISHED_PREFIXES) {
+            if (prefix.startsWith(unpublished)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param script 脚本
+     * @return 删除注释之后的脚本（字符串中的//不是注释，例如仓库地址）
+     */
+    private static String removeComments(String script) {
+        StringBuilder builder = new StringBuilder(script.length());
+        char quote = 0;
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (quote != 0) {
+                if (c == '\\' && i + 1 < script.length()) {
+                    builder.append(c).append(script.charAt(++i));
+                    continue;
+                }
+                if (c == quote || c == '\n') quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '/' && script.startsWith("//", i)) {
+                int end = script.indexOf('\n', i);
+                i = (end == -1 ? script.length() : end) - 1;
+                continue;
+            } else if (c == '/' && script.startsWith("/*", i)) {
+                int end = script.indexOf("*/", i + 2);
+                i = (end == -1 ? script.length() : end + 2) - 1;
+                continue;
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @param script 脚本
+     * @param start  块的左大括号之后的位置
+     * @return 匹配的右大括号之后的位置（没有匹配时为脚本末尾）
+     */
+    private static int blockEnd(String script, int start) {
+        int depth = 1;
+        for (int i = start; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (c == '{') depth++;
+            else if (c == '}' && --depth == 0) return i + 1;
+        }
+        return script.length();
+    }
+
+    /**
+     * @return 不包含依赖的POM（声明了依赖的模块不能直接上传，见findPublishedDependencies()）
+     */
+    static String buildPom(String groupId, String artifactId, String version, String packaging, String description) {
+        StringBuilder builder = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"")
+                .append(" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")
+                .append(" xsi:schemaLocation=\"http://maven.apache.org/POM/4.0.0 http://maven.apache.org/xsd/maven-4.0.0.xsd\">\n")
+                .append("  <modelVersion>4.0.0</modelVersion>\n")
+                .append("  <groupId>").append(escape(groupId)).append("</groupId>\n")
+                .append("  <artifactId>").append(escape(artifactId)).append("</artifactId>\n")
+                .append("  <version>").append(escape(version)).append("</version>\n")
+                .append("  <packaging>").append(escape(packaging)).append("</packaging>\n");
+        if (description != null && description.length() > 0) {
+            builder.append("  <description>").append(escape(description)).append("</description>\n");
+        }
+        return builder.append("</project>\n").toString();
+    }
+
+    private static String buildSnapshotMetadata(String groupId, String artifactId, String version, String packaging,
+                                                String fileVersion, String timestamp, int buildNumber, String lastUpdated,
+                                                boolean sources, boolean javadoc) {
+        StringBuilder builder = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<metadata modelVersion=\"1.1.0\">\n")
+                .append("  <groupId>").append(escape(groupId)).append("</groupId>\n")
+                .append("  <artifactId>").append(escape(artifactId)).append("</artifactId>\n")
+                .append("  <version>").append(escape(version)).append("</version>\n")
+                .append("  <versioning>\n")
+                .append("    <snapshot>\n")
+                .append("      <timestamp>").append(timestamp).append("</timestamp>\n")
+                .append("      <buildNumber>").append(buildNumber).append("</buildNumber>\n")
+                .append("    </snapshot>\n")
+                .append("    <lastUpdated>").append(lastUpdated).append("</lastUpdated>\n")
+                .append("    <snapshotVersions>\n");
+        appendSnapshotVersion(builder, null, packaging, fileVersion, lastUpdated);
+        if (sources) appendSnapshotVersion(builder, "sources", "jar", fileVersion, lastUpdated);
+        if (javadoc) appendSnapshotVersion(builder, "javadoc", "jar", fileVersion, lastUpdated);
+        appendSnapshotVersion(builder, null, "pom", fileVersion, lastUpdated);
+        return builder
+                .append("    </snapshotVersions>\n")
+                .append("  </versioning>\n")
+                .append("</metadata>\n")
+                .toString();
+    }
+
+    private static void appendSnapshotVersion(StringBuilder builder, String classifier, String extension,
+                                              String fileVersion, String lastUpdated) {
+        builder.append("      <snapshotVersion>\n");
+        if (classifier != null) builder.append("        <classifier>").append(classifier).append("</classifier>\n");
+        builder.append("        <extension>").append(escape(extension)).append("</extension>\n")
+                .append("        <value>").append(escape(fileVersion)).append("</value>\n")
+                .append("        <updated>").append(lastUpdated).append("</updated>\n")
+                .append("      </snapshotVersion>\n");
+    }
+
+    private static String buildArtifactMetadata(String groupId, String artifactId, String version, boolean snapshot,
+                                                List<String> versions, String lastUpdated) {
+        StringBuilder builder = new StringBuilder()
+                .append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<metadata>\n")
+                .append("  <groupId>").append(escape(groupId)).append("</groupId>\n")
+                .append("  <artifactId>").append(escape(artifactId)).append("</artifactId>\n")
+                .append("  <versioning>\n")
+                .append("    <latest>").append(escape(version)).append("</latest>\n");
+        if (!snapshot) builder.append("    <release>").append(escape(version)).append("</release>\n");
+        builder.append("    <versions>\n");
+        for (String item : versions) {
+            builder.append("      <version>").append(escape(item)).append("</version>\n");
+        }
+        return builder
+                .append("    </versions>\n")
+                .append("    <lastUpdated>").append(lastUpdated).append("</lastUpdated>\n")
+                .append("  </versioning>\n")
+                .append("</metadata>\n")
+                .toString();
+    }
+
+    private static String escape(String content) {
+        StringBuilder builder = new StringBuilder(content.length());
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            switch (c) {
+                case '<':
+                    builder.append("&lt;");
+                    break;
+                case '>':
+                    builder.append("&gt;");
+                    break;
+                case '&':
+                    builder.append("&amp;");
+                    break;
+                case '"':
+                    builder.append("&quot;");
+                    break;
+                default:
+                    builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String format(String pattern, Date date) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    private static void checkParam(String param, String errorMsg) {
+        if (param == null || param.trim().length() == 0) throw new IllegalArgumentException(errorMsg);
+    }
+}
@@ -9,6 +9,7 @@ import com.lm.plugin.idea.nexus.utils.Utils;
 import org.jetbrains.annotations.NotNull;
 
 public class UploadAction extends AnAction {
+
     @Override
     public void actionPerformed(@NotNull AnActionEvent e) {
         Project project = e.getData(LangDataKeys.PROJECT);
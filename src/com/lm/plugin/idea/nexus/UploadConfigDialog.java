@@ -17,6 +17,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 
 public class UploadConfigDialog extends JDialog {
 
@@ -29,6 +30,7 @@ public class UploadConfigDialog extends JDialog {
     private JTextField tfVersion;
     private JTextField tfPackaging;
     private JTextField tfDescription;
+    private JCheckBox cbDirectDeploy;
     private JButton btnUpload;
     private JButton btnCancel;
 
@@ -70,6 +72,8 @@ public class UploadConfigDialog extends JDialog {
         tfVersion = addInputLine("version");
         tfPackaging = addInputLine("packaging");
         tfDescription = addInputLine("description");
+        cbDirectDeploy = addCheckLine("deploy built file directly (skip Gradle)",
+                "Upload the existing release build output as is. Build it first; the generated POM has no dependencies.");
 
         addButton();
 
@@ -167,6 +171,24 @@ public class UploadConfigDialog extends JDialog {
         return textField;
     }
 
+    private JCheckBox addCheckLine(String text, String toolTip) {
+
+        // 默认不选中
+        JCheckBox checkBox = new JCheckBox(text);
+        checkBox.setToolTipText(toolTip);
+
+        Box box = Box.createHorizontalBox();
+        box.add(Box.createHorizontalStrut(10));
+        box.add(checkBox);
+        box.add(Box.createHorizontalGlue());
+        box.add(Box.createHorizontalStrut(10));
+
+        contentPane.add(Box.createVerticalStrut(10));
+        contentPane.add(box);
+
+        return checkBox;
+    }
+
     private void onUploadClick() {
 
         if (!buildFile.exists()){
@@ -184,6 +206,30 @@ public class UploadConfigDialog extends JDialog {
             String packaging = tfPackaging.getText();
             String description = tfDescription.getText();
 
+            // 用户选择直接上传时上传已有的构建产物，不运行Gradle（默认仍然通过Gradle uploadArchives构建并上传）；
+            // 在生成上传脚本之前处理，直接上传时不把包含明文密码的nexus_maven.gradle写到项目目录
+            if (cbDirectDeploy.isSelected()) {
+                // 直接上传生成的POM不包含依赖，声明了会发布的依赖时拒绝，避免上传依赖信息缺失的构件
+                InputStreamWrapper buildScript = IOUtils.inputStreamWrapper(buildFile);
+                String content = buildScript.readAllUTF8();
+                buildScript.close();
+                List<String> dependencies = NexusDeployer.findPublishedDependencies(content);
+                if (!dependencies.isEmpty()) {
+                    Utils.showErrorDialog(buildFile.getName() + " declares dependencies that direct deploy cannot write into the POM, upload with Gradle instead:\n"
+                            + String.join("\n", dependencies));
+                    return;
+                }
+
+                File artifact = findArtifact(packaging);
+                if (artifact == null) {
+                    Utils.showErrorDialog("no release " + packaging + " found in build output, build it first or upload with Gradle");
+                    return;
+                }
+                deploy(new NexusDeployer(url, userName, password),
+                        groupId, artifactId, version, packaging, description, artifact);
+                return;
+            }
+
             String uploadScript = Utils.buildUploadScript(url, userName, password, groupId, artifactId, version, packaging, description);
 
             IOUtils.outputStreamWrapper(uploadScriptFile, false)
@@ -193,13 +239,11 @@ public class UploadConfigDialog extends JDialog {
             LocalFileSystem.getInstance().refresh(true);
 
             InputStreamWrapper inputStreamWrapper = IOUtils.inputStreamWrapper(buildFile);
-            String line;
-            while ((line = inputStreamWrapper.readUTF8Line()) != null) {
-                if (line.contains("nexus_maven.gradle") && line.startsWith("apply from:")) break;
-            }
+            boolean applied = !inputStreamWrapper.forEachLine(line ->
+                    !(line.contains("nexus_maven.gradle") && line.startsWith("apply from:")));
             inputStreamWrapper.close();
 
-            if (line == null) {
+            if (!applied) {
                 IOUtils.outputStreamWrapper(buildFile, true)
                         .writeUTF8("\napply from: './" + uploadScriptFileName + "'")
                         .flush()
@@ -234,5 +278,68 @@ public class UploadConfigDialog extends JDialog {
         }
     }
 
+    /**
+     * 在后台线程上传，上传时显示进度对话框
+     */
+    private void deploy(NexusDeployer deployer, String groupId, String artifactId, String version, String packaging,
+                        String description, File artifact) {
+        File libsDir = new File(buildFile.getParentFile(), "build/libs");
+        File sourcesJar = findFile(libsDir, "-sources.jar");
+        File javadocJar = findFile(libsDir, "-javadoc.jar");
+
+        UploadingDialog uploadingDialog = new UploadingDialog();
+        Thread thread = new Thread(() -> {
+            IOException failure = null;
+            try {
+                deployer.deploy(groupId, artifactId, version, packaging, description, artifact, sourcesJar, javadocJar);
+            } catch (IOException e) {
+                failure = e;
+            }
+            IOException error = failure;
+            SwingUtilities.invokeLater(() -> {
+                uploadingDialog.dispose();
+                if (error != null) {
+                    Utils.showErrorDialog(error.getMessage());
+                } else {
+                    Utils.showMessageDialog("uploaded " + artifact.getName());
+                }
+            });
+        }, "nexus-deploy");
+        thread.setDaemon(true);
+        thread.start();
+        uploadingDialog.pack();
+        uploadingDialog.setVisible(true);
+    }
+
+    /**
+     * @param packaging 打包类型
+     * @return 构建产物（aar只取release版本），没有构建过时返回null
+     */
+    private File findArtifact(String packaging) {
+        File buildDir = new File(buildFile.getParentFile(), "build");
+        if ("aar".equals(packaging)) {
+            File release = new File(buildDir, "outputs/aar/" + module.getName() + "-release.aar");
+            if (release.isFile()) return release;
+            return findFile(new File(buildDir, "outputs/aar"), "-release.aar");
+        }
+        return findFile(new File(buildDir, "libs"), "." + packaging);
+    }
 
+    /**
+     * @param dir    目录
+     * @param suffix 文件名后缀
+     * @return 目录下以suffix结尾的最新文件（jar不包括sources和javadoc包，除非查找的就是它们），没有时返回null
+     */
+    private static File findFile(File dir, String suffix) {
+        File[] files = dir.listFiles();
+        if (files == null) return null;
+        File latest = null;
+        for (File file : files) {
+            String name = file.getName();
+            if (!file.isFile() || !name.endsWith(suffix)) continue;
+            if (!suffix.startsWith("-") && (name.endsWith("-sources.jar") || name.endsWith("-javadoc.jar"))) continue;
+            if (latest == null || file.lastModified() > latest.lastModified()) latest = file;
+        }
+        return latest;
+    }
 }
@@ -0,0 +1,174 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+
+/**
+ * 一行数据的视图（直接引用缓冲区中的数据，不复制）
+ * <p>
+ * 作为CharSequence使用时，每个字节对应一个字符，只适合按ASCII比较；需要字符串时调用toString解码
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ByteLine implements CharSequence {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    // 第一个字节所在的缓冲区
+    private IOBuffer buffer;
+
+    // 第一个字节在缓冲区中的位置
+    private int pos;
+
+    // 字节个数
+    private int length;
+
+    void set(IOBuffer buffer, int pos, int length) {
+        this.buffer = buffer;
+        this.pos = pos;
+        this.length = length;
+    }
+
+    /**
+     * @return 字节个数
+     */
+    @Override
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @param index 位置
+     * @return 字节
+     */
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("index=" + index + " length=" + length);
+        IOBuffer current = buffer;
+        int currentPos = pos;
+        while (index >= current.limit - currentPos) {
+            index -= current.limit - currentPos;
+            current = current.next;
+            currentPos = current.pos;
+        }
+        return current.get(currentPos + index);
+    }
+
+    /**
+     * @param index 位置
+     * @return 字节对应的字符（ISO-8859-1）
+     */
+    @Override
+    public char charAt(int index) {
+        return (char) (byteAt(index) & 0xff);
+    }
+
+    /**
+     * @param start 开始位置（包含）
+     * @param end   结束位置（不包含）
+     * @return 子序列（ISO-8859-1解码，会复制数据）
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end)
+            throw new IndexOutOfBoundsException("start=" + start + " end=" + end + " length=" + length);
+        byte[] bytes = toByteArray();
+        return new String(bytes, start, end - start, ISO_8859_1);
+    }
+
+    /**
+     * @param prefix 前缀（ASCII）
+     * @return 是否以prefix开头
+     */
+    public boolean startsWith(CharSequence prefix) {
+        return prefix.length() <= length && regionMatches(buffer, pos, prefix);
+    }
+
+    /**
+     * @param content 要查找的内容（ASCII）
+     * @return 是否包含content
+     */
+    public boolean contains(CharSequence content) {
+        return indexOf(content) != -1;
+    }
+
+    /**
+     * @param content 要查找的内容（ASCII）
+     * @return 第一次出现的位置，找不到时返回-1
+     */
+    public int indexOf(CharSequence content) {
+        if (content.length() == 0) return 0;
+        char first = content.charAt(0);
+        IOBuffer current = buffer;
+        int currentPos = pos;
+        for (int index = 0, lastIndex = length - content.length(); index <= lastIndex; index++, currentPos++) {
+            if (currentPos == current.limit) {
+                current = current.next;
+                currentPos = current.pos;
+            }
+            if ((current.get(currentPos) & 0xff) == first && regionMatches(current, currentPos, content)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return 复制到字节数组
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[length];
+        IOBuffer current = buffer;
+        int currentPos = pos;
+        int offset = 0;
+        while (offset < length) {
+            int copyCount = Math.min(length - offset, current.limit - currentPos);
+            current.get(currentPos, result, offset, copyCount);
+            offset += copyCount;
+            current = current.next;
+            currentPos = current.pos;
+        }
+        return result;
+    }
+
+    /**
+     * @param charsetName 字符编码
+     * @return 解码后的字符串
+     * @throws UnsupportedEncodingException 不支持的编码
+     */
+    public String toString(String charsetName) throws UnsupportedEncodingException {
+        if (!buffer.isDirect() && length <= buffer.limit - pos) {
+            return new String(buffer.data, pos, length, charsetName);
+        }
+        return new String(toByteArray(), charsetName);
+    }
+
+    /**
+     * @return 解码后的字符串（UTF8编码）
+     */
+    @Override
+    public String toString() {
+        if (!buffer.isDirect() && length <= buffer.limit - pos) {
+            return new String(buffer.data, pos, length, UTF8);
+        }
+        return new String(toByteArray(), UTF8);
+    }
+
+    /**
+     * 比较从缓冲区currentPos位置开始的数据是否与content相同（可以跨缓冲区，调用前需要保证数据足够）
+     */
+    private static boolean regionMatches(IOBuffer current, int currentPos, CharSequence content) {
+        for (int i = 0, count = content.length(); i < count; i++) {
+            if (currentPos == current.limit) {
+                current = current.next;
+                currentPos = current.pos;
+            }
+            if ((current.get(currentPos++) & 0xff) != content.charAt(i)) return false;
+        }
+        return true;
+    }
+}
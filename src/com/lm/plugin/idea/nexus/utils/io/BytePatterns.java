@@ -0,0 +1,142 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * 多个字节串的查找表（Aho-Corasick自动机）
+ * <p>
+ * 创建后不可变，可以在多个线程中共享。配合InputStreamWrapper.indexOf(BytePatterns, long)使用，
+ * 一次遍历同时查找所有字节串，跨缓冲区匹配，查找过程中不分配内存
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class BytePatterns {
+
+    // 要查找的字节串
+    private final byte[][] patterns;
+
+    // 按长度从短到长排序的字节串下标
+    private final Integer[] patternsByLength;
+
+    // 状态转移表：transitions[state * 256 + (byte & 0xff)] = 下一个状态
+    final int[] transitions;
+
+    // 到达该状态时匹配到的最长字节串长度（0表示没有匹配）
+    final int[] matchLengths;
+
+    private BytePatterns(byte[][] patterns) {
+        this.patterns = patterns;
+
+        int maxStateCount = 1;
+        for (byte[] pattern : patterns) {
+            if (pattern.length == 0) throw new IllegalArgumentException("pattern.length == 0");
+            maxStateCount += pattern.length;
+        }
+
+        // 构建字典树（-1表示没有子节点）
+        int[] trie = new int[maxStateCount * 256];
+        Arrays.fill(trie, -1);
+        int[] lengths = new int[maxStateCount];
+        int stateCount = 1;
+        for (byte[] pattern : patterns) {
+            int state = 0;
+            for (byte content : pattern) {
+                int index = state * 256 + (content & 0xff);
+                if (trie[index] == -1) trie[index] = stateCount++;
+                state = trie[index];
+            }
+            lengths[state] = pattern.length;
+        }
+
+        // 广度优先计算失败跳转，同时把字典树补全成状态转移表
+        transitions = Arrays.copyOf(trie, stateCount * 256);
+        matchLengths = Arrays.copyOf(lengths, stateCount);
+        int[] fail = new int[stateCount];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int b = 0; b < 256; b++) {
+            int next = transitions[b];
+            if (next == -1) {
+                transitions[b] = 0;
+            } else {
+                fail[next] = 0;
+                queue.add(next);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            if (matchLengths[state] == 0) matchLengths[state] = matchLengths[fail[state]];
+            for (int b = 0; b < 256; b++) {
+                int index = state * 256 + b;
+                int next = transitions[index];
+                if (next == -1) {
+                    transitions[index] = transitions[fail[state] * 256 + b];
+                } else {
+                    fail[next] = transitions[fail[state] * 256 + b];
+                    queue.add(next);
+                }
+            }
+        }
+
+        patternsByLength = new Integer[patterns.length];
+        for (int i = 0; i < patterns.length; i++) patternsByLength[i] = i;
+        Arrays.sort(patternsByLength, Comparator.comparingInt(i -> patterns[i].length));
+    }
+
+    /**
+     * @param patterns 要查找的字节串
+     * @return 查找表
+     */
+    public static BytePatterns of(byte[]... patterns) {
+        if (patterns.length == 0) throw new IllegalArgumentException("patterns.length == 0");
+        byte[][] copy = new byte[patterns.length][];
+        for (int i = 0; i < patterns.length; i++) copy[i] = patterns[i].clone();
+        return new BytePatterns(copy);
+    }
+
+    /**
+     * @param patterns 要查找的字符串（UTF8编码）
+     * @return 查找表
+     */
+    public static BytePatterns ofUTF8(String... patterns) {
+        if (patterns.length == 0) throw new IllegalArgumentException("patterns.length == 0");
+        Charset utf8 = Charset.forName("UTF-8");
+        byte[][] bytes = new byte[patterns.length][];
+        for (int i = 0; i < patterns.length; i++) bytes[i] = patterns[i].getBytes(utf8);
+        return new BytePatterns(bytes);
+    }
+
+    /**
+     * @return 字节串个数
+     */
+    public int size() {
+        return patterns.length;
+    }
+
+    /**
+     * @param patternIndex 字节串下标
+     * @return 字节串长度
+     */
+    public int length(int patternIndex) {
+        return patterns[patternIndex].length;
+    }
+
+    /**
+     * 获取在index位置匹配的字节串（与InputStreamWrapper.indexOf(BytePatterns, long)的结果一致，多个时取最短的）
+     *
+     * @param source InputStreamWrapper
+     * @param index  位置
+     * @return 字节串下标，没有匹配时返回-1
+     * @throws IOException IO异常
+     */
+    public int patternAt(InputStreamWrapper source, long index) throws IOException {
+        for (int patternIndex : patternsByLength) {
+            if (source.rangeEquals(index, patterns[patternIndex])) return patternIndex;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,319 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * 不可变的字节串
+ * <p>
+ * 由InputStreamWrapper.readByteString创建时，占缓冲区一半以上的数据直接引用缓冲区（对应的缓冲区被标记为共享，之后不会再被写入或回收），
+ * 不复制数据；只占缓冲区一小部分的数据复制出来，缓冲区照常回收，少量数据不会长期占用整个（可能很大的）缓冲区。可以在多个线程中共享
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public final class ByteString {
+
+    // 小于该字节数时直接复制，避免少量数据占用整个缓冲区
+    static final int SHARE_MINIMUM = 1024;
+
+    /**
+     * @param count    引用的字节数
+     * @param capacity 缓冲区容量
+     * @return 是否直接引用缓冲区（至少占缓冲区的一半，不共享时复制）
+     */
+    static boolean shouldShare(int count, int capacity) {
+        return count >= SHARE_MINIMUM && count >= capacity / 2;
+    }
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static final ByteString EMPTY = new ByteString(new byte[][]{new byte[0]}, new int[]{0, 0});
+
+    // 分段数据
+    final byte[][] segments;
+
+    // 前一半是每段结束时的累计长度，后一半是每段数据在数组中的开始位置
+    final int[] directory;
+
+    private int hashCode;
+
+    ByteString(byte[][] segments, int[] directory) {
+        this.segments = segments;
+        this.directory = directory;
+    }
+
+    /**
+     * @param data 字节数组（会复制）
+     * @return 字节串
+     */
+    public static ByteString of(byte... data) {
+        return of(data, 0, data.length);
+    }
+
+    /**
+     * @param data 字节数组（会复制）
+     * @param off  起始下标
+     * @param len  长度
+     * @return 字节串
+     */
+    public static ByteString of(byte[] data, int off, int len) {
+        if (off < 0 || len < 0 || off + len > data.length)
+            throw new IndexOutOfBoundsException("off=" + off + " len=" + len + " length=" + data.length);
+        return new ByteString(new byte[][]{Arrays.copyOfRange(data, off, off + len)}, new int[]{len, 0});
+    }
+
+    /**
+     * @param content 字符串
+     * @return UTF8编码的字节串
+     */
+    public static ByteString encodeUTF8(String content) {
+        byte[] data = content.getBytes(UTF8);
+        return new ByteString(new byte[][]{data}, new int[]{data.length, 0});
+    }
+
+    /**
+     * @return 字节个数
+     */
+    public int size() {
+        return directory[segments.length - 1];
+    }
+
+    /**
+     * @param index 位置
+     * @return 字节
+     */
+    public byte getByte(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("index=" + index + " size=" + size());
+        int segment = segment(index);
+        int segmentStart = segment == 0 ? 0 : directory[segment - 1];
+        return segments[segment][directory[segments.length + segment] + index - segmentStart];
+    }
+
+    /**
+     * @param prefix 前缀
+     * @return 是否以prefix开头
+     */
+    public boolean startsWith(byte[] prefix) {
+        return rangeEquals(0, prefix, 0, prefix.length);
+    }
+
+    /**
+     * @param prefix 前缀
+     * @return 是否以prefix开头
+     */
+    public boolean startsWith(ByteString prefix) {
+        if (prefix.size() > size()) return false;
+        int offset = 0;
+        for (int i = 0; i < prefix.segments.length; i++) {
+            int start = prefix.directory[prefix.segments.length + i];
+            int count = prefix.directory[i] - offset;
+            if (!rangeEquals(offset, prefix.segments[i], start, count)) return false;
+            offset += count;
+        }
+        return true;
+    }
+
+    /**
+     * 比较offset位置开始的数据是否与other[otherOffset, otherOffset + byteCount)相同
+     *
+     * @param offset      位置
+     * @param other       字节数组
+     * @param otherOffset 字节数组起始下标
+     * @param byteCount   比较的字节数
+     * @return 是否相同
+     */
+    public boolean rangeEquals(int offset, byte[] other, int otherOffset, int byteCount) {
+        if (offset < 0 || offset + byteCount > size() || otherOffset < 0 || otherOffset + byteCount > other.length) {
+            return false;
+        }
+        int segment = byteCount > 0 ? segment(offset) : 0;
+        while (byteCount > 0) {
+            int segmentStart = segment == 0 ? 0 : directory[segment - 1];
+            int segmentPos = directory[segments.length + segment] + offset - segmentStart;
+            int compareCount = Math.min(byteCount, directory[segment] - offset);
+            byte[] data = segments[segment];
+            for (int i = 0; i < compareCount; i++) {
+                if (data[segmentPos + i] != other[otherOffset + i]) return false;
+            }
+            offset += compareCount;
+            otherOffset += compareCount;
+            byteCount -= compareCount;
+            segment++;
+        }
+        return true;
+    }
+
+    /**
+     * @return 复制到字节数组
+     */
+    public byte[] toByteArray() {
+        byte[] result = new byte[size()];
+        int offset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            int count = directory[i] - offset;
+            System.arraycopy(segments[i], directory[segments.length + i], result, offset, count);
+            offset += count;
+        }
+        return result;
+    }
+
+    /**
+     * @return UTF8解码的字符串
+     */
+    public String utf8() {
+        if (segments.length == 1) return new String(segments[0], directory[1], size(), UTF8);
+        return new String(toByteArray(), UTF8);
+    }
+
+    /**
+     * @return 十六进制字符串（小写）
+     */
+    public String hex() {
+        char[] result = new char[size() * 2];
+        int charIndex = 0;
+        int offset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            byte[] data = segments[i];
+            for (int pos = directory[segments.length + i], limit = pos + directory[i] - offset; pos < limit; pos++) {
+                result[charIndex++] = HEX_DIGITS[(data[pos] >> 4) & 0xf];
+                result[charIndex++] = HEX_DIGITS[data[pos] & 0xf];
+            }
+            offset = directory[i];
+        }
+        return new String(result);
+    }
+
+    /**
+     * @return Base64字符串（标准字母表，带填充）
+     */
+    public String base64() {
+        int size = size();
+        char[] result = new char[(size + 2) / 3 * 4];
+        int charIndex = 0;
+        int bits = 0;
+        int bitCount = 0;
+        int offset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            byte[] data = segments[i];
+            for (int pos = directory[segments.length + i], limit = pos + directory[i] - offset; pos < limit; pos++) {
+                bits = (bits << 8) | (data[pos] & 0xff);
+                bitCount += 8;
+                if (bitCount == 24) {
+                    result[charIndex++] = BASE64_DIGITS[(bits >> 18) & 0x3f];
+                    result[charIndex++] = BASE64_DIGITS[(bits >> 12) & 0x3f];
+                    result[charIndex++] = BASE64_DIGITS[(bits >> 6) & 0x3f];
+                    result[charIndex++] = BASE64_DIGITS[bits & 0x3f];
+                    bits = 0;
+                    bitCount = 0;
+                }
+            }
+            offset = directory[i];
+        }
+        if (bitCount == 8) {
+            result[charIndex++] = BASE64_DIGITS[(bits >> 2) & 0x3f];
+            result[charIndex++] = BASE64_DIGITS[(bits << 4) & 0x3f];
+            result[charIndex++] = '=';
+            result[charIndex] = '=';
+        } else if (bitCount == 16) {
+            result[charIndex++] = BASE64_DIGITS[(bits >> 10) & 0x3f];
+            result[charIndex++] = BASE64_DIGITS[(bits >> 4) & 0x3f];
+            result[charIndex++] = BASE64_DIGITS[(bits << 2) & 0x3f];
+            result[charIndex] = '=';
+        }
+        return new String(result);
+    }
+
+    /**
+     * @return MD5摘要
+     */
+    public ByteString md5() {
+        return digest("MD5");
+    }
+
+    /**
+     * @return SHA-1摘要
+     */
+    public ByteString sha1() {
+        return digest("SHA-1");
+    }
+
+    /**
+     * @return SHA-256摘要
+     */
+    public ByteString sha256() {
+        return digest("SHA-256");
+    }
+
+    /**
+     * @param algorithm 摘要算法
+     * @return 摘要（逐段计算，不复制数据）
+     */
+    public ByteString digest(String algorithm) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException(e);
+        }
+        int offset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            messageDigest.update(segments[i], directory[segments.length + i], directory[i] - offset);
+            offset = directory[i];
+        }
+        byte[] result = messageDigest.digest();
+        return new ByteString(new byte[][]{result}, new int[]{result.length, 0});
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ByteString)) return false;
+        ByteString other = (ByteString) o;
+        return other.size() == size() && startsWith(other);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = hashCode;
+        if (result != 0) return result;
+        result = 1;
+        int offset = 0;
+        for (int i = 0; i < segments.length; i++) {
+            byte[] data = segments[i];
+            for (int pos = directory[segments.length + i], limit = pos + directory[i] - offset; pos < limit; pos++) {
+                result = 31 * result + data[pos];
+            }
+            offset = directory[i];
+        }
+        return hashCode = result;
+    }
+
+    @Override
+    public String toString() {
+        return size() <= 64 ? "[hex=" + hex() + "]" : "[size=" + size() + " md5=" + md5().hex() + "]";
+    }
+
+    /**
+     * @param index 位置
+     * @return index所在的分段（二分查找）
+     */
+    private int segment(int index) {
+        int low = 0;
+        int high = segments.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (directory[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
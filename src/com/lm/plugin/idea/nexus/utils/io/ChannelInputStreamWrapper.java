@@ -0,0 +1,143 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * ReadableByteChannel包装类（FileChannel、SocketChannel等）
+ * <p>
+ * 使用堆外缓冲区，数据由内核直接读入缓冲区，不经过JDK的临时堆外缓冲区复制。
+ * Channel需要是阻塞模式（非阻塞模式下读写会返回0，缓冲区链无法处理），非阻塞的SelectableChannel在构造时拒绝。
+ * 请求读入的数据超过一个缓冲区时，ScatteringByteChannel一次调用读入多个缓冲区
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ChannelInputStreamWrapper extends InputStreamWrapper {
+
+    // 一次分散读入的最多缓冲区个数
+    private static final int MAX_SCATTER_COUNT = 16;
+
+    private ReadableByteChannel channel;
+
+    // 分散读入的缓冲区和视图（复用）
+    private IOBuffer[] scatterBuffers;
+    private ByteBuffer[] scatterViews;
+
+    public ChannelInputStreamWrapper(ReadableByteChannel channel) {
+        this(channel, IOBuffer.BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel     ReadableByteChannel
+     * @param segmentSize 缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     * @throws IllegalArgumentException channel是非阻塞模式的SelectableChannel
+     */
+    public ChannelInputStreamWrapper(ReadableByteChannel channel, int segmentSize) {
+        super(null, IOBufferPool.getDirectInstance(segmentSize));
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+            throw new IllegalArgumentException("channel is in non-blocking mode");
+        this.channel = channel;
+    }
+
+    /**
+     * 读入缓冲区
+     *
+     * @param requireCount 请求读入个数
+     * @return 实际读入缓冲区数据个数
+     * @throws IOException IO异常
+     */
+    @Override
+    protected long read(long requireCount) throws IOException {
+        if (requireCount < 0)
+            throw new IllegalArgumentException("requireCount < 0: " + requireCount);
+        IOBuffer buffer = getBuffer(1);
+        int maxCanReadCount = (int) Math.min(requireCount, buffer.capacity() - buffer.limit);
+        if (requireCount > maxCanReadCount && channel instanceof ScatteringByteChannel) {
+            return scatterRead(buffer, requireCount);
+        }
+        int readCount = channel.read(buffer.writableByteBuffer(maxCanReadCount));
+        if (IOMetrics.enabled) IOMetrics.recordRead(readCount);
+        if (readCount == -1) return -1;
+        buffer.limit += readCount;
+        size += readCount;
+        adaptSegmentSize(maxCanReadCount, readCount);
+        spillIfNecessary();
+        return readCount;
+    }
+
+    /**
+     * 一次调用读入尾部缓冲区和若干新缓冲区，没有读入数据的新缓冲区归还缓冲池
+     *
+     * @param tail         尾部缓冲区
+     * @param requireCount 请求读入个数
+     * @return 实际读入缓冲区数据个数
+     * @throws IOException IO异常
+     */
+    private long scatterRead(IOBuffer tail, long requireCount) throws IOException {
+        if (scatterBuffers == null) {
+            scatterBuffers = new IOBuffer[MAX_SCATTER_COUNT];
+            scatterViews = new ByteBuffer[MAX_SCATTER_COUNT];
+        }
+
+        scatterBuffers[0] = tail;
+        scatterViews[0] = tail.writableByteBuffer(tail.capacity() - tail.limit);
+        long maxCanReadCount = scatterViews[0].remaining();
+        int count = 1;
+        while (maxCanReadCount < requireCount && count < MAX_SCATTER_COUNT) {
+            IOBuffer buffer = pool.take();
+            ByteBuffer view = buffer.writableByteBuffer((int) Math.min(requireCount - maxCanReadCount, buffer.capacity()));
+            scatterBuffers[count] = buffer;
+            scatterViews[count++] = view;
+            maxCanReadCount += view.remaining();
+        }
+
+        long readCount = ((ScatteringByteChannel) channel).read(scatterViews, 0, count);
+        if (IOMetrics.enabled) IOMetrics.recordRead(readCount);
+
+        for (int i = 0; i < count; i++) {
+            IOBuffer buffer = scatterBuffers[i];
+            int bufferReadCount = readCount == -1 ? 0 : scatterViews[i].position() - buffer.limit;
+            if (i == 0) {
+                buffer.limit += bufferReadCount;
+                size += bufferReadCount;
+            } else if (bufferReadCount > 0) {
+                buffer.limit += bufferReadCount;
+                appendBuffer(buffer);
+            } else {
+                pool.recycle(buffer);
+            }
+            scatterBuffers[i] = null;
+            scatterViews[i] = null;
+        }
+        if (readCount == -1) return -1;
+
+        adaptSegmentSize((int) Math.min(maxCanReadCount, Integer.MAX_VALUE), (int) readCount);
+        spillIfNecessary();
+        return readCount;
+    }
+
+    /**
+     * @return 底层的FileChannel（不是文件时为null）
+     */
+    @Override
+    FileChannel fileChannel() {
+        return channel instanceof FileChannel ? (FileChannel) channel : null;
+    }
+
+    /**
+     * 关闭channel，并将剩余缓冲区归还缓冲池
+     */
+    @Override
+    public void close() {
+        super.close();
+        IOUtils.closeIO(channel);
+    }
+}
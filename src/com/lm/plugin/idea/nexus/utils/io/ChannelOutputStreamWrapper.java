@@ -0,0 +1,138 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * WritableByteChannel包装类（FileChannel、SocketChannel等）
+ * <p>
+ * 使用堆外缓冲区，数据由缓冲区直接写入内核，不经过JDK的临时堆外缓冲区复制。
+ * Channel需要是阻塞模式（非阻塞模式下读写会返回0，缓冲区链无法处理），非阻塞的SelectableChannel在构造时拒绝。
+ * 写入多个缓冲区时，GatheringByteChannel一次调用写入整个缓冲区链
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ChannelOutputStreamWrapper extends OutputStreamWrapper {
+
+    // 一次集中写入的最多缓冲区个数（Linux的IOV_MAX）
+    private static final int MAX_GATHER_COUNT = 1024;
+
+    private WritableByteChannel channel;
+
+    // 集中写入的视图（复用）
+    private ByteBuffer[] gatherViews;
+
+    public ChannelOutputStreamWrapper(WritableByteChannel channel) {
+        this(channel, IOBuffer.BUFFER_SIZE);
+    }
+
+    /**
+     * @param channel     WritableByteChannel
+     * @param segmentSize 缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     * @throws IllegalArgumentException channel是非阻塞模式的SelectableChannel
+     */
+    public ChannelOutputStreamWrapper(WritableByteChannel channel, int segmentSize) {
+        super(null, IOBufferPool.getDirectInstance(segmentSize));
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+            throw new IllegalArgumentException("channel is in non-blocking mode");
+        this.channel = channel;
+    }
+
+    /**
+     * 真正的使用Channel进行写操作
+     *
+     * @param needWriteCount 需要写入的数量
+     * @throws IOException IO异常
+     */
+    @Override
+    protected void realWrite(long needWriteCount) throws IOException {
+        if (needWriteCount > head.limit - head.pos && channel instanceof GatheringByteChannel) {
+            gatherWrite(needWriteCount);
+            return;
+        }
+        while (needWriteCount > 0) {
+            int maxCanWriteCount = (int) Math.min(needWriteCount, head.limit - head.pos);
+            ByteBuffer byteBuffer = head.readableByteBuffer();
+            byteBuffer.limit(head.pos + maxCanWriteCount);
+            while (byteBuffer.hasRemaining()) {
+                int writeCount = channel.write(byteBuffer);
+                if (IOMetrics.enabled) IOMetrics.recordWrite(writeCount);
+            }
+
+            head.pos += maxCanWriteCount;
+            needWriteCount -= maxCanWriteCount;
+            size -= maxCanWriteCount;
+
+            recycleBufferIfNecessary(head);
+        }
+    }
+
+    /**
+     * 一次调用写入多个缓冲区，写完后回收
+     *
+     * @param needWriteCount 需要写入的数量
+     * @throws IOException IO异常
+     */
+    private void gatherWrite(long needWriteCount) throws IOException {
+        if (gatherViews == null) gatherViews = new ByteBuffer[MAX_GATHER_COUNT];
+
+        while (needWriteCount > 0) {
+            int count = 0;
+            long gatherCount = 0;
+            IOBuffer buffer = head;
+            do {
+                int bufferCount = (int) Math.min(needWriteCount - gatherCount, buffer.limit - buffer.pos);
+                ByteBuffer view = buffer.readableByteBuffer();
+                view.limit(buffer.pos + bufferCount);
+                gatherViews[count++] = view;
+                gatherCount += bufferCount;
+                buffer = buffer.next;
+            } while (gatherCount < needWriteCount && count < MAX_GATHER_COUNT && buffer != head);
+
+            for (long writtenCount = 0; writtenCount < gatherCount; ) {
+                long writeCount = ((GatheringByteChannel) channel).write(gatherViews, 0, count);
+                if (IOMetrics.enabled) IOMetrics.recordWrite(writeCount);
+                writtenCount += writeCount;
+            }
+            for (int i = 0; i < count; i++) {
+                gatherViews[i] = null;
+            }
+
+            needWriteCount -= gatherCount;
+            size -= gatherCount;
+            while (gatherCount > 0) {
+                int bufferCount = (int) Math.min(gatherCount, head.limit - head.pos);
+                head.pos += bufferCount;
+                gatherCount -= bufferCount;
+                recycleBufferIfNecessary(head);
+            }
+        }
+    }
+
+    /**
+     * @return 底层的Channel
+     */
+    @Override
+    WritableByteChannel channel() {
+        return channel;
+    }
+
+    /**
+     * 写入剩余数据，关闭channel，并将剩余缓冲区归还缓冲池
+     */
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } finally {
+            IOUtils.closeIO(channel);
+        }
+    }
+}
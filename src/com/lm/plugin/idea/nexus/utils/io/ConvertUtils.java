@@ -14,8 +14,7 @@ public class ConvertUtils {
      */
     public static byte[] short2BytesLE(short content) {
         byte[] result = new byte[2];
-        result[1] = (byte) ((content >>> 8) & 0xff);
-        result[0] = (byte) (content & 0xff);
+        putShortLE(result, 0, content);
         return result;
     }
 
@@ -25,8 +24,7 @@ public class ConvertUtils {
      */
     public static byte[] short2Bytes(short content) {
         byte[] result = new byte[2];
-        result[0] = (byte) ((content >>> 8) & 0xff);
-        result[1] = (byte) (content & 0xff);
+        putShort(result, 0, content);
         return result;
     }
 
@@ -36,10 +34,7 @@ public class ConvertUtils {
      */
     public static byte[] int2BytesLE(int content) {
         byte[] result = new byte[4];
-        result[3] = (byte) ((content >>> 24) & 0xff);
-        result[2] = (byte) ((content >>> 16) & 0xff);
-        result[1] = (byte) ((content >>> 8) & 0xff);
-        result[0] = (byte) (content & 0xff);
+        putIntLE(result, 0, content);
         return result;
     }
 
@@ -49,10 +44,7 @@ public class ConvertUtils {
      */
     public static byte[] int2Bytes(int content) {
         byte[] result = new byte[4];
-        result[0] = (byte) ((content >>> 24) & 0xff);
-        result[1] = (byte) ((content >>> 16) & 0xff);
-        result[2] = (byte) ((content >>> 8) & 0xff);
-        result[3] = (byte) (content & 0xff);
+        putInt(result, 0, content);
         return result;
     }
 
@@ -62,14 +54,7 @@ public class ConvertUtils {
      */
     public static byte[] long2BytesLE(long content) {
         byte[] result = new byte[8];
-        result[7] = (byte) ((content >>> 56L) & 0xff);
-        result[6] = (byte) ((content >>> 48L) & 0xff);
-        result[5] = (byte) ((content >>> 40L) & 0xff);
-        result[4] = (byte) ((content >>> 32L) & 0xff);
-        result[3] = (byte) ((content >>> 24L) & 0xff);
-        result[2] = (byte) ((content >>> 16L) & 0xff);
-        result[1] = (byte) ((content >>> 8L) & 0xff);
-        result[0] = (byte) (content & 0xff);
+        putLongLE(result, 0, content);
         return result;
     }
 
@@ -79,17 +64,146 @@ public class ConvertUtils {
      */
     public static byte[] long2Bytes(long content) {
         byte[] result = new byte[8];
-        result[0] = (byte) ((content >>> 56L) & 0xff);
-        result[1] = (byte) ((content >>> 48L) & 0xff);
-        result[2] = (byte) ((content >>> 40L) & 0xff);
-        result[3] = (byte) ((content >>> 32L) & 0xff);
-        result[4] = (byte) ((content >>> 24L) & 0xff);
-        result[5] = (byte) ((content >>> 16L) & 0xff);
-        result[6] = (byte) ((content >>> 8L) & 0xff);
-        result[7] = (byte) (content & 0xff);
+        putLong(result, 0, content);
         return result;
     }
 
+    /**
+     * 写入short (大端)，不分配内存
+     *
+     * @param dst     目标数组
+     * @param off     起始下标
+     * @param content short
+     */
+    public static void putShort(byte[] dst, int off, short content) {
+        dst[off] = (byte) (content >>> 8);
+        dst[off + 1] = (byte) content;
+    }
+
+    /**
+     * 写入short (小端)，不分配内存
+     *
+     * @param dst     目标数组
+     * @param off     起始下标
+     * @param content short
+     */
+    public static void putShortLE(byte[] dst, int off, short content) {
+        dst[off] = (byte) content;
+        dst[off + 1] = (byte) (content >>> 8);
+    }
+
+    /**
+     * 写入int (大端)，不分配内存
+     *
+     * @param dst     目标数组
+     * @param off     起始下标
+     * @param content int
+     */
+    public static void putInt(byte[] dst, int off, int content) {
+        dst[off] = (byte) (content >>> 24);
+        dst[off + 1] = (byte) (content >>> 16);
+        dst[off + 2] = (byte) (content >>> 8);
+        dst[off + 3] = (byte) content;
+    }
+
+    /**
+     * 写入int (小端)，不分配内存
+     *
+     * @param dst     目标数组
+     * @param off     起始下标
+     * @param content int
+     */
+    public static void putIntLE(byte[] dst, int off, int content) {
+        dst[off] = (byte) content;
+        dst[off + 1] = (byte) (content >>> 8);
+        dst[off + 2] = (byte) (content >>> 16);
+        dst[off + 3] = (byte) (content >>> 24);
+    }
+
+    /**
+     * 写入long (大端)，不分配内存
+     *
+     * @param dst     目标数组
+     * @param off     起始下标
+     * @param content long
+     */
+    public static void putLong(byte[] dst, int off, long content) {
+        putInt(dst, off, (int) (content >>> 32));
+        putInt(dst, off + 4, (int) content);
+    }
+
+    /**
+     * 写入long (小端)，不分配内存
+     *
+     * @param dst     目标数组
+     * @param off     起始下标
+     * @param content long
+     */
+    public static void putLongLE(byte[] dst, int off, long content) {
+        putIntLE(dst, off, (int) content);
+        putIntLE(dst, off + 4, (int) (content >>> 32));
+    }
+
+    /**
+     * @param src 源数组
+     * @param off 起始下标
+     * @return short (大端)
+     */
+    public static short getShort(byte[] src, int off) {
+        return (short) (((src[off] & 0xff) << 8) | (src[off + 1] & 0xff));
+    }
+
+    /**
+     * @param src 源数组
+     * @param off 起始下标
+     * @return short (小端)
+     */
+    public static short getShortLE(byte[] src, int off) {
+        return (short) ((src[off] & 0xff) | ((src[off + 1] & 0xff) << 8));
+    }
+
+    /**
+     * @param src 源数组
+     * @param off 起始下标
+     * @return int (大端)
+     */
+    public static int getInt(byte[] src, int off) {
+        return ((src[off] & 0xff) << 24)
+                | ((src[off + 1] & 0xff) << 16)
+                | ((src[off + 2] & 0xff) << 8)
+                | (src[off + 3] & 0xff);
+    }
+
+    /**
+     * @param src 源数组
+     * @param off 起始下标
+     * @return int (小端)
+     */
+    public static int getIntLE(byte[] src, int off) {
+        return (src[off] & 0xff)
+                | ((src[off + 1] & 0xff) << 8)
+                | ((src[off + 2] & 0xff) << 16)
+                | ((src[off + 3] & 0xff) << 24);
+    }
+
+    /**
+     * @param src 源数组
+     * @param off 起始下标
+     * @return long (大端)
+     */
+    public static long getLong(byte[] src, int off) {
+        return ((long) getInt(src, off) << 32) | (getInt(src, off + 4) & 0xffffffffL);
+    }
+
+    /**
+     * @param src 源数组
+     * @param off 起始下标
+     * @return long (小端)
+     */
+    public static long getLongLE(byte[] src, int off) {
+        return (getIntLE(src, off) & 0xffffffffL) | ((long) getIntLE(src, off + 4) << 32);
+    }
+
     /**
      * @param content short
      * @return 翻转Short
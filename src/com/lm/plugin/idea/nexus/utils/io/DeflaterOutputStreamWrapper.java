@@ -0,0 +1,209 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 压缩的OutputStreamWrapper（zlib或GZIP格式）
+ * <p>
+ * 直接从缓冲区压缩到sink的缓冲区，不经过java.util.zip流自带的缓冲区；Deflater从缓存池中获取。
+ * 写完后需要调用finish()（close()也会调用）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class DeflaterOutputStreamWrapper extends OutputStreamWrapper {
+
+    // GZIP头：魔数、压缩方法deflate、无标记、无修改时间、无额外标记、未知操作系统
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStreamWrapper sink;
+
+    private final boolean gzip;
+
+    private Deflater deflater;
+
+    // GZIP的CRC32校验
+    private final CRC32 crc;
+
+    private boolean headerWritten;
+
+    private boolean finished;
+
+    /**
+     * @param sink 压缩后数据写入的OutputStreamWrapper
+     * @param gzip 是否是GZIP格式（否则是zlib格式）
+     */
+    public DeflaterOutputStreamWrapper(OutputStreamWrapper sink, boolean gzip) {
+        this(sink, Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, gzip);
+    }
+
+    /**
+     * @param sink     压缩后数据写入的OutputStreamWrapper
+     * @param level    压缩级别（Deflater.DEFAULT_COMPRESSION或0~9）
+     * @param strategy 压缩策略（Deflater.DEFAULT_STRATEGY、FILTERED、HUFFMAN_ONLY）
+     * @param gzip     是否是GZIP格式（否则是zlib格式）
+     */
+    public DeflaterOutputStreamWrapper(OutputStreamWrapper sink, int level, int strategy, boolean gzip) {
+        super(null, IOBufferPool.getInstance());
+        this.sink = sink;
+        this.gzip = gzip;
+        this.deflater = ZipCodecPool.takeDeflater(level, strategy, gzip);
+        this.crc = gzip ? new CRC32() : null;
+    }
+
+    /**
+     * 压缩并写入sink
+     *
+     * @param needWriteCount 需要写入的数量
+     * @throws IOException IO异常
+     */
+    @Override
+    protected void realWrite(long needWriteCount) throws IOException {
+        if (finished) throw new IOException("deflater finished");
+        writeHeaderIfNecessary();
+
+        while (needWriteCount > 0) {
+            IOBuffer buffer = head;
+            int count = (int) Math.min(needWriteCount, buffer.limit - buffer.pos);
+
+            if (buffer.isDirect()) {
+                // Deflater只接受byte[]，堆外缓冲区先复制到堆内
+                IOBuffer heapBuffer = IOBufferPool.getInstance().take();
+                count = Math.min(count, heapBuffer.capacity());
+                buffer.get(buffer.pos, heapBuffer.data, 0, count);
+                deflate(heapBuffer.data, 0, count);
+                IOBufferPool.getInstance().recycle(heapBuffer);
+            } else {
+                deflate(buffer.data, buffer.pos, count);
+            }
+
+            buffer.pos += count;
+            size -= count;
+            needWriteCount -= count;
+            recycleBufferIfNecessary(buffer);
+        }
+        sink.commit();
+    }
+
+    /**
+     * 压缩缓冲的数据并SYNC_FLUSH（已写入的数据可以被完整解压），然后flush sink
+     *
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    @Override
+    public OutputStreamWrapper flush() throws IOException {
+        super.flush();
+        if (!finished) {
+            writeHeaderIfNecessary();
+            boolean full;
+            do {
+                // 输出写满缓冲区时可能还有剩余
+                full = deflateTo(Deflater.SYNC_FLUSH);
+            } while (full);
+        }
+        sink.flush();
+        return this;
+    }
+
+    /**
+     * 结束压缩：压缩剩余数据，写入压缩流结尾（GZIP还有CRC32和长度），之后不能再写入
+     *
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper finish() throws IOException {
+        if (finished) return this;
+        if (size > 0) realWrite(size);
+        writeHeaderIfNecessary();
+
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflateTo(Deflater.NO_FLUSH);
+        }
+        if (gzip) {
+            sink.writeIntLE((int) crc.getValue());
+            sink.writeIntLE((int) deflater.getBytesRead());
+        }
+        sink.commit();
+        finished = true;
+        return this;
+    }
+
+    /**
+     * 压缩后的数据需要写入sink，不能直接使用底层的Channel
+     *
+     * @return null
+     */
+    @Override
+    WritableByteChannel channel() {
+        return null;
+    }
+
+    /**
+     * 结束压缩，Deflater归还缓存池，并关闭sink
+     *
+     * @throws UncheckedIOException 结束压缩时出现IO异常
+     */
+    @Override
+    public void close() {
+        if (deflater == null) return;
+        try {
+            finish();
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e.getMessage(), e);
+        } finally {
+            ZipCodecPool.recycle(deflater, gzip);
+            deflater = null;
+            // 结束压缩失败时剩余的数据已经无法压缩，直接丢弃
+            recycleAll();
+            super.close();
+            sink.close();
+        }
+    }
+
+    /**
+     * 压缩一段数据（全部交给Deflater后返回）
+     */
+    private void deflate(byte[] data, int off, int len) {
+        if (gzip) crc.update(data, off, len);
+        deflater.setInput(data, off, len);
+        while (!deflater.needsInput()) {
+            deflateTo(Deflater.NO_FLUSH);
+        }
+    }
+
+    /**
+     * 压缩到sink尾部的缓冲区
+     *
+     * @param flushMode Deflater的flush模式
+     * @return 是否写满了缓冲区（可能还有输出）
+     */
+    private boolean deflateTo(int flushMode) {
+        IOBuffer target = sink.head != null ? sink.head.previous : null;
+        if (target == null || target.isDirect() || target.shared || target.limit == target.capacity()) {
+            // Deflater只能输出到byte[]，sink尾部不是可写的堆内缓冲区时追加一个
+            target = IOBufferPool.getInstance().take();
+            sink.appendBuffer(target);
+        }
+        int maxCount = target.capacity() - target.limit;
+        int count = deflater.deflate(target.data, target.limit, maxCount, flushMode);
+        target.limit += count;
+        sink.size += count;
+        return count == maxCount;
+    }
+
+    private void writeHeaderIfNecessary() throws IOException {
+        if (headerWritten) return;
+        headerWritten = true;
+        if (gzip) sink.writeBytes(GZIP_HEADER);
+    }
+}
@@ -0,0 +1,84 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * 计算摘要的InputStreamWrapper
+ * <p>
+ * 从source读入的数据在进入缓冲区链时直接用缓冲区更新摘要，整段的缓冲区从source移动过来，不复制数据；
+ * 多个摘要在同一次读取中计算，例如一边上传文件一边计算.md5、.sha1
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class HashingInputStreamWrapper extends InputStreamWrapper {
+
+    private final InputStreamWrapper source;
+
+    private final MessageDigests digests;
+
+    /**
+     * @param source     真正读取的InputStreamWrapper
+     * @param algorithms 摘要算法（MD5、SHA-1、SHA-256、SHA-512等）
+     */
+    public HashingInputStreamWrapper(InputStreamWrapper source, String... algorithms) {
+        super(null, source.pool);
+        this.source = source;
+        this.digests = new MessageDigests(algorithms);
+    }
+
+    /**
+     * 从source读入，更新摘要后移动到缓冲区链尾部
+     *
+     * @param requireCount 请求读入个数
+     * @return 实际读入缓冲区数据个数
+     * @throws IOException IO异常
+     */
+    @Override
+    protected long read(long requireCount) throws IOException {
+        if (requireCount < 0)
+            throw new IllegalArgumentException("requireCount < 0: " + requireCount);
+        if (source.size == 0 && source.read(requireCount) == -1) return -1;
+
+        long readCount = source.size;
+        while (source.head != null) {
+            IOBuffer buffer = source.popHead();
+            digests.update(buffer, buffer.pos, buffer.limit - buffer.pos);
+            appendBuffer(buffer);
+        }
+        spillIfNecessary();
+        return readCount;
+    }
+
+    /**
+     * 获取摘要（只包含已经从source读入的数据，读完后就是全部数据的摘要）
+     *
+     * @param algorithm 摘要算法（需要是构造时指定的算法）
+     * @return 摘要
+     */
+    public ByteString digest(String algorithm) {
+        return digests.digest(algorithm);
+    }
+
+    /**
+     * 数据需要经过摘要计算，不能直接使用底层的FileChannel
+     *
+     * @return null
+     */
+    @Override
+    FileChannel fileChannel() {
+        return null;
+    }
+
+    /**
+     * 关闭source，并将剩余缓冲区归还缓冲池
+     */
+    @Override
+    public void close() {
+        super.close();
+        source.close();
+    }
+}
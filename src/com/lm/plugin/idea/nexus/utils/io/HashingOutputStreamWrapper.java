@@ -0,0 +1,120 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 计算摘要的OutputStreamWrapper
+ * <p>
+ * 写入的数据在交给sink时直接用缓冲区更新摘要，整段的缓冲区移动到sink，不复制数据；
+ * 多个摘要（例如Maven仓库需要的.md5、.sha1、.sha256、.sha512）在同一次写入中计算
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class HashingOutputStreamWrapper extends OutputStreamWrapper {
+
+    private final OutputStreamWrapper sink;
+
+    private final MessageDigests digests;
+
+    /**
+     * @param sink       真正写入的OutputStreamWrapper
+     * @param algorithms 摘要算法（MD5、SHA-1、SHA-256、SHA-512等）
+     */
+    public HashingOutputStreamWrapper(OutputStreamWrapper sink, String... algorithms) {
+        super(null, sink.pool);
+        this.sink = sink;
+        this.digests = new MessageDigests(algorithms);
+    }
+
+    /**
+     * 更新摘要并把数据交给sink
+     *
+     * @param needWriteCount 需要写入的数量
+     * @throws IOException IO异常
+     */
+    @Override
+    protected void realWrite(long needWriteCount) throws IOException {
+        while (needWriteCount > 0) {
+            IOBuffer buffer = head;
+            int bufferCount = buffer.limit - buffer.pos;
+            int count = (int) Math.min(needWriteCount, bufferCount);
+            digests.update(buffer, buffer.pos, count);
+
+            needWriteCount -= count;
+            size -= count;
+
+            if (count == bufferCount) {
+                // 整段移动到sink
+                head = buffer.pop();
+                sink.appendBuffer(buffer);
+                continue;
+            }
+
+            // 只写入一部分时复制
+            while (count > 0) {
+                IOBuffer target = sink.getBuffer(1);
+                int maxCanCopyCount = Math.min(count, target.capacity() - target.limit);
+                buffer.copyTo(buffer.pos, target, target.limit, maxCanCopyCount);
+                buffer.pos += maxCanCopyCount;
+                target.limit += maxCanCopyCount;
+                sink.size += maxCanCopyCount;
+                count -= maxCanCopyCount;
+            }
+        }
+        sink.commit();
+    }
+
+    /**
+     * 写入缓冲的数据，并flush sink
+     *
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    @Override
+    public OutputStreamWrapper flush() throws IOException {
+        super.flush();
+        sink.flush();
+        return this;
+    }
+
+    /**
+     * 获取摘要（先把缓冲的数据交给sink，结果包含到目前为止写入的全部数据）
+     *
+     * @param algorithm 摘要算法（需要是构造时指定的算法）
+     * @return 摘要
+     * @throws IOException IO异常
+     */
+    public ByteString digest(String algorithm) throws IOException {
+        if (size > 0) realWrite(size);
+        return digests.digest(algorithm);
+    }
+
+    /**
+     * 数据需要经过摘要计算，不能直接使用底层的Channel
+     * <p>
+     * 返回null会关闭writeAll和InputStreamWrapper.transferTo的FileChannel.transferTo快速路径：
+     * 即使source和sink都是文件，数据也要读入缓冲区、更新摘要后再交给sink，否则写入的数据不会进入摘要
+     *
+     * @return null
+     */
+    @Override
+    WritableByteChannel channel() {
+        return null;
+    }
+
+    /**
+     * 写入剩余数据，关闭sink，并将剩余缓冲区归还缓冲池
+     */
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } finally {
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferLeakDetector;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IO统计（读写字节数、底层读写次数、阻塞时间、缓冲池状态）
+ * <p>
+ * 默认关闭（可以用系统属性nexus.io.metrics=true打开），关闭时包装类只多一次字段判断。
+ * 缓冲池的计数一直开启。可以通过snapshot()获取，也可以register()后通过JMX查看
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public final class IOMetrics implements IOMetricsMXBean {
+
+    // JMX名称
+    public static final String OBJECT_NAME = "com.lm.plugin.idea.nexus:type=IOMetrics";
+
+    private static final IOMetrics INSTANCE = new IOMetrics();
+
+    // 是否开启统计
+    static volatile boolean enabled = Boolean.getBoolean("nexus.io.metrics");
+
+    // 底层读取的字节数和次数
+    static final LongAdder BYTES_READ = new LongAdder();
+    static final LongAdder READ_COUNT = new LongAdder();
+
+    // 底层写入的字节数和次数
+    static final LongAdder BYTES_WRITTEN = new LongAdder();
+    static final LongAdder WRITE_COUNT = new LongAdder();
+
+    // 溢出到临时文件的字节数和次数（不计入底层写入）
+    static final LongAdder BYTES_SPILLED = new LongAdder();
+    static final LongAdder SPILL_COUNT = new LongAdder();
+
+    // 等待读入和写出的时间（纳秒）
+    static final LongAdder READ_BLOCKED_NANOS = new LongAdder();
+    static final LongAdder WRITE_BLOCKED_NANOS = new LongAdder();
+
+    private IOMetrics() {
+    }
+
+    /**
+     * @return IO统计
+     */
+    public static IOMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 注册到平台MBeanServer（已注册时忽略）
+     *
+     * @throws JMException JMX异常
+     */
+    public static void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) server.registerMBean(INSTANCE, name);
+    }
+
+    /**
+     * 记录一次底层读取
+     *
+     * @param readCount 读取的字节数（-1表示读完）
+     */
+    static void recordRead(long readCount) {
+        READ_COUNT.increment();
+        if (readCount > 0) BYTES_READ.add(readCount);
+    }
+
+    /**
+     * 记录一次底层写入
+     *
+     * @param writeCount 写入的字节数
+     */
+    static void recordWrite(long writeCount) {
+        WRITE_COUNT.increment();
+        if (writeCount > 0) BYTES_WRITTEN.add(writeCount);
+    }
+
+    /**
+     * 记录一次溢出到临时文件
+     *
+     * @param spillCount 溢出的字节数
+     */
+    static void recordSpill(long spillCount) {
+        SPILL_COUNT.increment();
+        if (spillCount > 0) BYTES_SPILLED.add(spillCount);
+    }
+
+    /**
+     * @return 当前所有统计值
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        IOMetrics.enabled = enabled;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return BYTES_READ.sum();
+    }
+
+    @Override
+    public long getReadCount() {
+        return READ_COUNT.sum();
+    }
+
+    @Override
+    public double getAverageBytesPerRead() {
+        long readCount = getReadCount();
+        return readCount == 0 ? 0 : (double) getBytesRead() / readCount;
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return BYTES_WRITTEN.sum();
+    }
+
+    @Override
+    public long getWriteCount() {
+        return WRITE_COUNT.sum();
+    }
+
+    @Override
+    public double getAverageBytesPerWrite() {
+        long writeCount = getWriteCount();
+        return writeCount == 0 ? 0 : (double) getBytesWritten() / writeCount;
+    }
+
+    @Override
+    public long getBytesSpilled() {
+        return BYTES_SPILLED.sum();
+    }
+
+    @Override
+    public long getSpillCount() {
+        return SPILL_COUNT.sum();
+    }
+
+    @Override
+    public long getReadBlockedMillis() {
+        return READ_BLOCKED_NANOS.sum() / 1000000;
+    }
+
+    @Override
+    public long getWriteBlockedMillis() {
+        return WRITE_BLOCKED_NANOS.sum() / 1000000;
+    }
+
+    @Override
+    public long getPoolHitCount() {
+        long result = 0;
+        for (IOBufferPool pool : IOBufferPool.getAllInstances()) result += pool.getHitCount();
+        return result;
+    }
+
+    @Override
+    public long getPoolMissCount() {
+        long result = 0;
+        for (IOBufferPool pool : IOBufferPool.getAllInstances()) result += pool.getMissCount();
+        return result;
+    }
+
+    @Override
+    public long getPoolRecycleCount() {
+        long result = 0;
+        for (IOBufferPool pool : IOBufferPool.getAllInstances()) result += pool.getRecycleCount();
+        return result;
+    }
+
+    @Override
+    public long getPoolOverflowCount() {
+        long result = 0;
+        for (IOBufferPool pool : IOBufferPool.getAllInstances()) result += pool.getOverflowCount();
+        return result;
+    }
+
+    @Override
+    public long getPooledBytes() {
+        long result = 0;
+        for (IOBufferPool pool : IOBufferPool.getAllInstances()) result += pool.getByteCount();
+        return result;
+    }
+
+    @Override
+    public long getOutstandingBytes() {
+        long result = 0;
+        for (IOBufferPool pool : IOBufferPool.getAllInstances()) result += pool.getOutstandingByteCount();
+        return result;
+    }
+
+    /**
+     * @return 泄漏检测已经报告的缓冲区泄漏个数（读取属性没有副作用，已被GC回收还没有报告的泄漏在下一次采样或reportLeaks()时计入）
+     */
+    @Override
+    public long getBufferLeakCount() {
+        return IOBufferLeakDetector.getLeakCount();
+    }
+
+    /**
+     * 清零读写统计（缓冲池的计数不清零）
+     */
+    @Override
+    public void reset() {
+        BYTES_READ.reset();
+        READ_COUNT.reset();
+        BYTES_WRITTEN.reset();
+        WRITE_COUNT.reset();
+        BYTES_SPILLED.reset();
+        SPILL_COUNT.reset();
+        READ_BLOCKED_NANOS.reset();
+        WRITE_BLOCKED_NANOS.reset();
+    }
+
+    /**
+     * 统计值快照
+     */
+    public static final class Snapshot {
+        public final long bytesRead;
+        public final long readCount;
+        public final long bytesWritten;
+        public final long writeCount;
+        public final long bytesSpilled;
+        public final long spillCount;
+        public final long readBlockedMillis;
+        public final long writeBlockedMillis;
+        public final long poolHitCount;
+        public final long poolMissCount;
+        public final long poolRecycleCount;
+        public final long poolOverflowCount;
+        public final long pooledBytes;
+        public final long outstandingBytes;
+
+        private Snapshot(IOMetrics metrics) {
+            bytesRead = metrics.getBytesRead();
+            readCount = metrics.getReadCount();
+            bytesWritten = metrics.getBytesWritten();
+            writeCount = metrics.getWriteCount();
+            bytesSpilled = metrics.getBytesSpilled();
+            spillCount = metrics.getSpillCount();
+            readBlockedMillis = metrics.getReadBlockedMillis();
+            writeBlockedMillis = metrics.getWriteBlockedMillis();
+            poolHitCount = metrics.getPoolHitCount();
+            poolMissCount = metrics.getPoolMissCount();
+            poolRecycleCount = metrics.getPoolRecycleCount();
+            poolOverflowCount = metrics.getPoolOverflowCount();
+            pooledBytes = metrics.getPooledBytes();
+            outstandingBytes = metrics.getOutstandingBytes();
+        }
+
+        /**
+         * @return 平均每次底层读取的字节数
+         */
+        public double averageBytesPerRead() {
+            return readCount == 0 ? 0 : (double) bytesRead / readCount;
+        }
+
+        /**
+         * @return 平均每次底层写入的字节数
+         */
+        public double averageBytesPerWrite() {
+            return writeCount == 0 ? 0 : (double) bytesWritten / writeCount;
+        }
+
+        @Override
+        public String toString() {
+            return "IOMetrics{read=" + bytesRead + "B/" + readCount
+                    + ", written=" + bytesWritten + "B/" + writeCount
+                    + ", spilled=" + bytesSpilled + "B/" + spillCount
+                    + ", readBlocked=" + readBlockedMillis + "ms"
+                    + ", writeBlocked=" + writeBlockedMillis + "ms"
+                    + ", pool(hit=" + poolHitCount + ", miss=" + poolMissCount
+                    + ", recycle=" + poolRecycleCount + ", overflow=" + poolOverflowCount
+                    + ", pooled=" + pooledBytes + "B, outstanding=" + outstandingBytes + "B)}";
+        }
+    }
+}
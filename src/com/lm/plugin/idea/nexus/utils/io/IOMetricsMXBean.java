@@ -0,0 +1,94 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+/**
+ * IO统计的JMX接口
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public interface IOMetricsMXBean {
+
+    /**
+     * @return 是否统计读写（缓冲池的计数一直开启）
+     */
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return 底层读取的字节数
+     */
+    long getBytesRead();
+
+    /**
+     * @return 底层读取次数
+     */
+    long getReadCount();
+
+    double getAverageBytesPerRead();
+
+    /**
+     * @return 底层写入的字节数
+     */
+    long getBytesWritten();
+
+    /**
+     * @return 底层写入次数
+     */
+    long getWriteCount();
+
+    double getAverageBytesPerWrite();
+
+    /**
+     * @return 有界内存模式下溢出到临时文件的字节数
+     */
+    long getBytesSpilled();
+
+    /**
+     * @return 溢出到临时文件的次数
+     */
+    long getSpillCount();
+
+    /**
+     * @return 等待读入的时间（毫秒）
+     */
+    long getReadBlockedMillis();
+
+    /**
+     * @return 等待写出的时间（毫秒）
+     */
+    long getWriteBlockedMillis();
+
+    long getPoolHitCount();
+
+    long getPoolMissCount();
+
+    long getPoolRecycleCount();
+
+    long getPoolOverflowCount();
+
+    /**
+     * @return 缓冲池中缓存（空闲）的字节数（近似值）
+     */
+    long getPooledBytes();
+
+    /**
+     * 当前被包装类持有的字节数（已取出还没有归还的缓冲区）
+     * <p>
+     * 由缓冲池的计数近似得到：(命中 + 未命中 - 归还 - 丢弃) × 缓冲区大小，按整个缓冲区计算而不是实际缓冲的数据量，
+     * 还包括被字节串共享的缓冲区和没有归还就被GC回收的缓冲区，各计数不是同时读取的，只适合观察趋势
+     *
+     * @return 已取出还没有归还的字节数（近似值）
+     */
+    long getOutstandingBytes();
+
+    /**
+     * @return 泄漏检测已经报告的缓冲区泄漏个数（读取没有副作用）
+     */
+    long getBufferLeakCount();
+
+    /**
+     * 清零读写统计（缓冲池的计数不清零）
+     */
+    void reset();
+}
@@ -1,6 +1,15 @@
 package com.lm.plugin.idea.nexus.utils.io;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
 
 /**
  * IO流工具类
@@ -37,6 +46,33 @@ public class IOUtils {
         }
     }
 
+    /**
+     * 立即解除文件映射（不等待GC），解除后不能再访问该映射区域
+     *
+     * @param buffer FileChannel.map返回的映射区域
+     */
+    public static void unmap(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect()) return;
+        try {
+            try {
+                // JDK9+
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // JDK8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (Exception ignored) {
+            // 无法主动解除时交给GC回收
+        }
+    }
+
     /**
      * 包装OutputStream
      *
@@ -47,6 +83,17 @@ public class IOUtils {
         return new OutputStreamWrapper(outputStream);
     }
 
+    /**
+     * 包装OutputStream
+     *
+     * @param outputStream OutputStream
+     * @param segmentSize  缓冲区大小（向上取整到2的幂，2KB ~ 1MB，大文件使用大缓冲区可以减少系统调用次数）
+     * @return OutputWrapper
+     */
+    public static OutputStreamWrapper outputStreamWrapper(OutputStream outputStream, int segmentSize) {
+        return new OutputStreamWrapper(outputStream, segmentSize);
+    }
+
     /**
      * 包装OutputStream
      *
@@ -59,6 +106,49 @@ public class IOUtils {
         return new OutputStreamWrapper(new FileOutputStream(file, append));
     }
 
+    /**
+     * 包装WritableByteChannel（使用堆外缓冲区）
+     *
+     * @param channel WritableByteChannel
+     * @return OutputWrapper
+     */
+    public static OutputStreamWrapper outputStreamWrapper(WritableByteChannel channel) {
+        return new ChannelOutputStreamWrapper(channel);
+    }
+
+    /**
+     * 包装OutputStream（后台线程写入）
+     *
+     * @param outputStream OutputStream
+     * @param segmentCount 队列中最多等待写入的缓冲区个数
+     * @return OutputWrapper
+     */
+    public static OutputStreamWrapper writeBehindOutputStreamWrapper(OutputStream outputStream, int segmentCount) {
+        return new WriteBehindOutputStreamWrapper(outputStream, segmentCount);
+    }
+
+    /**
+     * 包装OutputStreamWrapper（写入时同时计算摘要）
+     *
+     * @param sink       OutputStreamWrapper
+     * @param algorithms 摘要算法（MD5、SHA-1、SHA-256、SHA-512等）
+     * @return HashingOutputStreamWrapper
+     */
+    public static HashingOutputStreamWrapper hashingOutputStreamWrapper(OutputStreamWrapper sink, String... algorithms) {
+        return new HashingOutputStreamWrapper(sink, algorithms);
+    }
+
+    /**
+     * 包装OutputStreamWrapper（写入时GZIP压缩）
+     *
+     * @param sink  OutputStreamWrapper
+     * @param level 压缩级别（Deflater.DEFAULT_COMPRESSION或0~9）
+     * @return DeflaterOutputStreamWrapper
+     */
+    public static DeflaterOutputStreamWrapper gzipOutputStreamWrapper(OutputStreamWrapper sink, int level) {
+        return new DeflaterOutputStreamWrapper(sink, level, Deflater.DEFAULT_STRATEGY, true);
+    }
+
     /**
      * 包装InputStream
      *
@@ -69,6 +159,17 @@ public class IOUtils {
         return new InputStreamWrapper(inputStream);
     }
 
+    /**
+     * 包装InputStream
+     *
+     * @param inputStream InputStream
+     * @param segmentSize 缓冲区大小（向上取整到2的幂，2KB ~ 1MB，大文件使用大缓冲区可以减少系统调用次数）
+     * @return InputStreamWrapper
+     */
+    public static InputStreamWrapper inputStreamWrapper(InputStream inputStream, int segmentSize) {
+        return new InputStreamWrapper(inputStream, segmentSize);
+    }
+
     /**
      * 包装InputStream
      *
@@ -79,4 +180,93 @@ public class IOUtils {
     public static InputStreamWrapper inputStreamWrapper(File file) throws FileNotFoundException {
         return new InputStreamWrapper(new FileInputStream(file));
     }
+
+    /**
+     * 包装InputStream
+     *
+     * @param file   文件
+     * @param mapped 是否使用文件映射（适合大文件，读取时没有系统调用和堆内复制）
+     * @return InputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public static InputStreamWrapper inputStreamWrapper(File file, boolean mapped) throws IOException {
+        return mapped ? new MappedInputStreamWrapper(file) : inputStreamWrapper(file);
+    }
+
+    /**
+     * 包装ReadableByteChannel（使用堆外缓冲区）
+     *
+     * @param channel ReadableByteChannel
+     * @return InputStreamWrapper
+     */
+    public static InputStreamWrapper inputStreamWrapper(ReadableByteChannel channel) {
+        return new ChannelInputStreamWrapper(channel);
+    }
+
+    /**
+     * 包装InputStream（后台线程预读）
+     *
+     * @param inputStream  InputStream
+     * @param segmentCount 最多预读的缓冲区个数
+     * @return InputStreamWrapper
+     */
+    public static InputStreamWrapper readAheadInputStreamWrapper(InputStream inputStream, int segmentCount) {
+        return new ReadAheadInputStreamWrapper(inputStream, segmentCount);
+    }
+
+    /**
+     * 包装InputStreamWrapper（读取时同时计算摘要）
+     *
+     * @param source     InputStreamWrapper
+     * @param algorithms 摘要算法（MD5、SHA-1、SHA-256、SHA-512等）
+     * @return HashingInputStreamWrapper
+     */
+    public static HashingInputStreamWrapper hashingInputStreamWrapper(InputStreamWrapper source, String... algorithms) {
+        return new HashingInputStreamWrapper(source, algorithms);
+    }
+
+    /**
+     * 包装InputStreamWrapper（读取时GZIP解压）
+     *
+     * @param source InputStreamWrapper
+     * @return InflaterInputStreamWrapper
+     */
+    public static InflaterInputStreamWrapper gzipInputStreamWrapper(InputStreamWrapper source) {
+        return new InflaterInputStreamWrapper(source, true);
+    }
+
+    /**
+     * 按行读取文件（UTF8编码）
+     *
+     * @param file 文件
+     * @return 并行Stream（需要关闭）
+     * @throws IOException IO异常
+     */
+    public static Stream<String> utf8Lines(File file) throws IOException {
+        return lines(file, "UTF-8");
+    }
+
+    /**
+     * 按行读取文件：文件按换行符拆分成块，并行Stream中多个线程同时读取不同的块（使用文件映射），行的顺序与文件一致。
+     * 不需要并行时调用sequential()
+     *
+     * @param file        文件
+     * @param charsetName 字符编码
+     * @return 并行Stream（需要关闭，关闭时解除没有读完的映射并关闭文件）
+     * @throws IOException IO异常
+     */
+    public static Stream<String> lines(File file, String charsetName) throws IOException {
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try {
+            LineSpliterator spliterator = new LineSpliterator(channel, charsetName);
+            return StreamSupport.stream(spliterator, true)
+                    .onClose(() -> {
+                        spliterator.close();
+                        closeIO(channel);
+                    });
+        } catch (IOException e) {
+            closeIO(channel);
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,171 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * 解压的InputStreamWrapper（zlib或GZIP格式）
+ * <p>
+ * 直接从source的缓冲区解压到缓冲区链，不经过java.util.zip流自带的缓冲区；Inflater从缓存池中获取。
+ * 压缩流之后的数据留在source中
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class InflaterInputStreamWrapper extends InputStreamWrapper {
+
+    // GZIP头标记
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final InputStreamWrapper source;
+
+    private final boolean gzip;
+
+    private Inflater inflater;
+
+    // GZIP的CRC32校验
+    private final CRC32 crc;
+
+    private boolean headerRead;
+
+    private boolean finished;
+
+    /**
+     * @param source 压缩数据的InputStreamWrapper
+     * @param gzip   是否是GZIP格式（否则是zlib格式）
+     */
+    public InflaterInputStreamWrapper(InputStreamWrapper source, boolean gzip) {
+        super(null, IOBufferPool.getInstance());
+        this.source = source;
+        this.gzip = gzip;
+        this.inflater = ZipCodecPool.takeInflater(gzip);
+        this.crc = gzip ? new CRC32() : null;
+    }
+
+    /**
+     * 从source解压到缓冲区链尾部
+     *
+     * @param requireCount 请求读入个数
+     * @return 实际读入缓冲区数据个数
+     * @throws IOException IO异常
+     */
+    @Override
+    protected long read(long requireCount) throws IOException {
+        if (requireCount < 0)
+            throw new IllegalArgumentException("requireCount < 0: " + requireCount);
+        if (finished) return -1;
+        if (requireCount == 0) return 0;
+        if (inflater == null) throw new IOException("closed");
+        readHeaderIfNecessary();
+
+        IOBuffer target = getBuffer(1);
+        int maxCount = (int) Math.min(requireCount, target.capacity() - target.limit);
+        while (true) {
+            if (source.size == 0 && source.read(source.pool.getSegmentSize()) == -1)
+                throw new EOFException("unexpected end of compressed stream");
+
+            IOBuffer input = source.head;
+            int inputCount = input.limit - input.pos;
+            int readCount;
+            try {
+                if (input.isDirect()) {
+                    // Inflater只接受byte[]，堆外缓冲区先复制到堆内
+                    IOBuffer heapBuffer = IOBufferPool.getInstance().take();
+                    try {
+                        inputCount = Math.min(inputCount, heapBuffer.capacity());
+                        input.get(input.pos, heapBuffer.data, 0, inputCount);
+                        inflater.setInput(heapBuffer.data, 0, inputCount);
+                        readCount = inflater.inflate(target.data, target.limit, maxCount);
+                    } finally {
+                        IOBufferPool.getInstance().recycle(heapBuffer);
+                    }
+                } else {
+                    inflater.setInput(input.data, input.pos, inputCount);
+                    readCount = inflater.inflate(target.data, target.limit, maxCount);
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+
+            // 只移除被Inflater消耗的数据
+            int consumedCount = inputCount - inflater.getRemaining();
+            input.pos += consumedCount;
+            source.size -= consumedCount;
+            source.recycleBufferIfNecessary(input);
+
+            if (gzip) crc.update(target.data, target.limit, readCount);
+            target.limit += readCount;
+            size += readCount;
+            spillIfNecessary();
+
+            if (inflater.finished()) {
+                readTrailerIfNecessary();
+                finished = true;
+                return readCount > 0 ? readCount : -1;
+            }
+            if (inflater.needsDictionary()) throw new IOException("deflate dictionary is not supported");
+            if (readCount > 0) return readCount;
+        }
+    }
+
+    /**
+     * 解压后的数据不能直接使用底层的FileChannel
+     *
+     * @return null
+     */
+    @Override
+    FileChannel fileChannel() {
+        return null;
+    }
+
+    /**
+     * Inflater归还缓存池，关闭source，并将剩余缓冲区归还缓冲池
+     */
+    @Override
+    public void close() {
+        if (inflater != null) {
+            ZipCodecPool.recycle(inflater, gzip);
+            inflater = null;
+        }
+        super.close();
+        source.close();
+    }
+
+    private void readHeaderIfNecessary() throws IOException {
+        if (headerRead) return;
+        headerRead = true;
+        if (!gzip) return;
+
+        if (source.readShort() != (short) 0x1f8b) throw new IOException("not in GZIP format");
+        if (source.readByte() != 8) throw new IOException("unsupported compression method");
+        int flags = source.readByte() & 0xff;
+        // 修改时间、额外标记、操作系统
+        source.skip(6);
+        if ((flags & FEXTRA) != 0) source.skip(source.readShortLE() & 0xffff);
+        if ((flags & FNAME) != 0) skipZeroTerminated();
+        if ((flags & FCOMMENT) != 0) skipZeroTerminated();
+        if ((flags & FHCRC) != 0) source.skip(2);
+    }
+
+    private void skipZeroTerminated() throws IOException {
+        long index = source.indexOf((byte) 0);
+        if (index == -1) throw new EOFException();
+        source.skip(index + 1);
+    }
+
+    private void readTrailerIfNecessary() throws IOException {
+        if (!gzip) return;
+        if (source.readIntLE() != (int) crc.getValue()) throw new IOException("corrupt GZIP trailer: crc mismatch");
+        if (source.readIntLE() != (int) inflater.getBytesWritten()) throw new IOException("corrupt GZIP trailer: size mismatch");
+    }
+}
@@ -4,8 +4,12 @@ import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
 import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
 
 import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 
 /**
  * InputStream包装类
@@ -16,13 +20,103 @@ import java.io.InputStream;
 public class InputStreamWrapper {
 
     private InputStream inputStream;
-    private IOBufferPool pool;
-    private IOBuffer head;
-    private long size;
+    IOBufferPool pool;
+    IOBuffer head;
+    long size;
+    private SegmentDecoder decoder;
+
+    // 连续读满多少次缓冲区后加大缓冲区
+    private static final int ADAPT_THRESHOLD = 4;
+
+    // 自适应调整时缓冲区的最大大小
+    private int maxSegmentSize;
+
+    // 连续读满缓冲区的次数
+    private int sequentialReadCount;
+
+    // 缓冲区目录：按顺序记录缓冲区链中的缓冲区，按坐标二分查找所在的缓冲区
+    private IOBuffer[] directoryBuffers = new IOBuffer[8];
+
+    // 目录中每个缓冲区第一个可读字节相对于目录起点的偏移
+    private long[] directoryOffsets = new long[8];
+
+    // 目录中的缓冲区个数（0表示缓冲区链头部变化过，需要重建）
+    private int directoryCount;
+
+    // 构建目录时head.pos
+    private int directoryHeadPos;
+
+    // mark后已读完的缓冲区链（pos已恢复到读取前的位置）
+    private IOBuffer markedHead;
+
+    // markedHead中的数据个数
+    private long markedCount;
+
+    // mark后最多保留的数据个数，-1表示没有mark
+    private long markLimit = -1;
+
+    // 当前head开始读取时的pos，reset时恢复
+    private int headStartPos;
+
+    // 缓冲数据的内存上限，超过后新读入的缓冲区移动到临时文件
+    private long memoryLimit = Long.MAX_VALUE;
+
+    // 溢出的临时文件（第一次溢出时创建）
+    private SpillFile spillFile;
+
+    // 查找过程中正在扫描的缓冲区（读入新数据时不能被移动到临时文件）
+    private IOBuffer scanBuffer;
 
     public InputStreamWrapper(InputStream inputStream) {
+        this(inputStream, IOBufferPool.getInstance());
+    }
+
+    /**
+     * @param inputStream InputStream
+     * @param segmentSize 缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     */
+    public InputStreamWrapper(InputStream inputStream, int segmentSize) {
+        this(inputStream, IOBufferPool.getInstance(segmentSize));
+    }
+
+    protected InputStreamWrapper(InputStream inputStream, IOBufferPool pool) {
         this.inputStream = inputStream;
-        this.pool = new IOBufferPool();
+        this.pool = pool;
+    }
+
+    /**
+     * 自适应缓冲区大小：连续多次一次读满整个缓冲区时（顺序读取大文件），缓冲区大小加大一级，直到maxSegmentSize，
+     * 减少系统调用次数和缓冲区个数
+     *
+     * @param maxSegmentSize 缓冲区的最大大小（不是2的幂时停在它之下的最大一级；不大于当前缓冲区大小时不调整）
+     * @return InputStreamWrapper
+     */
+    public InputStreamWrapper setAdaptiveSegmentSize(int maxSegmentSize) {
+        if (maxSegmentSize < 1 || maxSegmentSize > IOBuffer.MAX_BUFFER_SIZE)
+            throw new IllegalArgumentException("maxSegmentSize: " + maxSegmentSize);
+        this.maxSegmentSize = maxSegmentSize;
+        return this;
+    }
+
+    /**
+     * 有界内存模式：缓冲的数据超过memoryLimit后，新读满的缓冲区复制到临时文件并以映射区域替换，
+     * 读取方式不变（indexOf、readBytes等照常使用），堆内缓冲的数据不超过memoryLimit加一两个缓冲区。
+     * 临时文件在close()时删除，关闭后不能再访问移动到其他包装类的映射区域
+     *
+     * @param memoryLimit 缓冲数据的内存上限
+     * @return InputStreamWrapper
+     */
+    public InputStreamWrapper setMemoryLimit(long memoryLimit) {
+        if (memoryLimit < 0) throw new IllegalArgumentException("memoryLimit < 0: " + memoryLimit);
+        this.memoryLimit = memoryLimit;
+        return this;
+    }
+
+    /**
+     * @return 当前缓冲区大小
+     */
+    public int getSegmentSize() {
+        return pool.getSegmentSize();
     }
 
     /**
@@ -36,7 +130,7 @@ public class InputStreamWrapper {
 
         IOBuffer buffer = head;
 
-        byte result = buffer.data[buffer.pos++];
+        byte result = buffer.get(buffer.pos++);
         size -= 1;
 
         recycleBufferIfNecessary(buffer);
@@ -69,7 +163,8 @@ public class InputStreamWrapper {
             return (short) (((readByte() & 0xff) << 8) | ((readByte() & 0xff)));
         }
 
-        short result = (short) (((buffer.data[buffer.pos++] & 0xff) << 8) | (buffer.data[buffer.pos++] & 0xff));
+        short result = buffer.getShort(buffer.pos);
+        buffer.pos += 2;
         size -= 2;
 
         recycleBufferIfNecessary(buffer);
@@ -105,10 +200,8 @@ public class InputStreamWrapper {
                     | (readByte() & 0xff);
         }
 
-        int result = ((buffer.data[buffer.pos++] & 0xff) << 24)
-                | ((buffer.data[buffer.pos++] & 0xff) << 16)
-                | ((buffer.data[buffer.pos++] & 0xff) << 8)
-                | (buffer.data[buffer.pos++] & 0xff);
+        int result = buffer.getInt(buffer.pos);
+        buffer.pos += 4;
         size -= 4;
 
         recycleBufferIfNecessary(buffer);
@@ -141,15 +234,8 @@ public class InputStreamWrapper {
             return ((readInt() & 0xffffffffL) << 32) | (readInt() & 0xffffffffL);
         }
 
-        long result = ((buffer.data[buffer.pos++] & 0xffL) << 56)
-                | ((buffer.data[buffer.pos++] & 0xffL) << 48)
-                | ((buffer.data[buffer.pos++] & 0xffL) << 40)
-                | ((buffer.data[buffer.pos++] & 0xffL) << 32)
-                | ((buffer.data[buffer.pos++] & 0xffL) << 24)
-                | ((buffer.data[buffer.pos++] & 0xffL) << 16)
-                | ((buffer.data[buffer.pos++] & 0xffL) << 8)
-                | (buffer.data[buffer.pos++] & 0xffL);
-
+        long result = buffer.getLong(buffer.pos);
+        buffer.pos += 8;
         size -= 8;
 
         recycleBufferIfNecessary(buffer);
@@ -157,6 +243,253 @@ public class InputStreamWrapper {
         return result;
     }
 
+    /**
+     * 批量读int (大端)
+     *
+     * @param dst 目标数组
+     * @throws IOException IO异常
+     */
+    public void readInts(int[] dst) throws IOException {
+        readInts(dst, 0, dst.length, false);
+    }
+
+    /**
+     * 批量读int (大端)
+     *
+     * @param dst 目标数组
+     * @param off 目标数组起始下标
+     * @param len 读取个数
+     * @throws IOException IO异常
+     */
+    public void readInts(int[] dst, int off, int len) throws IOException {
+        readInts(dst, off, len, false);
+    }
+
+    /**
+     * 批量读int (小端)
+     *
+     * @param dst 目标数组
+     * @throws IOException IO异常
+     */
+    public void readIntsLE(int[] dst) throws IOException {
+        readInts(dst, 0, dst.length, true);
+    }
+
+    /**
+     * 批量读int (小端)
+     *
+     * @param dst 目标数组
+     * @param off 目标数组起始下标
+     * @param len 读取个数
+     * @throws IOException IO异常
+     */
+    public void readIntsLE(int[] dst, int off, int len) throws IOException {
+        readInts(dst, off, len, true);
+    }
+
+    private void readInts(int[] dst, int off, int len, boolean littleEndian) throws IOException {
+        if (off < 0 || len < 0 || off + len > dst.length)
+            throw new IndexOutOfBoundsException("off=" + off + " len=" + len + " length=" + dst.length);
+
+        require((long) len * 4);
+
+        while (len > 0) {
+            IOBuffer buffer = head;
+            int count = Math.min(len, (buffer.limit - buffer.pos) / 4);
+            if (count == 0) {
+                // 跨越两个缓冲区
+                dst[off++] = littleEndian ? readIntLE() : readInt();
+                len--;
+                continue;
+            }
+            buffer.getInts(buffer.pos, dst, off, count, littleEndian);
+            buffer.pos += count * 4;
+            size -= count * 4;
+            off += count;
+            len -= count;
+            recycleBufferIfNecessary(buffer);
+        }
+    }
+
+    /**
+     * 批量读long (大端)
+     *
+     * @param dst 目标数组
+     * @throws IOException IO异常
+     */
+    public void readLongs(long[] dst) throws IOException {
+        readLongs(dst, 0, dst.length, false);
+    }
+
+    /**
+     * 批量读long (大端)
+     *
+     * @param dst 目标数组
+     * @param off 目标数组起始下标
+     * @param len 读取个数
+     * @throws IOException IO异常
+     */
+    public void readLongs(long[] dst, int off, int len) throws IOException {
+        readLongs(dst, off, len, false);
+    }
+
+    /**
+     * 批量读long (小端)
+     *
+     * @param dst 目标数组
+     * @throws IOException IO异常
+     */
+    public void readLongsLE(long[] dst) throws IOException {
+        readLongs(dst, 0, dst.length, true);
+    }
+
+    /**
+     * 批量读long (小端)
+     *
+     * @param dst 目标数组
+     * @param off 目标数组起始下标
+     * @param len 读取个数
+     * @throws IOException IO异常
+     */
+    public void readLongsLE(long[] dst, int off, int len) throws IOException {
+        readLongs(dst, off, len, true);
+    }
+
+    private void readLongs(long[] dst, int off, int len, boolean littleEndian) throws IOException {
+        if (off < 0 || len < 0 || off + len > dst.length)
+            throw new IndexOutOfBoundsException("off=" + off + " len=" + len + " length=" + dst.length);
+
+        require((long) len * 8);
+
+        while (len > 0) {
+            IOBuffer buffer = head;
+            int count = Math.min(len, (buffer.limit - buffer.pos) / 8);
+            if (count == 0) {
+                // 跨越两个缓冲区
+                dst[off++] = littleEndian ? readLongLE() : readLong();
+                len--;
+                continue;
+            }
+            buffer.getLongs(buffer.pos, dst, off, count, littleEndian);
+            buffer.pos += count * 8;
+            size -= count * 8;
+            off += count;
+            len -= count;
+            recycleBufferIfNecessary(buffer);
+        }
+    }
+
+    /**
+     * 读变长int（LEB128，按无符号处理，1~5个字节）
+     *
+     * @return int
+     * @throws IOException IO异常，数据不是合法的变长int时也抛出
+     */
+    public int readVarInt() throws IOException {
+        require(1);
+
+        IOBuffer buffer = head;
+        int pos = buffer.pos;
+        int limit = buffer.limit;
+        // 缓冲区的最后一个字节不是延续字节时，变长int一定在当前缓冲区内结束
+        if (limit - pos >= 5 || buffer.get(limit - 1) >= 0) {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = buffer.get(pos++);
+                result |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    size -= pos - buffer.pos;
+                    buffer.pos = pos;
+                    recycleBufferIfNecessary(buffer);
+                    return result;
+                }
+            }
+            throw new IOException("malformed varint");
+        }
+
+        // 跨越缓冲区，逐个字节读取
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            result |= (b & 0x7f) << shift;
+            if (b >= 0) return result;
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * 读变长long（LEB128，按无符号处理，1~10个字节）
+     *
+     * @return long
+     * @throws IOException IO异常，数据不是合法的变长long时也抛出
+     */
+    public long readVarLong() throws IOException {
+        require(1);
+
+        IOBuffer buffer = head;
+        int pos = buffer.pos;
+        int limit = buffer.limit;
+        // 缓冲区的最后一个字节不是延续字节时，变长long一定在当前缓冲区内结束
+        if (limit - pos >= 10 || buffer.get(limit - 1) >= 0) {
+            long result = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                byte b = buffer.get(pos++);
+                result |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    size -= pos - buffer.pos;
+                    buffer.pos = pos;
+                    recycleBufferIfNecessary(buffer);
+                    return result;
+                }
+            }
+            throw new IOException("malformed varlong");
+        }
+
+        // 跨越缓冲区，逐个字节读取
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = readByte();
+            result |= (long) (b & 0x7f) << shift;
+            if (b >= 0) return result;
+        }
+        throw new IOException("malformed varlong");
+    }
+
+    /**
+     * 读有符号变长int（ZigZag编码）
+     *
+     * @return int
+     * @throws IOException IO异常
+     */
+    public int readSignedVarInt() throws IOException {
+        int content = readVarInt();
+        return (content >>> 1) ^ -(content & 1);
+    }
+
+    /**
+     * 读有符号变长long（ZigZag编码）
+     *
+     * @return long
+     * @throws IOException IO异常
+     */
+    public long readSignedVarLong() throws IOException {
+        long content = readVarLong();
+        return (content >>> 1) ^ -(content & 1);
+    }
+
+    /**
+     * 读带长度前缀的UTF8字符串（OutputStreamWrapper.writeUTF8WithLength写入的格式）
+     *
+     * @return 字符串
+     * @throws IOException IO异常
+     */
+    public String readUTF8WithLength() throws IOException {
+        long length = readVarLong();
+        if (length < 0 || length > Integer.MAX_VALUE)
+            throw new IOException("malformed length: " + length);
+        return length == 0 ? "" : readString(length, "UTF-8");
+    }
+
     /**
      * 读一堆字节
      *
@@ -177,7 +510,7 @@ public class InputStreamWrapper {
         byte[] result = new byte[(int) readCount];
         while (offset < readCount) {
             int maxCanReadCount = (int) Math.min(readCount - offset, head.limit - head.pos);
-            System.arraycopy(head.data, head.pos, result, offset, maxCanReadCount);
+            head.get(head.pos, result, offset, maxCanReadCount);
             offset += maxCanReadCount;
             head.pos += maxCanReadCount;
             size -= maxCanReadCount;
@@ -186,6 +519,59 @@ public class InputStreamWrapper {
         return result;
     }
 
+    /**
+     * 读取不可变的字节串
+     * <p>
+     * 占缓冲区一半以上的数据直接被字节串引用，这些缓冲区被标记为共享，之后不会再被写入或回收；
+     * 数据较少、只占缓冲区一小部分或者在堆外缓冲区时复制，缓冲区照常回收（已经共享的缓冲区继续共享）
+     *
+     * @param readCount 读取字节个数
+     * @return 字节串
+     * @throws IOException IO异常
+     */
+    public ByteString readByteString(long readCount) throws IOException {
+        if (readCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("readCount > Integer.MAX_VALUE: " + readCount);
+        } else if (readCount < 0) {
+            throw new IllegalArgumentException("readCount < 0: " + readCount);
+        } else if (readCount == 0) {
+            return ByteString.EMPTY;
+        } else if (readCount < ByteString.SHARE_MINIMUM) {
+            return new ByteString(new byte[][]{readBytes(readCount)}, new int[]{(int) readCount, 0});
+        }
+
+        require(readCount);
+
+        int segmentCount = 0;
+        long offset = 0;
+        for (IOBuffer buffer = head; offset < readCount; buffer = buffer.next) {
+            offset += buffer.limit - buffer.pos;
+            segmentCount++;
+        }
+
+        byte[][] segments = new byte[segmentCount][];
+        int[] directory = new int[segmentCount * 2];
+        offset = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            int count = (int) Math.min(readCount - offset, head.limit - head.pos);
+            if (head.isDirect() || !(head.shared || ByteString.shouldShare(count, head.capacity()))) {
+                // 堆外缓冲区和只用到一小部分的缓冲区复制出来，缓冲区仍然可以回收
+                segments[i] = new byte[count];
+                head.get(head.pos, segments[i], 0, count);
+            } else {
+                segments[i] = head.data;
+                directory[segmentCount + i] = head.pos;
+                head.shared = true;
+            }
+            offset += count;
+            directory[i] = (int) offset;
+            head.pos += count;
+            size -= count;
+            recycleBufferIfNecessary(head);
+        }
+        return new ByteString(segments, directory);
+    }
+
     /**
      * 读一行字符串（UTF8编码）
      *
@@ -220,6 +606,41 @@ public class InputStreamWrapper {
         }
     }
 
+    /**
+     * 逐行读取，每一行以ByteLine视图的形式交给visitor，不复制数据也不创建字符串，需要时再由visitor调用toString解码
+     *
+     * @param visitor 行回调
+     * @return 是否读完了所有行（visitor返回false时提前结束，剩余数据留在缓冲区中）
+     * @throws IOException IO异常
+     */
+    public boolean forEachLine(LineVisitor visitor) throws IOException {
+        ByteLine line = new ByteLine();
+        while (true) {
+            long newLine = indexOf((byte) '\n');
+            if (newLine == -1) {
+                if (size == 0) return true;
+                long lastLineCount = size;
+                line.set(head, head.pos, checkLineLength(lastLineCount));
+                boolean goOn = visitor.visitLine(line);
+                skip(lastLineCount);
+                return goOn;
+            }
+
+            long lineLength = newLine > 0 && valueOf(newLine - 1) == '\r' ? newLine - 1 : newLine;
+            line.set(head, head.pos, checkLineLength(lineLength));
+            boolean goOn = visitor.visitLine(line);
+            skip(newLine + 1);
+            if (!goOn) return false;
+        }
+    }
+
+    private static int checkLineLength(long lineLength) {
+        if (lineLength > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("lineLength > Integer.MAX_VALUE: " + lineLength);
+        }
+        return (int) lineLength;
+    }
+
     /**
      * 读字符串
      *
@@ -239,8 +660,17 @@ public class InputStreamWrapper {
 
         IOBuffer buffer = head;
 
-        if (buffer.limit - buffer.pos < readCount) {
-            return new String(readBytes(readCount), charsetName);
+        if (buffer.isDirect() || buffer.limit - buffer.pos < readCount) {
+            // 跨缓冲区时逐个缓冲区解码，不先复制到临时数组
+            StringBuilder builder = new StringBuilder((int) readCount);
+            SegmentDecoder decoder = decoder(charsetName);
+            try {
+                decode(readCount, decoder, builder);
+                decoder.finish(builder);
+            } finally {
+                decoder.reset();
+            }
+            return builder.toString();
         }
 
         String result = new String(buffer.data, buffer.pos, (int) readCount, charsetName);
@@ -268,8 +698,225 @@ public class InputStreamWrapper {
      * @throws IOException IO异常
      */
     public String readAll(String charsetName) throws IOException {
-        requireAll();
-        return readString(size, charsetName);
+        StringBuilder builder = new StringBuilder();
+        readAll(builder, charsetName);
+        return builder.toString();
+    }
+
+    /**
+     * 读取所有数据（UTF8编码），边读边解码输出到out
+     *
+     * @param out 输出
+     * @return 读取的字节数
+     * @throws IOException IO异常
+     */
+    public long readAllUTF8(Appendable out) throws IOException {
+        return readAll(out, "UTF-8");
+    }
+
+    /**
+     * 读取所有数据，写入sink（整段移动缓冲区，不需要把所有数据读入缓冲区）
+     *
+     * @param sink OutputStreamWrapper
+     * @return 读取的字节数
+     * @throws IOException IO异常
+     */
+    public long readAll(OutputStreamWrapper sink) throws IOException {
+        return sink.writeAll(this);
+    }
+
+    /**
+     * 读取所有数据，边读边解码输出到out（不需要把所有数据读入缓冲区）
+     *
+     * @param out         输出
+     * @param charsetName 字符串编码
+     * @return 读取的字节数
+     * @throws IOException IO异常
+     */
+    public long readAll(Appendable out, String charsetName) throws IOException {
+        SegmentDecoder decoder = decoder(charsetName);
+        long totalCount = 0;
+        try {
+            while (size > 0 || read(pool.getSegmentSize()) != -1) {
+                long readCount = size;
+                decode(readCount, decoder, out);
+                totalCount += readCount;
+            }
+            decoder.finish(out);
+        } finally {
+            // 读取或者输出失败时丢弃截断的字节，复用的解码器不会把它们带到下一次解码
+            decoder.reset();
+        }
+        return totalCount;
+    }
+
+    /**
+     * 解码缓冲区中的数据（逐个缓冲区解码，解码完的缓冲区立即回收）
+     *
+     * @param byteCount 字节个数，不能大于已缓冲的字节数
+     * @param decoder   解码器
+     * @param out       输出
+     * @throws IOException IO异常
+     */
+    private void decode(long byteCount, SegmentDecoder decoder, Appendable out) throws IOException {
+        while (byteCount > 0) {
+            IOBuffer buffer = head;
+            int decodeCount = (int) Math.min(byteCount, buffer.limit - buffer.pos);
+            decoder.decode(buffer, buffer.pos, decodeCount, out);
+            buffer.pos += decodeCount;
+            size -= decodeCount;
+            byteCount -= decodeCount;
+            recycleBufferIfNecessary(buffer);
+        }
+    }
+
+    /**
+     * @param charsetName 字符编码
+     * @return 解码器（编码相同时复用）
+     * @throws IOException 不支持的编码
+     */
+    private SegmentDecoder decoder(String charsetName) throws IOException {
+        if (decoder == null || !decoder.charsetName().equals(charsetName)) {
+            decoder = new SegmentDecoder(charsetName);
+        }
+        return decoder;
+    }
+
+    /**
+     * 将数据传输到OutputStreamWrapper（整段移动缓冲区，不复制数据；两端都是文件时使用FileChannel.transferTo）
+     *
+     * @param sink      OutputStreamWrapper
+     * @param byteCount 传输字节数
+     * @return 传输字节数
+     * @throws IOException IO异常
+     */
+    public long transferTo(OutputStreamWrapper sink, long byteCount) throws IOException {
+        if (byteCount < 0) throw new IllegalArgumentException("byteCount < 0: " + byteCount);
+
+        long remainingCount = byteCount;
+
+        // 先移动已缓冲的数据
+        long bufferedCount = Math.min(remainingCount, size);
+        if (bufferedCount > 0) {
+            sink.moveFrom(this, bufferedCount);
+            remainingCount -= bufferedCount;
+        }
+        if (remainingCount == 0) return byteCount;
+
+        // 之后的数据不经过缓冲区链，不能再回退
+        unmark();
+        FileChannel fileChannel = fileChannel();
+        WritableByteChannel target = fileChannel != null ? sink.channel() : null;
+        if (target != null) {
+            sink.flush();
+            while (remainingCount > 0) {
+                long position = channelPosition();
+                long end = channelEnd();
+                if (position >= end) throw new EOFException();
+                long transferCount = fileChannel.transferTo(position, Math.min(remainingCount, end - position), target);
+                // 没有传输任何数据（例如目标暂时不可写）时改用缓冲区传输，避免空转
+                if (transferCount == 0) break;
+                if (IOMetrics.enabled) IOMetrics.recordWrite(transferCount);
+                channelPosition(position + transferCount);
+                remainingCount -= transferCount;
+            }
+            if (remainingCount == 0) return byteCount;
+        }
+
+        while (remainingCount > 0) {
+            if (read(pool.getSegmentSize()) == -1) throw new EOFException();
+            long moveCount = Math.min(remainingCount, size);
+            sink.moveFrom(this, moveCount);
+            remainingCount -= moveCount;
+        }
+        return byteCount;
+    }
+
+    /**
+     * 标记当前位置，之后读完的缓冲区暂时保留，reset()时重新接回缓冲区链头部，不需要重新读取
+     * <p>
+     * 保留的数据超过readLimit个后标记失效；transferTo()、seek()和close()也会使标记失效
+     *
+     * @param readLimit mark后最多保留的数据个数
+     */
+    public void mark(long readLimit) {
+        if (readLimit < 0) throw new IllegalArgumentException("readLimit < 0: " + readLimit);
+        unmark();
+        markLimit = readLimit;
+        headStartPos = head != null ? head.pos : 0;
+    }
+
+    /**
+     * 回退到mark的位置（标记仍然有效，可以再次reset）
+     *
+     * @throws IOException 没有mark或者标记已经失效
+     */
+    public void reset() throws IOException {
+        if (markLimit < 0) throw new IOException("mark invalid");
+
+        long resetCount = markedCount;
+        if (head != null) {
+            resetCount += head.pos - headStartPos;
+            head.pos = headStartPos;
+        }
+        if (markedHead != null) {
+            if (head != null) {
+                // 两个环形链首尾相接
+                IOBuffer markedTail = markedHead.previous;
+                IOBuffer tail = head.previous;
+                markedTail.next = head;
+                head.previous = markedTail;
+                tail.next = markedHead;
+                markedHead.previous = tail;
+            }
+            head = markedHead;
+            markedHead = null;
+            markedCount = 0;
+        }
+        size += resetCount;
+        directoryCount = 0;
+        headStartPos = head != null ? head.pos : 0;
+    }
+
+    /**
+     * 取消mark，保留的缓冲区归还缓冲池
+     */
+    public void unmark() {
+        markLimit = -1;
+        while (markedHead != null) {
+            IOBuffer buffer = markedHead;
+            markedHead = buffer.pop();
+            release(buffer);
+        }
+        markedCount = 0;
+    }
+
+    /**
+     * 丢弃已缓冲的数据，将文件读取位置移动到position（需要底层是FileChannel），可以直接读取文件尾部的目录（zip/jar/aar）
+     *
+     * @param position 文件中的位置
+     * @throws IOException IO异常
+     */
+    public void seek(long position) throws IOException {
+        if (position < 0) throw new IllegalArgumentException("position < 0: " + position);
+        FileChannel fileChannel = fileChannel();
+        if (fileChannel == null) throw new UnsupportedOperationException("seek requires a FileChannel");
+
+        recycleAll();
+        sequentialReadCount = 0;
+        fileChannel.position(position);
+    }
+
+    /**
+     * 获取下一个要读取的字节在文件中的位置（需要底层是FileChannel）
+     *
+     * @return 文件中的位置
+     * @throws IOException IO异常
+     */
+    public long position() throws IOException {
+        FileChannel fileChannel = fileChannel();
+        if (fileChannel == null) throw new UnsupportedOperationException("position requires a FileChannel");
+        return fileChannel.position() - size;
     }
 
     /**
@@ -296,16 +943,12 @@ public class InputStreamWrapper {
      * @return 内容
      */
     public byte valueOf(long index) {
-        if (index > size)
-            throw new ArrayIndexOutOfBoundsException("index > size: index=" + index + " size=" + size);
+        if (index < 0 || index >= size)
+            throw new ArrayIndexOutOfBoundsException("index: " + index + " size=" + size);
 
-        IOBuffer buffer = head;
-        while (true) {
-            int canReadCount = buffer.limit - buffer.pos;
-            if (index < canReadCount) return buffer.data[buffer.pos + (int) index];
-            index -= canReadCount;
-            buffer = buffer.next;
-        }
+        int segment = findSegment(index);
+        IOBuffer buffer = directoryBuffers[segment];
+        return buffer.get(buffer.pos + (int) (index - segmentOffset(segment)));
     }
 
     /**
@@ -328,68 +971,264 @@ public class InputStreamWrapper {
      * @throws IOException IO异常
      */
     public long indexOf(byte content, long startIndex) throws IOException {
-        long resultIndex;
-        while ((resultIndex = findInBuffer(content, startIndex)) == -1) {
-            startIndex = size;
-            if (read(IOBuffer.BUFFER_SIZE) == -1) return -1;
-        }
-        return resultIndex;
+        return find(content, null, startIndex);
     }
 
     /**
-     * 查找字符在缓冲区的位置
+     * 查找任意一个字符第一次出现的位置（如果缓冲区中查找不到，就继续将输入流读入缓冲区，直到查找到或者无法继续读入缓冲区）
      *
-     * @param content    要查找的字符
+     * @param contents 要查找的字符
+     * @return 查找字符的位置
+     * @throws IOException IO异常
+     */
+    public long indexOfAny(byte... contents) throws IOException {
+        return indexOfAny(contents, 0);
+    }
+
+    /**
+     * 查找任意一个字符第一次出现的位置（如果缓冲区中查找不到，就继续将输入流读入缓冲区，直到查找到或者无法继续读入缓冲区）
+     *
+     * @param contents   要查找的字符
      * @param startIndex 开始坐标
-     * @return 在缓冲区的位置
+     * @return 查找字符的位置
+     * @throws IOException IO异常
      */
-    private long findInBuffer(byte content, long startIndex) {
+    public long indexOfAny(byte[] contents, long startIndex) throws IOException {
+        if (contents.length == 0) throw new IllegalArgumentException("contents.length == 0");
+        return contents.length == 1 ? find(contents[0], null, startIndex) : find((byte) 0, contents, startIndex);
+    }
 
-        if (head == null) return -1L;
+    /**
+     * 查找字节串位置（如果缓冲区中查找不到，就继续将输入流读入缓冲区，直到查找到或者无法继续读入缓冲区）
+     *
+     * @param pattern 要查找的字节串
+     * @return 查找字节串的位置
+     * @throws IOException IO异常
+     */
+    public long indexOf(byte[] pattern) throws IOException {
+        return indexOf(pattern, 0);
+    }
 
-        IOBuffer buffer = head;
-        long offset = 0L;
+    /**
+     * 查找字节串位置（如果缓冲区中查找不到，就继续将输入流读入缓冲区，直到查找到或者无法继续读入缓冲区）
+     *
+     * @param pattern    要查找的字节串
+     * @param startIndex 开始坐标
+     * @return 查找字节串的位置
+     * @throws IOException IO异常
+     */
+    public long indexOf(byte[] pattern, long startIndex) throws IOException {
+        if (pattern.length == 0) throw new IllegalArgumentException("pattern.length == 0");
+        if (startIndex < 0) throw new IllegalArgumentException("startIndex < 0: " + startIndex);
 
-        do {
-            int bufferDataCount = buffer.limit - buffer.pos;
+        while (size <= startIndex) {
+            if (read(pool.getSegmentSize()) == -1) return -1L;
+        }
 
-            if (startIndex >= bufferDataCount) {
-                startIndex -= bufferDataCount;
-            } else {
-                for (long pos = buffer.pos + startIndex, limit = buffer.limit; pos < limit; pos++) {
-                    if (buffer.data[(int) pos] == content) {
-                        return offset + pos - buffer.pos;
-                    }
+        int segment = findSegment(startIndex);
+        IOBuffer buffer = directoryBuffers[segment];
+        long offset = segmentOffset(segment);
+
+        int fromPos = buffer.pos + (int) (startIndex - offset);
+        while (true) {
+            // 先按字查找第一个字节，再比较剩余字节
+            int pos = buffer.indexOf(pattern[0], fromPos, buffer.limit);
+            if (pos != -1) {
+                long index = offset + pos - buffer.pos;
+                while (size < index + pattern.length) {
+                    if (scanRead(buffer) == -1) return -1L;
                 }
-                startIndex = 0;
+                if (rangeEquals(buffer, pos, pattern)) return index;
+                fromPos = pos + 1;
+                continue;
+            }
+
+            fromPos = buffer.limit;
+            if (buffer.next == head) {
+                if (scanRead(buffer) == -1) return -1L;
+                if (buffer.next == head) continue;
             }
-            offset += bufferDataCount;
+
+            offset += buffer.limit - buffer.pos;
             buffer = buffer.next;
-        } while (buffer != head);
+            fromPos = buffer.pos;
+        }
+    }
 
-        return -1L;
+    /**
+     * 同时查找多个字节串，返回最先出现的字节串的位置（如果缓冲区中查找不到，就继续将输入流读入缓冲区，直到查找到或者无法继续读入缓冲区）
+     * <p>
+     * 可以用BytePatterns.patternAt获取匹配到的是哪个字节串
+     *
+     * @param patterns 要查找的字节串
+     * @return 查找字节串的位置
+     * @throws IOException IO异常
+     */
+    public long indexOf(BytePatterns patterns) throws IOException {
+        return indexOf(patterns, 0);
     }
 
     /**
-     * 请求读入缓冲区
+     * 同时查找多个字节串，返回最先出现的字节串的位置（如果缓冲区中查找不到，就继续将输入流读入缓冲区，直到查找到或者无法继续读入缓冲区）
+     * <p>
+     * 可以用BytePatterns.patternAt获取匹配到的是哪个字节串
      *
-     * @param requireCount 请求读入个数
+     * @param patterns   要查找的字节串
+     * @param startIndex 开始坐标
+     * @return 查找字节串的位置
      * @throws IOException IO异常
      */
-    private void require(long requireCount) throws IOException {
-        while (size < requireCount) {
-            if (read(IOBuffer.BUFFER_SIZE) == -1) throw new EOFException();
+    public long indexOf(BytePatterns patterns, long startIndex) throws IOException {
+        if (startIndex < 0) throw new IllegalArgumentException("startIndex < 0: " + startIndex);
+
+        while (size <= startIndex) {
+            if (read(pool.getSegmentSize()) == -1) return -1L;
+        }
+
+        int segment = findSegment(startIndex);
+        IOBuffer buffer = directoryBuffers[segment];
+        long offset = segmentOffset(segment);
+
+        int[] transitions = patterns.transitions;
+        int[] matchLengths = patterns.matchLengths;
+        int state = 0;
+        int fromPos = buffer.pos + (int) (startIndex - offset);
+        while (true) {
+            byte[] data = buffer.data;
+            for (int pos = fromPos, limit = buffer.limit; pos < limit; pos++) {
+                byte content = data != null ? data[pos] : buffer.get(pos);
+                state = transitions[(state << 8) | (content & 0xff)];
+                int matchLength = matchLengths[state];
+                if (matchLength != 0) return offset + pos - buffer.pos + 1 - matchLength;
+            }
+
+            fromPos = buffer.limit;
+            if (buffer.next == head) {
+                if (scanRead(buffer) == -1) return -1L;
+                if (buffer.next == head) continue;
+            }
+
+            offset += buffer.limit - buffer.pos;
+            buffer = buffer.next;
+            fromPos = buffer.pos;
         }
     }
 
     /**
-     * 请求所以数据读入缓冲区
+     * 比较index位置开始的数据是否与字节串相同（数据不够时继续将输入流读入缓冲区）
      *
+     * @param index 位置
+     * @param bytes 字节串
+     * @return 是否相同
      * @throws IOException IO异常
      */
-    private void requireAll() throws IOException {
+    public boolean rangeEquals(long index, byte[] bytes) throws IOException {
+        if (index < 0) throw new IllegalArgumentException("index < 0: " + index);
+
+        while (size < index + bytes.length) {
+            if (read(pool.getSegmentSize()) == -1) return false;
+        }
+        if (bytes.length == 0) return true;
+
+        int segment = findSegment(index);
+        IOBuffer buffer = directoryBuffers[segment];
+        long offset = segmentOffset(segment);
+        return rangeEquals(buffer, buffer.pos + (int) (index - offset), bytes);
+    }
+
+    /**
+     * 比较从缓冲区pos位置开始的数据是否与字节串相同（可以跨缓冲区，调用前需要保证数据足够）
+     *
+     * @param buffer 缓冲区
+     * @param pos    缓冲区中的位置
+     * @param bytes  字节串
+     * @return 是否相同
+     */
+    private boolean rangeEquals(IOBuffer buffer, int pos, byte[] bytes) {
+        for (byte content : bytes) {
+            if (pos == buffer.limit) {
+                buffer = buffer.next;
+                pos = buffer.pos;
+            }
+            if (buffer.get(pos++) != content) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按字（8个字节）查找字符位置，读入新数据后从上次查找结束的缓冲区继续查找
+     *
+     * @param content    要查找的字符（contents为null时使用）
+     * @param contents   要查找的多个字符
+     * @param startIndex 开始坐标
+     * @return 查找字符的位置
+     * @throws IOException IO异常
+     */
+    private long find(byte content, byte[] contents, long startIndex) throws IOException {
+        if (startIndex < 0) throw new IllegalArgumentException("startIndex < 0: " + startIndex);
+
+        while (size <= startIndex) {
+            if (read(pool.getSegmentSize()) == -1) return -1L;
+        }
+
+        // 定位开始坐标所在的缓冲区，offset是该缓冲区第一个可读字节的坐标
+        int segment = findSegment(startIndex);
+        IOBuffer buffer = directoryBuffers[segment];
+        long offset = segmentOffset(segment);
+
+        int fromPos = buffer.pos + (int) (startIndex - offset);
         while (true) {
-            if (read(IOBuffer.BUFFER_SIZE) == -1) break;
+            int pos = contents == null
+                    ? buffer.indexOf(content, fromPos, buffer.limit)
+                    : buffer.indexOfAny(contents, fromPos, buffer.limit);
+            if (pos != -1) return offset + pos - buffer.pos;
+
+            fromPos = buffer.limit;
+            if (buffer.next == head) {
+                if (scanRead(buffer) == -1) return -1L;
+                // 新数据写在了当前缓冲区尾部，继续查找当前缓冲区
+                if (buffer.next == head) continue;
+            }
+
+            offset += buffer.limit - buffer.pos;
+            buffer = buffer.next;
+            fromPos = buffer.pos;
+        }
+    }
+
+    /**
+     * 查找过程中读入缓冲区，正在扫描的缓冲区不会被移动到临时文件（之前和之后的缓冲区移动后仍在原来的位置相连）
+     *
+     * @param buffer 正在扫描的缓冲区
+     * @return 实际读入缓冲区数据个数
+     * @throws IOException IO异常
+     */
+    private long scanRead(IOBuffer buffer) throws IOException {
+        scanBuffer = buffer;
+        try {
+            return read(pool.getSegmentSize());
+        } finally {
+            scanBuffer = null;
+        }
+    }
+
+    /**
+     * 请求读入缓冲区
+     *
+     * @param requireCount 请求读入个数
+     * @throws IOException IO异常
+     */
+    private void require(long requireCount) throws IOException {
+        if (size >= requireCount) return;
+
+        long start = IOMetrics.enabled ? System.nanoTime() : 0;
+        try {
+            while (size < requireCount) {
+                // 请求剩余需要的个数，支持分散读入的包装类可以一次读入多个缓冲区
+                if (read(Math.max(requireCount - size, pool.getSegmentSize())) == -1) throw new EOFException();
+            }
+        } finally {
+            if (start != 0) IOMetrics.READ_BLOCKED_NANOS.add(System.nanoTime() - start);
         }
     }
 
@@ -400,56 +1239,269 @@ public class InputStreamWrapper {
      * @return 实际读入缓冲区数据个数
      * @throws IOException IO异常
      */
-    private long read(long requireCount) throws IOException {
+    protected long read(long requireCount) throws IOException {
         if (requireCount < 0)
             throw new IllegalArgumentException("requireCount < 0: " + requireCount);
         IOBuffer buffer = getBuffer(1);
-        int maxCanReadCount = (int) Math.min(requireCount, IOBuffer.BUFFER_SIZE - buffer.limit);
+        int maxCanReadCount = (int) Math.min(requireCount, buffer.capacity() - buffer.limit);
         int readCount = inputStream.read(buffer.data, buffer.limit, maxCanReadCount);
+        if (IOMetrics.enabled) IOMetrics.recordRead(readCount);
         if (readCount == -1) return -1;
         buffer.limit += readCount;
         size += readCount;
+        adaptSegmentSize(maxCanReadCount, readCount);
+        spillIfNecessary();
         return readCount;
     }
 
+    /**
+     * 缓冲的数据超过内存上限时，把尾部已读满的缓冲区移动到临时文件（head、还能继续读入的尾部缓冲区和查找中正在扫描的缓冲区不移动）
+     *
+     * @throws IOException IO异常
+     */
+    void spillIfNecessary() throws IOException {
+        if (size <= memoryLimit || head == null) return;
+
+        IOBuffer buffer = head.previous;
+        if (!buffer.shared && buffer.limit < buffer.capacity()) buffer = buffer.previous;
+
+        long overCount = size - memoryLimit;
+        while (overCount > 0 && buffer != head && !buffer.shared) {
+            if (buffer == scanBuffer) {
+                buffer = buffer.previous;
+                continue;
+            }
+            if (spillFile == null) spillFile = new SpillFile();
+            IOBuffer previous = buffer.previous;
+            IOBuffer spilled = spillFile.spill(buffer);
+            buffer.pop();
+            previous.push(spilled);
+            pool.recycle(buffer);
+            overCount -= spilled.limit;
+            buffer = previous;
+        }
+        directoryCount = 0;
+    }
+
+    /**
+     * 根据读入情况调整缓冲区大小
+     *
+     * @param maxCanReadCount 本次最多可读入个数
+     * @param readCount       本次实际读入个数
+     */
+    void adaptSegmentSize(int maxCanReadCount, int readCount) {
+        // 大一级超过上限时不再调整（上限不是2的幂时停在上限之下）
+        if (pool.getSegmentSize() * 2 > maxSegmentSize) return;
+        if (readCount < maxCanReadCount || maxCanReadCount < pool.getSegmentSize()) {
+            sequentialReadCount = 0;
+        } else if (++sequentialReadCount >= ADAPT_THRESHOLD) {
+            pool = pool.larger();
+            sequentialReadCount = 0;
+        }
+    }
+
     /**
      * 获取请求读入的缓冲区
      *
      * @param minimumCapacity 最小容量
      * @return 缓冲区
      */
-    private IOBuffer getBuffer(int minimumCapacity) {
-        if (minimumCapacity < 1 || minimumCapacity > IOBuffer.BUFFER_SIZE)
+    IOBuffer getBuffer(int minimumCapacity) {
+        if (minimumCapacity < 1 || minimumCapacity > pool.getSegmentSize())
             throw new IllegalArgumentException();
 
         if (head == null) {
             head = pool.take();
+            headStartPos = head.pos;
             return head.next = head.previous = head;
         }
 
         IOBuffer buffer = head.previous;
-        if (buffer.limit + minimumCapacity > IOBuffer.BUFFER_SIZE) {
+        if (buffer.shared || buffer.limit + minimumCapacity > buffer.capacity()) {
             buffer = buffer.push(pool.take());
         }
         return buffer;
     }
 
+    /**
+     * 将缓冲区添加到缓冲区链尾部
+     *
+     * @param buffer 缓冲区
+     */
+    void appendBuffer(IOBuffer buffer) {
+        if (head == null) {
+            head = buffer.next = buffer.previous = buffer;
+            headStartPos = buffer.pos;
+        } else {
+            head.previous.push(buffer);
+        }
+        size += buffer.limit - buffer.pos;
+    }
+
+    /**
+     * @return 底层的FileChannel（不是文件时为null）
+     */
+    FileChannel fileChannel() {
+        return inputStream instanceof FileInputStream ? ((FileInputStream) inputStream).getChannel() : null;
+    }
+
+    /**
+     * @return 底层FileChannel中下一个要读入缓冲区的位置（fileChannel()不为null时调用）
+     * @throws IOException IO异常
+     */
+    long channelPosition() throws IOException {
+        return fileChannel().position();
+    }
+
+    /**
+     * 移动底层FileChannel中下一个要读入缓冲区的位置（fileChannel()不为null时调用）
+     *
+     * @param position 文件中的位置
+     * @throws IOException IO异常
+     */
+    void channelPosition(long position) throws IOException {
+        fileChannel().position(position);
+    }
+
+    /**
+     * @return 底层FileChannel中读取的结束位置（fileChannel()不为null时调用）
+     * @throws IOException IO异常
+     */
+    long channelEnd() throws IOException {
+        return fileChannel().size();
+    }
+
+    /**
+     * 归还本包装类不再使用的缓冲区（移动到其他包装类的缓冲区不经过这里）
+     *
+     * @param buffer 缓冲区
+     */
+    void release(IOBuffer buffer) {
+        pool.recycle(buffer);
+    }
+
     /**
      * 必要时回收缓冲区
      *
      * @param buffer 缓冲区
      */
-    private void recycleBufferIfNecessary(IOBuffer buffer) {
+    void recycleBufferIfNecessary(IOBuffer buffer) {
         if (buffer.pos == buffer.limit) {
             head = buffer.pop();
-            pool.recycle(buffer);
+            directoryCount = 0;
+            if (markLimit >= 0) {
+                retain(buffer);
+            } else {
+                release(buffer);
+            }
+        }
+    }
+
+    /**
+     * mark后保留读完的缓冲区，超过readLimit时标记失效
+     *
+     * @param buffer 读完的缓冲区
+     */
+    private void retain(IOBuffer buffer) {
+        buffer.pos = headStartPos;
+        markedCount += buffer.limit - buffer.pos;
+        if (markedHead == null) {
+            markedHead = buffer.next = buffer.previous = buffer;
+        } else {
+            markedHead.previous.push(buffer);
         }
+        headStartPos = head != null ? head.pos : 0;
+        if (markedCount > markLimit) unmark();
     }
 
     /**
-     * 关闭inputStream
+     * 从缓冲区链头部取出整个缓冲区（移动到其他包装类，不回收，标记失效）
+     *
+     * @return 缓冲区
+     */
+    IOBuffer popHead() {
+        IOBuffer buffer = head;
+        head = buffer.pop();
+        size -= buffer.limit - buffer.pos;
+        directoryCount = 0;
+        unmark();
+        return buffer;
+    }
+
+    /**
+     * 查找index所在的缓冲区：二分查找缓冲区目录，目录在缓冲区链头部变化后重建，尾部读入新数据后向后扩展
+     *
+     * @param index 坐标（需要小于size）
+     * @return 缓冲区在目录中的下标
+     */
+    private int findSegment(long index) {
+        if (directoryCount == 0) {
+            directoryBuffers[0] = head;
+            directoryOffsets[0] = 0;
+            directoryCount = 1;
+            directoryHeadPos = head.pos;
+        }
+        // 相对于目录起点的偏移
+        long offset = index + head.pos - directoryHeadPos;
+
+        int lastIndex = directoryCount - 1;
+        IOBuffer last = directoryBuffers[lastIndex];
+        long end = directoryOffsets[lastIndex] + last.limit - (lastIndex == 0 ? directoryHeadPos : last.pos);
+        while (offset >= end) {
+            last = last.next;
+            if (directoryCount == directoryBuffers.length) {
+                directoryBuffers = Arrays.copyOf(directoryBuffers, directoryCount * 2);
+                directoryOffsets = Arrays.copyOf(directoryOffsets, directoryCount * 2);
+            }
+            directoryBuffers[directoryCount] = last;
+            directoryOffsets[directoryCount++] = end;
+            end += last.limit - last.pos;
+        }
+
+        int low = 0;
+        int high = directoryCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (directoryOffsets[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param segment 缓冲区在目录中的下标
+     * @return 该缓冲区第一个可读字节的坐标
+     */
+    private long segmentOffset(int segment) {
+        return segment == 0 ? 0 : directoryOffsets[segment] - head.pos + directoryHeadPos;
+    }
+
+    /**
+     * 将剩余缓冲区全部归还缓冲池，标记失效
+     */
+    void recycleAll() {
+        unmark();
+        while (head != null) {
+            IOBuffer buffer = head;
+            head = buffer.pop();
+            release(buffer);
+        }
+        size = 0;
+        directoryCount = 0;
+    }
+
+    /**
+     * 关闭inputStream，将剩余缓冲区归还缓冲池，并删除溢出的临时文件
      */
     public void close() {
+        recycleAll();
         IOUtils.closeIO(inputStream);
+        if (spillFile != null) {
+            spillFile.close();
+            spillFile = null;
+        }
     }
 }
@@ -0,0 +1,163 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 按行拆分文件的Spliterator
+ * <p>
+ * 文件区域按换行符对齐拆分成多块，每块使用自己的MappedInputStreamWrapper（各自的映射区域和解码器）逐行读取，
+ * 并行Stream中每个线程处理不同的块，行扫描可以随CPU核数扩展。块读完或者处理行时抛出异常后解除映射；
+ * 提前结束（findFirst、anyMatch等）时没有读完的块在close()时解除映射，channel由调用方关闭
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class LineSpliterator implements Spliterator<String>, Closeable {
+
+    // 小于这个大小的块不再拆分
+    static final long MIN_SPLIT_SIZE = 1024 * 1024;
+
+    // 查找换行符时每次读入的字节数
+    private static final int SCAN_SIZE = 8 * 1024;
+
+    private final FileChannel channel;
+    private final String charsetName;
+
+    // 块的区域[start, end)，start是一行的开头，end是一行的结尾之后或文件末尾
+    private long start;
+    private final long end;
+
+    // 开始读取后不再拆分，读完后为null
+    private MappedInputStreamWrapper reader;
+
+    // 拆分出的所有Spliterator中还没有关闭的reader
+    private final Set<MappedInputStreamWrapper> openReaders;
+
+    /**
+     * @param channel     FileChannel
+     * @param charsetName 字符编码
+     * @throws IOException IO异常
+     */
+    public LineSpliterator(FileChannel channel, String charsetName) throws IOException {
+        this(channel, charsetName, 0, channel.size(), ConcurrentHashMap.newKeySet());
+    }
+
+    private LineSpliterator(FileChannel channel, String charsetName, long start, long end,
+                            Set<MappedInputStreamWrapper> openReaders) {
+        this.channel = channel;
+        this.charsetName = charsetName;
+        this.start = start;
+        this.end = end;
+        this.openReaders = openReaders;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super String> action) {
+        if (reader == null) {
+            if (start >= end) return false;
+            reader = new MappedInputStreamWrapper(channel, start, end);
+            openReaders.add(reader);
+            start = end;
+        }
+
+        String line;
+        try {
+            line = reader.readLine(charsetName);
+        } catch (IOException e) {
+            closeReader();
+            throw new UncheckedIOException(e);
+        }
+        if (line == null) {
+            closeReader();
+            return false;
+        }
+        try {
+            action.accept(line);
+        } catch (RuntimeException | Error e) {
+            closeReader();
+            throw e;
+        }
+        return true;
+    }
+
+    private void closeReader() {
+        openReaders.remove(reader);
+        reader.close();
+        reader = null;
+    }
+
+    /**
+     * 关闭这个Spliterator和拆分出的所有Spliterator中还没有读完的块（Stream执行结束后调用，不能与读取同时进行）
+     */
+    @Override
+    public void close() {
+        for (MappedInputStreamWrapper openReader : openReaders) {
+            openReader.close();
+        }
+        openReaders.clear();
+    }
+
+    /**
+     * 从中间位置之后的第一个换行符处拆分，前一半交给新的Spliterator
+     *
+     * @return 前一半，块太小、已经开始读取或后一半没有换行符时返回null
+     */
+    @Override
+    public Spliterator<String> trySplit() {
+        if (reader != null || end - start < MIN_SPLIT_SIZE * 2) return null;
+
+        long splitPosition;
+        try {
+            splitPosition = nextLineStart(start + (end - start) / 2);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (splitPosition >= end) return null;
+
+        LineSpliterator prefix = new LineSpliterator(channel, charsetName, start, splitPosition, openReaders);
+        start = splitPosition;
+        return prefix;
+    }
+
+    /**
+     * @param position 开始查找的位置
+     * @return position之后（含）第一个换行符的下一个位置，找不到时返回end
+     * @throws IOException IO异常
+     */
+    private long nextLineStart(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int) Math.min(SCAN_SIZE, end - position));
+            // 按位置读取，不改变channel的position，多个线程可以同时读取
+            int readCount = channel.read(buffer, position);
+            if (readCount <= 0) return end;
+            for (int i = 0; i < readCount; i++) {
+                if (buffer.get(i) == '\n') return position + i + 1;
+            }
+            position += readCount;
+        }
+        return end;
+    }
+
+    /**
+     * @return 剩余字节数（行数的上限），开始读取后是块中还没有读取的字节数，而不是reader当前缓冲的字节数
+     */
+    @Override
+    public long estimateSize() {
+        return reader == null ? end - start : end - reader.position();
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+}
@@ -0,0 +1,21 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import java.io.IOException;
+
+/**
+ * 行回调（InputStreamWrapper.forEachLine）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public interface LineVisitor {
+
+    /**
+     * 读到一行
+     *
+     * @param line 一行数据（不含换行符），只在本次回调中有效，需要保留时调用toString
+     * @return 是否继续读下一行
+     * @throws IOException IO异常
+     */
+    boolean visitLine(ByteLine line) throws IOException;
+}
@@ -0,0 +1,155 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * 文件映射包装类
+ * <p>
+ * 使用FileChannel.map将文件分段映射到内存，每段映射区域直接作为一个共享的缓冲区，读取时没有系统调用也没有堆内复制。
+ * 适合读取大文件，一段读完或者seek丢弃后立即解除映射，关闭时解除剩余的映射。映射区域不会移动到其他包装类
+ * （OutputStreamWrapper.moveFrom复制映射区域），关闭后其他包装类仍然可以安全地写出传输过去的数据
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class MappedInputStreamWrapper extends InputStreamWrapper {
+
+    // 每次映射的最大字节数
+    public static final long MAP_SIZE = 256 * 1024 * 1024;
+
+    private FileChannel channel;
+    private long position;
+    // 读取的结束位置（读取整个文件时是文件大小）
+    private long fileSize;
+    // 还没有解除映射的区域（按缓冲区查找）
+    private Map<IOBuffer, MappedByteBuffer> mappedBuffers = new IdentityHashMap<>();
+    // 关闭时是否关闭channel
+    private boolean closeChannel = true;
+
+    public MappedInputStreamWrapper(File file) throws IOException {
+        super(null, IOBufferPool.getDirectInstance());
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+        this.fileSize = channel.size();
+    }
+
+    /**
+     * 只读取文件中[position, end)的区域，关闭时不关闭channel（多个包装类共享同一个channel）
+     *
+     * @param channel  FileChannel
+     * @param position 开始位置
+     * @param end      结束位置
+     */
+    MappedInputStreamWrapper(FileChannel channel, long position, long end) {
+        super(null, IOBufferPool.getDirectInstance());
+        this.channel = channel;
+        this.position = position;
+        this.fileSize = end;
+        this.closeChannel = false;
+    }
+
+    /**
+     * 映射下一段文件区域到缓冲区
+     *
+     * @param requireCount 请求读入个数（映射时忽略，总是映射MAP_SIZE）
+     * @return 实际映射的数据个数
+     * @throws IOException IO异常
+     */
+    @Override
+    protected long read(long requireCount) throws IOException {
+        if (requireCount < 0)
+            throw new IllegalArgumentException("requireCount < 0: " + requireCount);
+        if (position >= fileSize) return -1;
+
+        long mapCount = Math.min(MAP_SIZE, fileSize - position);
+        MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, position, mapCount);
+        if (IOMetrics.enabled) IOMetrics.recordRead(mapCount);
+        IOBuffer buffer = IOBuffer.shared(mappedBuffer);
+        mappedBuffers.put(buffer, mappedBuffer);
+        appendBuffer(buffer);
+        position += mapCount;
+        return mapCount;
+    }
+
+    /**
+     * 丢弃已缓冲的数据（解除映射），从position开始重新映射
+     *
+     * @param position 文件中的位置
+     */
+    @Override
+    public void seek(long position) {
+        if (position < 0 || position > fileSize)
+            throw new IllegalArgumentException("position: " + position + " fileSize=" + fileSize);
+        recycleAll();
+        this.position = position;
+    }
+
+    /**
+     * @return 下一个要读取的字节在文件中的位置
+     */
+    @Override
+    public long position() {
+        return position - size;
+    }
+
+    /**
+     * @return 映射的FileChannel，两端都是文件时writeAll/transferTo可以使用FileChannel.transferTo
+     */
+    @Override
+    FileChannel fileChannel() {
+        return channel;
+    }
+
+    /**
+     * @return 下一个要映射的位置（channel可能被多个包装类共享，不使用channel自身的position）
+     */
+    @Override
+    long channelPosition() {
+        return position;
+    }
+
+    @Override
+    void channelPosition(long position) {
+        this.position = position;
+    }
+
+    /**
+     * @return 读取的结束位置
+     */
+    @Override
+    long channelEnd() {
+        return fileSize;
+    }
+
+    /**
+     * 读完或丢弃的映射区域立即解除映射
+     *
+     * @param buffer 缓冲区
+     */
+    @Override
+    void release(IOBuffer buffer) {
+        MappedByteBuffer mappedBuffer = mappedBuffers.remove(buffer);
+        if (mappedBuffer != null) IOUtils.unmap(mappedBuffer);
+    }
+
+    /**
+     * 关闭文件并解除映射
+     */
+    @Override
+    public void close() {
+        super.close();
+        if (closeChannel) IOUtils.closeIO(channel);
+        for (MappedByteBuffer mappedBuffer : mappedBuffers.values()) {
+            IOUtils.unmap(mappedBuffer);
+        }
+        mappedBuffers.clear();
+    }
+}
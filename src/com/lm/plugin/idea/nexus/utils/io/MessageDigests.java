@@ -0,0 +1,72 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 同时计算多个摘要（数据只经过一次）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+class MessageDigests {
+
+    private final MessageDigest[] digests;
+
+    /**
+     * @param algorithms 摘要算法（MD5、SHA-1、SHA-256、SHA-512等）
+     */
+    MessageDigests(String... algorithms) {
+        if (algorithms.length == 0) throw new IllegalArgumentException("algorithms is empty");
+        digests = new MessageDigest[algorithms.length];
+        for (int i = 0; i < algorithms.length; i++) {
+            try {
+                digests[i] = MessageDigest.getInstance(algorithms[i]);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException(e);
+            }
+        }
+    }
+
+    /**
+     * 用缓冲区[pos, pos + count)的数据更新全部摘要（直接读取缓冲区，不复制）
+     *
+     * @param buffer 缓冲区
+     * @param pos    开始位置
+     * @param count  字节数
+     */
+    void update(IOBuffer buffer, int pos, int count) {
+        if (count == 0) return;
+        if (!buffer.isDirect()) {
+            for (MessageDigest digest : digests) {
+                digest.update(buffer.data, pos, count);
+            }
+            return;
+        }
+        ByteBuffer view = buffer.direct.duplicate();
+        for (MessageDigest digest : digests) {
+            view.limit(pos + count);
+            view.position(pos);
+            digest.update(view);
+        }
+    }
+
+    /**
+     * @param algorithm 摘要算法
+     * @return 到目前为止全部数据的摘要（不影响后续计算）
+     */
+    ByteString digest(String algorithm) {
+        for (MessageDigest digest : digests) {
+            if (!digest.getAlgorithm().equalsIgnoreCase(algorithm)) continue;
+            try {
+                return ByteString.of(((MessageDigest) digest.clone()).digest());
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("algorithm not requested: " + algorithm);
+    }
+}
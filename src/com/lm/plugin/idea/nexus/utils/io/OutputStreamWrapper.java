@@ -3,8 +3,14 @@ package com.lm.plugin.idea.nexus.utils.io;
 import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
 import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * OutputStream包装类
@@ -15,13 +21,27 @@ import java.io.OutputStream;
 public class OutputStreamWrapper {
 
     private OutputStream outputStream;
-    private IOBufferPool pool;
-    private IOBuffer head;
-    private long size;
+    // 写入堆外缓冲区用的Channel（FileOutputStream的Channel或者包装outputStream，第一次用到时创建）
+    private WritableByteChannel directChannel;
+    IOBufferPool pool;
+    IOBuffer head;
+    long size;
 
     public OutputStreamWrapper(OutputStream outputStream) {
+        this(outputStream, IOBufferPool.getInstance());
+    }
+
+    /**
+     * @param outputStream OutputStream
+     * @param segmentSize  缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     */
+    public OutputStreamWrapper(OutputStream outputStream, int segmentSize) {
+        this(outputStream, IOBufferPool.getInstance(segmentSize));
+    }
+
+    protected OutputStreamWrapper(OutputStream outputStream, IOBufferPool pool) {
         this.outputStream = outputStream;
-        this.pool = new IOBufferPool();
+        this.pool = pool;
     }
 
     /**
@@ -33,7 +53,7 @@ public class OutputStreamWrapper {
      */
     public OutputStreamWrapper writeByte(byte content) throws IOException {
         IOBuffer buffer = getBuffer(1);
-        buffer.data[buffer.limit++] = content;
+        buffer.put(buffer.limit++, content);
         size += 1;
         commit();
         return this;
@@ -59,8 +79,8 @@ public class OutputStreamWrapper {
      */
     public OutputStreamWrapper writeShort(short content) throws IOException {
         IOBuffer buffer = getBuffer(2);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 8) & 0xff);
-        buffer.data[buffer.limit++] = (byte) (content & 0xff);
+        buffer.putShort(buffer.limit, content);
+        buffer.limit += 2;
         size += 2;
         commit();
         return this;
@@ -86,10 +106,8 @@ public class OutputStreamWrapper {
      */
     public OutputStreamWrapper writeInt(int content) throws IOException {
         IOBuffer buffer = getBuffer(4);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 24) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 16) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 8) & 0xff);
-        buffer.data[buffer.limit++] = (byte) (content & 0xff);
+        buffer.putInt(buffer.limit, content);
+        buffer.limit += 4;
         size += 4;
         return this;
     }
@@ -114,18 +132,161 @@ public class OutputStreamWrapper {
      */
     public OutputStreamWrapper writeLong(long content) throws IOException {
         IOBuffer buffer = getBuffer(8);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 56L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 48L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 40L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 32L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 24L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 16L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) ((content >>> 8L) & 0xff);
-        buffer.data[buffer.limit++] = (byte) (content & 0xff);
+        buffer.putLong(buffer.limit, content);
+        buffer.limit += 8;
         size += 8;
         return this;
     }
 
+    /**
+     * 批量写入int（大端）
+     *
+     * @param content int数组
+     * @param off     起始下标
+     * @param len     写入个数
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeInts(int[] content, int off, int len) throws IOException {
+        return writeInts(content, off, len, false);
+    }
+
+    /**
+     * 批量写入int（小端）
+     *
+     * @param content int数组
+     * @param off     起始下标
+     * @param len     写入个数
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeIntsLE(int[] content, int off, int len) throws IOException {
+        return writeInts(content, off, len, true);
+    }
+
+    private OutputStreamWrapper writeInts(int[] content, int off, int len, boolean littleEndian) throws IOException {
+        if (off < 0 || len < 0 || off + len > content.length)
+            throw new IndexOutOfBoundsException("off=" + off + " len=" + len + " length=" + content.length);
+
+        while (len > 0) {
+            IOBuffer buffer = getBuffer(4);
+            int count = Math.min(len, (buffer.capacity() - buffer.limit) / 4);
+            buffer.putInts(buffer.limit, content, off, count, littleEndian);
+            buffer.limit += count * 4;
+            size += count * 4;
+            off += count;
+            len -= count;
+        }
+        commit();
+        return this;
+    }
+
+    /**
+     * 批量写入long（大端）
+     *
+     * @param content long数组
+     * @param off     起始下标
+     * @param len     写入个数
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeLongs(long[] content, int off, int len) throws IOException {
+        return writeLongs(content, off, len, false);
+    }
+
+    /**
+     * 批量写入long（小端）
+     *
+     * @param content long数组
+     * @param off     起始下标
+     * @param len     写入个数
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeLongsLE(long[] content, int off, int len) throws IOException {
+        return writeLongs(content, off, len, true);
+    }
+
+    private OutputStreamWrapper writeLongs(long[] content, int off, int len, boolean littleEndian) throws IOException {
+        if (off < 0 || len < 0 || off + len > content.length)
+            throw new IndexOutOfBoundsException("off=" + off + " len=" + len + " length=" + content.length);
+
+        while (len > 0) {
+            IOBuffer buffer = getBuffer(8);
+            int count = Math.min(len, (buffer.capacity() - buffer.limit) / 8);
+            buffer.putLongs(buffer.limit, content, off, count, littleEndian);
+            buffer.limit += count * 8;
+            size += count * 8;
+            off += count;
+            len -= count;
+        }
+        commit();
+        return this;
+    }
+
+    /**
+     * 写入变长int（LEB128，按无符号处理，1~5个字节）
+     *
+     * @param content int
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeVarInt(int content) throws IOException {
+        return writeVarLong(content & 0xffffffffL);
+    }
+
+    /**
+     * 写入变长long（LEB128，按无符号处理，1~10个字节）
+     *
+     * @param content long
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeVarLong(long content) throws IOException {
+        IOBuffer buffer = head != null ? head.previous : null;
+        if (buffer == null || buffer.shared || buffer.capacity() - buffer.limit < 10) {
+            // 尾部缓冲区可能放不下，逐个字节写入
+            while ((content & ~0x7fL) != 0) {
+                writeByte((byte) ((content & 0x7f) | 0x80));
+                content >>>= 7;
+            }
+            return writeByte((byte) content);
+        }
+
+        int limit = buffer.limit;
+        while ((content & ~0x7fL) != 0) {
+            buffer.put(limit++, (byte) ((content & 0x7f) | 0x80));
+            content >>>= 7;
+        }
+        buffer.put(limit++, (byte) content);
+        size += limit - buffer.limit;
+        buffer.limit = limit;
+        commit();
+        return this;
+    }
+
+    /**
+     * 写入有符号变长int（ZigZag编码后按LEB128写入，绝对值小的负数也很短）
+     *
+     * @param content int
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeSignedVarInt(int content) throws IOException {
+        return writeVarInt((content << 1) ^ (content >> 31));
+    }
+
+    /**
+     * 写入有符号变长long（ZigZag编码后按LEB128写入，绝对值小的负数也很短）
+     *
+     * @param content long
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeSignedVarLong(long content) throws IOException {
+        return writeVarLong((content << 1) ^ (content >> 63));
+    }
+
     /**
      * 写入UTF8字符串
      *
@@ -134,7 +295,131 @@ public class OutputStreamWrapper {
      * @throws IOException IO异常
      */
     public OutputStreamWrapper writeUTF8(String content) throws IOException {
-        return writeString(content, "UTF-8");
+        return writeUTF8(content, 0, content.length());
+    }
+
+    /**
+     * 写入UTF8字符串（直接编码到缓冲区，不产生中间数组）
+     *
+     * @param content UTF8字符串
+     * @param start   开始位置（包含）
+     * @param end     结束位置（不包含）
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeUTF8(CharSequence content, int start, int end) throws IOException {
+        if (start < 0 || end > content.length() || start > end)
+            throw new IndexOutOfBoundsException("start=" + start + " end=" + end + " length=" + content.length());
+
+        int index = start;
+        while (index < end) {
+            char c = content.charAt(index);
+
+            if (c < 0x80) {
+                // ASCII：连续写入当前缓冲区能放下的部分
+                IOBuffer buffer = getBuffer(1);
+                byte[] data = buffer.data;
+                int limit = buffer.limit;
+                int runLimit = Math.min(end, index + buffer.capacity() - limit);
+                if (data != null) {
+                    data[limit++] = (byte) c;
+                    index++;
+                    while (index < runLimit && (c = content.charAt(index)) < 0x80) {
+                        data[limit++] = (byte) c;
+                        index++;
+                    }
+                } else {
+                    buffer.put(limit++, (byte) c);
+                    index++;
+                    while (index < runLimit && (c = content.charAt(index)) < 0x80) {
+                        buffer.put(limit++, (byte) c);
+                        index++;
+                    }
+                }
+                size += limit - buffer.limit;
+                buffer.limit = limit;
+
+            } else if (c < 0x800) {
+                // 2个字节：110xxxxx 10xxxxxx
+                IOBuffer buffer = getBuffer(2);
+                buffer.put(buffer.limit++, (byte) (c >> 6 | 0xc0));
+                buffer.put(buffer.limit++, (byte) (c & 0x3f | 0x80));
+                size += 2;
+                index++;
+
+            } else if (c < 0xd800 || c > 0xdfff) {
+                // 3个字节：1110xxxx 10xxxxxx 10xxxxxx
+                IOBuffer buffer = getBuffer(3);
+                buffer.put(buffer.limit++, (byte) (c >> 12 | 0xe0));
+                buffer.put(buffer.limit++, (byte) (c >> 6 & 0x3f | 0x80));
+                buffer.put(buffer.limit++, (byte) (c & 0x3f | 0x80));
+                size += 3;
+                index++;
+
+            } else {
+                // 代理对，不成对时与String.getBytes一样写入'?'
+                char low = index + 1 < end ? content.charAt(index + 1) : 0;
+                if (c > 0xdbff || low < 0xdc00 || low > 0xdfff) {
+                    IOBuffer buffer = getBuffer(1);
+                    buffer.put(buffer.limit++, (byte) '?');
+                    size += 1;
+                    index++;
+                    continue;
+                }
+
+                // 4个字节：11110xxx 10xxxxxx 10xxxxxx 10xxxxxx
+                int codePoint = 0x010000 + ((c & 0x03ff) << 10 | (low & 0x03ff));
+                IOBuffer buffer = getBuffer(4);
+                buffer.put(buffer.limit++, (byte) (codePoint >> 18 | 0xf0));
+                buffer.put(buffer.limit++, (byte) (codePoint >> 12 & 0x3f | 0x80));
+                buffer.put(buffer.limit++, (byte) (codePoint >> 6 & 0x3f | 0x80));
+                buffer.put(buffer.limit++, (byte) (codePoint & 0x3f | 0x80));
+                size += 4;
+                index += 2;
+            }
+        }
+        commit();
+        return this;
+    }
+
+    /**
+     * 写入带长度前缀的UTF8字符串（先写入变长int的字节数，再写入字符串）
+     *
+     * @param content 字符串
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeUTF8WithLength(String content) throws IOException {
+        writeVarLong(utf8Length(content));
+        return writeUTF8(content);
+    }
+
+    /**
+     * @param content 字符串
+     * @return UTF8编码后的字节数（与writeUTF8一致，不成对的代理字符按'?'计算）
+     */
+    private static long utf8Length(CharSequence content) {
+        long result = 0;
+        int length = content.length();
+        for (int index = 0; index < length; index++) {
+            char c = content.charAt(index);
+            if (c < 0x80) {
+                result += 1;
+            } else if (c < 0x800) {
+                result += 2;
+            } else if (c < 0xd800 || c > 0xdfff) {
+                result += 3;
+            } else {
+                char low = index + 1 < length ? content.charAt(index + 1) : 0;
+                if (c > 0xdbff || low < 0xdc00 || low > 0xdfff) {
+                    result += 1;
+                } else {
+                    result += 4;
+                    index++;
+                }
+            }
+        }
+        return result;
     }
 
     /**
@@ -146,6 +431,9 @@ public class OutputStreamWrapper {
      * @throws IOException IO异常
      */
     public OutputStreamWrapper writeString(String content, String charsetName) throws IOException {
+        if ("UTF-8".equalsIgnoreCase(charsetName) || "UTF8".equalsIgnoreCase(charsetName)) {
+            return writeUTF8(content, 0, content.length());
+        }
         return writeBytes(content.getBytes(charsetName));
     }
 
@@ -173,8 +461,8 @@ public class OutputStreamWrapper {
         int limit = off + len;
         while (off < limit) {
             IOBuffer buffer = getBuffer(1);
-            int maxCanWriteCount = Math.min(limit - off, IOBuffer.BUFFER_SIZE - buffer.limit);
-            System.arraycopy(content, off, buffer.data, buffer.pos, maxCanWriteCount);
+            int maxCanWriteCount = Math.min(limit - off, buffer.capacity() - buffer.limit);
+            buffer.put(buffer.limit, content, off, maxCanWriteCount);
             off += maxCanWriteCount;
             buffer.limit += maxCanWriteCount;
         }
@@ -183,6 +471,46 @@ public class OutputStreamWrapper {
         return this;
     }
 
+    /**
+     * 写入字节串
+     *
+     * @param content 字节串
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    public OutputStreamWrapper writeByteString(ByteString content) throws IOException {
+        int offset = 0;
+        for (int i = 0; i < content.segments.length; i++) {
+            int count = content.directory[i] - offset;
+            writeBytes(content.segments[i], content.directory[content.segments.length + i], count);
+            offset += count;
+        }
+        return this;
+    }
+
+
+    /**
+     * 写入InputStreamWrapper中剩余的全部数据（整段移动缓冲区，不复制数据；两端都是文件时使用FileChannel.transferTo）
+     *
+     * @param source InputStreamWrapper
+     * @return 写入的字节数
+     * @throws IOException IO异常
+     */
+    public long writeAll(InputStreamWrapper source) throws IOException {
+        FileChannel fileChannel = source.fileChannel();
+        if (fileChannel != null && channel() != null) {
+            long remainingCount = source.size + source.channelEnd() - source.channelPosition();
+            return source.transferTo(this, remainingCount);
+        }
+
+        long totalCount = 0;
+        while (source.size > 0 || source.read(source.pool.getSegmentSize()) != -1) {
+            long moveCount = source.size;
+            moveFrom(source, moveCount);
+            totalCount += moveCount;
+        }
+        return totalCount;
+    }
 
     /**
      * 将剩余内容全部提交写入
@@ -193,7 +521,7 @@ public class OutputStreamWrapper {
     public OutputStreamWrapper flush() throws IOException {
         if (size == 0) return this;
 
-        realWrite(size);
+        timedRealWrite(size);
 
         return this;
     }
@@ -203,16 +531,36 @@ public class OutputStreamWrapper {
      *
      * @throws IOException IO异常
      */
-    private void commit() throws IOException {
+    void commit() throws IOException {
         if (size == 0) return;
 
         long needWriteCount = size;
 
-        if (head.previous.limit < IOBuffer.BUFFER_SIZE) {
-            needWriteCount -= head.previous.limit - head.previous.pos;
+        IOBuffer tail = head.previous;
+        if (!tail.shared && tail.limit < tail.capacity()) {
+            needWriteCount -= tail.limit - tail.pos;
         }
 
-        realWrite(needWriteCount);
+        timedRealWrite(needWriteCount);
+    }
+
+    /**
+     * 调用realWrite，开启统计时记录等待时间
+     *
+     * @param needWriteCount 需要写入的数量
+     * @throws IOException IO异常
+     */
+    private void timedRealWrite(long needWriteCount) throws IOException {
+        if (!IOMetrics.enabled) {
+            realWrite(needWriteCount);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            realWrite(needWriteCount);
+        } finally {
+            IOMetrics.WRITE_BLOCKED_NANOS.add(System.nanoTime() - start);
+        }
     }
 
     /**
@@ -221,10 +569,21 @@ public class OutputStreamWrapper {
      * @param needWriteCount 需要写入的数量
      * @throws IOException IO异常
      */
-    private void realWrite(long needWriteCount) throws IOException {
+    protected void realWrite(long needWriteCount) throws IOException {
         while (needWriteCount > 0) {
             int maxCanWriteCount = (int) Math.min(needWriteCount, head.limit - head.pos);
-            outputStream.write(head.data, head.pos, maxCanWriteCount);
+            if (head.isDirect()) {
+                // 堆外缓冲区（从其他包装类移动过来的）整段写入Channel，不逐块复制到堆内
+                ByteBuffer byteBuffer = head.readableByteBuffer();
+                byteBuffer.limit(head.pos + maxCanWriteCount);
+                WritableByteChannel target = directChannel();
+                while (byteBuffer.hasRemaining()) {
+                    target.write(byteBuffer);
+                }
+            } else {
+                outputStream.write(head.data, head.pos, maxCanWriteCount);
+            }
+            if (IOMetrics.enabled) IOMetrics.recordWrite(maxCanWriteCount);
 
             head.pos += maxCanWriteCount;
             needWriteCount -= maxCanWriteCount;
@@ -234,14 +593,91 @@ public class OutputStreamWrapper {
         }
     }
 
+    /**
+     * 从InputStreamWrapper移动已缓冲的数据（整段的缓冲区直接移动到缓冲区链尾部，不足一段或者尾部缓冲区放得下时复制）。
+     * 文件映射区域在源包装类关闭时解除映射，总是复制，不接到这里的缓冲区链
+     *
+     * @param source    InputStreamWrapper
+     * @param byteCount 移动的字节数，不能大于source已缓冲的字节数
+     * @throws IOException IO异常
+     */
+    void moveFrom(InputStreamWrapper source, long byteCount) throws IOException {
+        if (byteCount > source.size)
+            throw new IllegalArgumentException("byteCount > source.size: byteCount=" + byteCount + " size=" + source.size);
+
+        while (byteCount > 0) {
+            IOBuffer buffer = source.head;
+            int bufferCount = buffer.limit - buffer.pos;
+
+            IOBuffer tail = head != null ? head.previous : null;
+            boolean canCopyToTail = tail != null && !tail.shared && bufferCount <= tail.capacity() - tail.limit;
+            boolean mapped = buffer.shared && buffer.isDirect();
+
+            if (bufferCount <= byteCount && !canCopyToTail && !mapped) {
+                appendBuffer(source.popHead());
+                byteCount -= bufferCount;
+            } else {
+                int copyCount = (int) Math.min(byteCount, bufferCount);
+                while (copyCount > 0) {
+                    IOBuffer target = mapped ? getCopyBuffer(copyCount) : getBuffer(1);
+                    int maxCanCopyCount = Math.min(copyCount, target.capacity() - target.limit);
+                    buffer.copyTo(buffer.pos, target, target.limit, maxCanCopyCount);
+                    buffer.pos += maxCanCopyCount;
+                    target.limit += maxCanCopyCount;
+                    source.size -= maxCanCopyCount;
+                    size += maxCanCopyCount;
+                    byteCount -= maxCanCopyCount;
+                    copyCount -= maxCanCopyCount;
+                    // 源缓冲区可能很大（文件映射区域），每写满一个缓冲区就提交，不在内存中积累
+                    if (target.limit == target.capacity()) commit();
+                }
+                source.recycleBufferIfNecessary(buffer);
+            }
+
+            commit();
+        }
+    }
+
+    /**
+     * 将缓冲区添加到缓冲区链尾部
+     *
+     * @param buffer 缓冲区
+     */
+    void appendBuffer(IOBuffer buffer) {
+        if (head == null) {
+            head = buffer.next = buffer.previous = buffer;
+        } else {
+            head.previous.push(buffer);
+        }
+        size += buffer.limit - buffer.pos;
+    }
+
+    /**
+     * @return 底层的Channel（没有时为null）
+     */
+    WritableByteChannel channel() {
+        return outputStream instanceof FileOutputStream ? ((FileOutputStream) outputStream).getChannel() : null;
+    }
+
+    /**
+     * @return 写入堆外缓冲区用的Channel（outputStream是文件时直接使用文件的Channel）
+     */
+    private WritableByteChannel directChannel() {
+        if (directChannel == null) {
+            WritableByteChannel channel = channel();
+            directChannel = channel != null ? channel : Channels.newChannel(outputStream);
+        }
+        return directChannel;
+    }
+
     /**
      * 获取请求输出的缓冲区
      *
      * @param minimumCapacity 最小容量
      * @return 缓冲区
      */
-    private IOBuffer getBuffer(int minimumCapacity) {
-        if (minimumCapacity < 1 || minimumCapacity > IOBuffer.BUFFER_SIZE)
+    IOBuffer getBuffer(int minimumCapacity) {
+        if (minimumCapacity < 1 || minimumCapacity > pool.getSegmentSize())
             throw new IllegalArgumentException();
 
         if (head == null) {
@@ -250,18 +686,39 @@ public class OutputStreamWrapper {
         }
 
         IOBuffer buffer = head.previous;
-        if (buffer.limit + minimumCapacity > IOBuffer.BUFFER_SIZE) {
+        if (buffer.shared || buffer.limit + minimumCapacity > buffer.capacity()) {
             buffer = buffer.push(pool.take());
         }
         return buffer;
     }
 
+    /**
+     * 获取复制大块数据的缓冲区：尾部缓冲区写满后按剩余个数从对应大小的缓冲池取（最大IOBufferPool.MAX_SIZE），
+     * 减少提交次数，缓冲的数据不超过一个这样的缓冲区
+     *
+     * @param copyCount 还要复制的个数
+     * @return 缓冲区
+     */
+    private IOBuffer getCopyBuffer(int copyCount) {
+        IOBuffer tail = head != null ? head.previous : null;
+        if (tail != null && !tail.shared && tail.limit < tail.capacity()) return tail;
+
+        int segmentSize = Math.max(pool.getSegmentSize(), (int) Math.min(copyCount, IOBufferPool.MAX_SIZE));
+        IOBuffer buffer = (pool.isDirect() ? IOBufferPool.getDirectInstance(segmentSize) : IOBufferPool.getInstance(segmentSize)).take();
+        if (tail == null) {
+            head = buffer.next = buffer.previous = buffer;
+        } else {
+            tail.push(buffer);
+        }
+        return buffer;
+    }
+
     /**
      * 必要时回收缓冲区
      *
      * @param buffer 缓冲区
      */
-    private void recycleBufferIfNecessary(IOBuffer buffer) {
+    void recycleBufferIfNecessary(IOBuffer buffer) {
         if (buffer.pos == buffer.limit) {
             head = buffer.pop();
             pool.recycle(buffer);
@@ -269,10 +726,34 @@ public class OutputStreamWrapper {
     }
 
     /**
-     * 关闭outputStream
+     * 将剩余缓冲区全部归还缓冲池
+     */
+    void recycleAll() {
+        while (head != null) {
+            IOBuffer buffer = head;
+            head = buffer.pop();
+            pool.recycle(buffer);
+        }
+        size = 0;
+    }
+
+    /**
+     * 写入剩余数据，关闭outputStream，并将剩余缓冲区归还缓冲池
+     *
+     * @throws UncheckedIOException 写入剩余数据失败（缓冲区仍然归还，outputStream仍然关闭）
      */
     public void close() {
+        IOException error = null;
+        if (size > 0) {
+            try {
+                flush();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        recycleAll();
         IOUtils.closeIO(outputStream);
+        if (error != null) throw new UncheckedIOException(error.getMessage(), error);
     }
 
 }
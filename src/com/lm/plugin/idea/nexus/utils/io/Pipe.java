@@ -0,0 +1,255 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 单生产者单消费者的管道
+ * <p>
+ * sink()在一个线程写入，source()在另一个线程读取。写满的缓冲区整段放入无锁的环形队列，读取端整段取出，不复制数据也没有锁；
+ * 队列满时写入端挂起，队列空时读取端挂起。sink关闭后读取端读完剩余数据返回EOF，source关闭后写入端抛出异常
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class Pipe {
+
+    private final IOBufferPool pool;
+
+    // 环形队列，容量是2的幂
+    private final IOBuffer[] ring;
+    private final int mask;
+
+    // 下一个读取位置（只由读取端修改）
+    private final AtomicLong readIndex = new AtomicLong();
+
+    // 下一个写入位置（只由写入端修改）
+    private final AtomicLong writeIndex = new AtomicLong();
+
+    // 挂起等待的线程
+    private volatile Thread waitingWriter;
+    private volatile Thread waitingReader;
+
+    private volatile boolean sinkClosed;
+    private volatile boolean sourceClosed;
+
+    private final Sink sink;
+    private final Source source;
+
+    /**
+     * @param segmentCount 队列中最多的缓冲区个数（向上取整到2的幂）
+     */
+    public Pipe(int segmentCount) {
+        this(segmentCount, IOBuffer.BUFFER_SIZE);
+    }
+
+    /**
+     * @param segmentCount 队列中最多的缓冲区个数（向上取整到2的幂）
+     * @param segmentSize  缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     */
+    public Pipe(int segmentCount, int segmentSize) {
+        if (segmentCount < 1 || segmentCount > 1 << 30)
+            throw new IllegalArgumentException("segmentCount: " + segmentCount);
+        int capacity = Integer.highestOneBit(segmentCount);
+        if (capacity < segmentCount) capacity <<= 1;
+        this.ring = new IOBuffer[capacity];
+        this.mask = capacity - 1;
+        this.pool = IOBufferPool.getInstance(segmentSize);
+        this.sink = new Sink();
+        this.source = new Source();
+    }
+
+    /**
+     * @return 写入端（只能在一个线程中使用）
+     */
+    public OutputStreamWrapper sink() {
+        return sink;
+    }
+
+    /**
+     * @return 读取端（只能在一个线程中使用）
+     */
+    public InputStreamWrapper source() {
+        return source;
+    }
+
+    /**
+     * 放入队列，队列满时挂起写入线程
+     *
+     * @param buffer 缓冲区
+     * @throws IOException 读取端已关闭，或者等待时被中断
+     */
+    private void offer(IOBuffer buffer) throws IOException {
+        long index = writeIndex.get();
+        while (index - readIndex.get() == ring.length) {
+            if (sourceClosed) break;
+            waitingWriter = Thread.currentThread();
+            // 设置等待线程后再检查一次，避免读取端在检查之后取走缓冲区而没有唤醒
+            if (index - readIndex.get() == ring.length && !sourceClosed) LockSupport.park(this);
+            waitingWriter = null;
+            if (Thread.interrupted()) {
+                pool.recycle(buffer);
+                throw new InterruptedIOException();
+            }
+        }
+        if (sourceClosed) {
+            pool.recycle(buffer);
+            throw new IOException("pipe source closed");
+        }
+
+        ring[(int) index & mask] = buffer;
+        writeIndex.set(index + 1);
+        unpark(waitingReader);
+    }
+
+    /**
+     * 从队列取出缓冲区，队列空时挂起读取线程
+     *
+     * @return 缓冲区，sink已关闭并且队列为空时返回null
+     * @throws IOException 等待时被中断
+     */
+    private IOBuffer take() throws IOException {
+        long index = readIndex.get();
+        while (index == writeIndex.get()) {
+            if (sinkClosed) {
+                // 关闭前放入的缓冲区在sinkClosed之前可见
+                if (index == writeIndex.get()) return null;
+                break;
+            }
+            waitingReader = Thread.currentThread();
+            if (index == writeIndex.get() && !sinkClosed) LockSupport.park(this);
+            waitingReader = null;
+            if (Thread.interrupted()) throw new InterruptedIOException();
+        }
+
+        int slot = (int) index & mask;
+        IOBuffer buffer = ring[slot];
+        ring[slot] = null;
+        readIndex.set(index + 1);
+        unpark(waitingWriter);
+        return buffer;
+    }
+
+    /**
+     * @return 队列中有缓冲区时不需要等待
+     */
+    private boolean available() {
+        return readIndex.get() != writeIndex.get();
+    }
+
+    private static void unpark(Thread thread) {
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    /**
+     * 写入端：整段缓冲区放入队列，只写入一部分或是文件映射区域时复制
+     */
+    private class Sink extends OutputStreamWrapper {
+
+        Sink() {
+            super(null, Pipe.this.pool);
+        }
+
+        @Override
+        protected void realWrite(long needWriteCount) throws IOException {
+            while (needWriteCount > 0) {
+                IOBuffer buffer = head;
+                int bufferCount = buffer.limit - buffer.pos;
+                if (bufferCount > needWriteCount || (buffer.shared && buffer.isDirect())) {
+                    // 只写入一部分，或者是文件映射区域（可能在读取前被解除映射）时复制出来
+                    IOBuffer copy = pool.take();
+                    int copyCount = (int) Math.min(Math.min(needWriteCount, bufferCount), copy.capacity());
+                    buffer.copyTo(buffer.pos, copy, 0, copyCount);
+                    copy.limit = copyCount;
+                    buffer.pos += copyCount;
+                    size -= copyCount;
+                    needWriteCount -= copyCount;
+                    recycleBufferIfNecessary(buffer);
+                    offer(copy);
+                } else {
+                    head = buffer.pop();
+                    size -= bufferCount;
+                    needWriteCount -= bufferCount;
+                    offer(buffer);
+                }
+            }
+        }
+
+        /**
+         * 写入剩余数据后关闭，读取端读完后返回EOF
+         *
+         * @throws UncheckedIOException 写入剩余数据失败（读取端已关闭时忽略）
+         */
+        @Override
+        public void close() {
+            if (sinkClosed) return;
+            // 读取端已关闭时丢弃剩余数据
+            if (sourceClosed) recycleAll();
+            try {
+                super.close();
+            } finally {
+                sinkClosed = true;
+                unpark(waitingReader);
+            }
+        }
+    }
+
+    /**
+     * 读取端：整段取出队列中的缓冲区接到缓冲区链尾部
+     */
+    private class Source extends InputStreamWrapper {
+
+        Source() {
+            super(null, Pipe.this.pool);
+        }
+
+        /**
+         * 取出队列中的缓冲区（至少一个，没有时等待），直到满足请求个数或队列为空
+         *
+         * @param requireCount 请求读入个数
+         * @return 实际读入缓冲区数据个数
+         * @throws IOException IO异常
+         */
+        @Override
+        protected long read(long requireCount) throws IOException {
+            if (requireCount < 0)
+                throw new IllegalArgumentException("requireCount < 0: " + requireCount);
+            if (sourceClosed) throw new IOException("closed");
+            if (requireCount == 0) return 0;
+
+            long readCount = 0;
+            do {
+                IOBuffer buffer = take();
+                if (buffer == null) break;
+                readCount += buffer.limit - buffer.pos;
+                appendBuffer(buffer);
+            } while (readCount < requireCount && available());
+            return readCount == 0 ? -1 : readCount;
+        }
+
+        /**
+         * 关闭读取端，队列中剩余的缓冲区归还缓冲池，写入端之后的写入抛出异常
+         */
+        @Override
+        public void close() {
+            sourceClosed = true;
+            super.close();
+            unpark(waitingWriter);
+            // 写入端在关闭后放入的缓冲区由GC回收
+            while (available()) {
+                long index = readIndex.get();
+                int slot = (int) index & mask;
+                IOBuffer buffer = ring[slot];
+                ring[slot] = null;
+                readIndex.set(index + 1);
+                if (buffer != null) pool.recycle(buffer);
+            }
+        }
+    }
+}
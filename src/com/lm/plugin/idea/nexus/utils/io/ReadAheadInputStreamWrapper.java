@@ -0,0 +1,183 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 预读的InputStream包装类
+ * <p>
+ * 后台线程提前把数据读入缓冲区并放入有界队列，读取和解析可以与IO等待重叠；队列满时后台线程阻塞。
+ * 后台线程的读取异常在下一次需要读入数据时抛出（RuntimeException和Error包装成IOException）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ReadAheadInputStreamWrapper extends InputStreamWrapper {
+
+    // 读完的标记
+    private static final IOBuffer EOF = new IOBuffer();
+
+    private final InputStream inputStream;
+
+    // 已读入数据的缓冲区
+    private final BlockingQueue<IOBuffer> queue;
+
+    private final Thread readThread;
+
+    // 后台线程的读取异常
+    private volatile IOException error;
+
+    private volatile boolean closed;
+
+    // 是否已经读完
+    private boolean exhausted;
+
+    /**
+     * @param inputStream  InputStream
+     * @param segmentCount 最多预读的缓冲区个数
+     */
+    public ReadAheadInputStreamWrapper(InputStream inputStream, int segmentCount) {
+        this(inputStream, segmentCount, IOBuffer.BUFFER_SIZE);
+    }
+
+    /**
+     * @param inputStream  InputStream
+     * @param segmentCount 最多预读的缓冲区个数
+     * @param segmentSize  缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     */
+    public ReadAheadInputStreamWrapper(InputStream inputStream, int segmentCount, int segmentSize) {
+        super(inputStream, IOBufferPool.getInstance(segmentSize));
+        if (segmentCount < 1)
+            throw new IllegalArgumentException("segmentCount < 1: " + segmentCount);
+        this.inputStream = inputStream;
+        this.queue = new ArrayBlockingQueue<>(segmentCount);
+        this.readThread = new Thread(this::readAhead, "ReadAheadInputStreamWrapper");
+        this.readThread.setDaemon(true);
+        this.readThread.start();
+    }
+
+    /**
+     * 从队列取出一个已读入数据的缓冲区（队列为空时等待后台线程）
+     *
+     * @param requireCount 请求读入个数（整个缓冲区一起取出，可能多于请求个数）
+     * @return 实际读入缓冲区数据个数
+     * @throws IOException IO异常
+     */
+    @Override
+    protected long read(long requireCount) throws IOException {
+        if (requireCount < 0)
+            throw new IllegalArgumentException("requireCount < 0: " + requireCount);
+        if (exhausted) return checkError();
+
+        IOBuffer buffer;
+        try {
+            buffer = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (buffer == EOF) {
+            exhausted = true;
+            return checkError();
+        }
+
+        int readCount = buffer.limit - buffer.pos;
+        appendBuffer(buffer);
+        spillIfNecessary();
+        return readCount;
+    }
+
+    /**
+     * 数据由后台线程读取，不能直接使用底层的FileChannel
+     *
+     * @return null
+     */
+    @Override
+    FileChannel fileChannel() {
+        return null;
+    }
+
+    /**
+     * 停止后台线程，关闭inputStream，并将剩余缓冲区归还缓冲池
+     */
+    @Override
+    public void close() {
+        closed = true;
+        readThread.interrupt();
+        super.close();
+        // 后台线程在这之后放入的缓冲区由后台线程自己回收
+        drain();
+    }
+
+    /**
+     * 取出队列中剩余的缓冲区归还缓冲池
+     */
+    private void drain() {
+        IOBuffer buffer;
+        while ((buffer = queue.poll()) != null) {
+            if (buffer != EOF) pool.recycle(buffer);
+        }
+    }
+
+    /**
+     * @return 读完时返回-1，后台线程读取失败时抛出异常
+     * @throws IOException 后台线程的读取异常
+     */
+    private long checkError() throws IOException {
+        if (error != null) throw new IOException(error.getMessage(), error);
+        return -1;
+    }
+
+    /**
+     * 后台线程：读入缓冲区并放入队列，队列满时阻塞
+     * <p>
+     * 任何异常（包括RuntimeException和Error）都记录下来并放入读完标记，读取方不会一直等待
+     */
+    private void readAhead() {
+        try {
+            while (!closed) {
+                IOBuffer buffer = pool.take();
+                int readCount;
+                try {
+                    readCount = inputStream.read(buffer.data, 0, buffer.capacity());
+                    if (IOMetrics.enabled) IOMetrics.recordRead(readCount);
+                } catch (Throwable e) {
+                    pool.recycle(buffer);
+                    throw e;
+                }
+                if (readCount == -1) {
+                    pool.recycle(buffer);
+                    break;
+                }
+                buffer.limit = readCount;
+                try {
+                    queue.put(buffer);
+                } catch (InterruptedException e) {
+                    pool.recycle(buffer);
+                    throw e;
+                }
+            }
+        } catch (InterruptedException e) {
+            // close()中断，直接结束
+            drain();
+            return;
+        } catch (Throwable e) {
+            if (!closed) error = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+        if (closed) {
+            drain();
+            return;
+        }
+        try {
+            queue.put(EOF);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
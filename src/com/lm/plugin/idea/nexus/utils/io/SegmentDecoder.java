@@ -0,0 +1,159 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * 跨缓冲区的字符解码器
+ * <p>
+ * 逐个缓冲区解码，被缓冲区边界截断的字符暂存起来和下一个缓冲区一起解码。
+ * 复用CharsetDecoder和字符缓冲区，兼容ASCII的编码先按ASCII快速解码
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+class SegmentDecoder {
+
+    private final String charsetName;
+    private final CharsetDecoder decoder;
+    private final boolean asciiCompatible;
+
+    // 解码结果暂存区
+    private final char[] chars = new char[1024];
+    private final CharBuffer charBuffer = CharBuffer.wrap(chars);
+
+    // 被缓冲区边界截断的字节
+    private final ByteBuffer carry = ByteBuffer.allocate(16);
+
+    SegmentDecoder(String charsetName) throws UnsupportedEncodingException {
+        Charset charset;
+        try {
+            charset = Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            throw new UnsupportedEncodingException(charsetName);
+        }
+        this.charsetName = charsetName;
+        // 与new String(bytes, charsetName)一样替换无法解码的字节
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        String name = charset.name();
+        this.asciiCompatible = "UTF-8".equals(name) || "US-ASCII".equals(name) || "ISO-8859-1".equals(name);
+    }
+
+    /**
+     * @return 编码名称
+     */
+    String charsetName() {
+        return charsetName;
+    }
+
+    /**
+     * 解码缓冲区中的一段数据（被截断的字符留到下一次解码）
+     *
+     * @param buffer 缓冲区
+     * @param pos    开始位置
+     * @param count  字节个数
+     * @param out    输出
+     * @throws IOException IO异常
+     */
+    void decode(IOBuffer buffer, int pos, int count, Appendable out) throws IOException {
+        int limit = pos + count;
+
+        // 先把上一个缓冲区截断的字符补完整
+        while (carry.position() > 0 && pos < limit) {
+            carry.put(buffer.get(pos++));
+            carry.flip();
+            decode(carry, false, out);
+            carry.compact();
+        }
+
+        // ASCII快速解码
+        if (asciiCompatible) {
+            int charCount = charBuffer.position();
+            byte[] data = buffer.data;
+            while (pos < limit) {
+                byte content = data != null ? data[pos] : buffer.get(pos);
+                if (content < 0) break;
+                if (charCount == chars.length) {
+                    charBuffer.position(charCount);
+                    flushChars(out);
+                    charCount = 0;
+                }
+                chars[charCount++] = (char) content;
+                pos++;
+            }
+            charBuffer.position(charCount);
+        }
+
+        if (pos < limit) {
+            ByteBuffer in = buffer.readableByteBuffer();
+            in.limit(limit);
+            in.position(pos);
+            decode(in, false, out);
+            carry.put(in);
+        }
+    }
+
+    /**
+     * 结束解码，输出剩余字符并重置状态
+     *
+     * @param out 输出
+     * @throws IOException IO异常
+     */
+    void finish(Appendable out) throws IOException {
+        carry.flip();
+        decode(carry, true, out);
+        carry.clear();
+        while (decoder.flush(charBuffer).isOverflow()) {
+            flushChars(out);
+        }
+        flushChars(out);
+        decoder.reset();
+    }
+
+    /**
+     * 丢弃截断的字节和还没有输出的字符（解码中途失败后调用，下一次解码不会带上这次的数据）
+     */
+    void reset() {
+        carry.clear();
+        charBuffer.clear();
+        decoder.reset();
+    }
+
+    private void decode(ByteBuffer in, boolean endOfInput, Appendable out) throws IOException {
+        while (true) {
+            CoderResult result = decoder.decode(in, charBuffer, endOfInput);
+            if (result.isOverflow()) {
+                flushChars(out);
+            } else if (result.isUnderflow()) {
+                return;
+            } else {
+                result.throwException();
+            }
+        }
+    }
+
+    private void flushChars(Appendable out) throws IOException {
+        int charCount = charBuffer.position();
+        if (charCount == 0) return;
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(chars, 0, charCount);
+        } else if (out instanceof Writer) {
+            ((Writer) out).write(chars, 0, charCount);
+        } else {
+            charBuffer.flip();
+            out.append(charBuffer);
+        }
+        charBuffer.clear();
+    }
+}
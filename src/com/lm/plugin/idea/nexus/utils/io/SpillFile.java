@@ -0,0 +1,100 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 溢出到磁盘的临时文件
+ * <p>
+ * 缓冲区的数据复制到临时文件的映射区域，返回映射区域上共享的缓冲区；数据由系统页缓存管理，不占用堆内存。
+ * 按WINDOW_SIZE一次映射一大段，避免每个缓冲区一次映射。
+ * 文件打开后立即删除（POSIX下目录项删除后已打开的文件和映射仍然有效，进程退出时空间一定会释放），
+ * 包装类没有关闭也不会在临时目录留下文件；不能删除打开的文件时（Windows）改为进程退出时删除
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+class SpillFile {
+
+    // 每次映射的字节数
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    // 打开后没能立即删除时的临时文件（已删除时为null）
+    private final File file;
+
+    private final FileChannel channel;
+
+    private final List<MappedByteBuffer> windows = new ArrayList<>();
+
+    // 当前映射区域
+    private MappedByteBuffer window;
+
+    // 当前映射区域在文件中的位置
+    private long windowPosition;
+
+    // 当前映射区域已使用的字节数
+    private int windowUsed;
+
+    SpillFile() throws IOException {
+        File file = File.createTempFile("nexus-spill", ".tmp");
+        try {
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+        if (file.delete()) {
+            this.file = null;
+        } else {
+            file.deleteOnExit();
+            this.file = file;
+        }
+    }
+
+    /**
+     * 把缓冲区中可读的数据写入临时文件
+     *
+     * @param buffer 缓冲区
+     * @return 映射区域上共享的缓冲区，内容与buffer可读的数据相同
+     * @throws IOException IO异常
+     */
+    IOBuffer spill(IOBuffer buffer) throws IOException {
+        int count = buffer.limit - buffer.pos;
+        if (window == null || WINDOW_SIZE - windowUsed < count) {
+            if (window != null) windowPosition += WINDOW_SIZE;
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowPosition, WINDOW_SIZE);
+            windows.add(window);
+            windowUsed = 0;
+        }
+
+        ByteBuffer view = window.duplicate();
+        view.limit(windowUsed + count);
+        view.position(windowUsed);
+        IOBuffer spilled = IOBuffer.shared(view.slice());
+        buffer.copyTo(buffer.pos, spilled, 0, count);
+        windowUsed += count;
+        if (IOMetrics.enabled) IOMetrics.recordSpill(count);
+        return spilled;
+    }
+
+    /**
+     * 解除映射、关闭并删除临时文件，之后不能再访问返回过的缓冲区
+     */
+    void close() {
+        for (MappedByteBuffer mappedBuffer : windows) {
+            IOUtils.unmap(mappedBuffer);
+        }
+        windows.clear();
+        window = null;
+        IOUtils.closeIO(channel);
+        if (file != null) file.delete();
+    }
+}
@@ -0,0 +1,246 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 后台写入的OutputStream包装类
+ * <p>
+ * 写满的缓冲区放入有界队列，由后台线程写入outputStream，数据的生成与IO等待可以重叠；队列满时写入方阻塞。
+ * flush()等待队列中的数据全部写完。后台线程的写入异常在下一次写入、flush()或close()时抛出（RuntimeException和Error包装成IOException）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class WriteBehindOutputStreamWrapper extends OutputStreamWrapper {
+
+    // flush标记
+    private static final IOBuffer FLUSH = new IOBuffer();
+
+    // 关闭标记
+    private static final IOBuffer CLOSE = new IOBuffer();
+
+    private final OutputStream outputStream;
+
+    // 等待写入的缓冲区
+    private final BlockingQueue<IOBuffer> queue;
+
+    private final Thread writeThread;
+
+    // 后台线程已处理的flush标记个数
+    private long flushedCount;
+
+    // 已放入队列的flush标记个数
+    private long flushRequestCount;
+
+    // 后台线程的写入异常
+    private volatile IOException error;
+
+    // 异常是否已经抛出过
+    private boolean errorReported;
+
+    /**
+     * @param outputStream OutputStream
+     * @param segmentCount 队列中最多等待写入的缓冲区个数
+     */
+    public WriteBehindOutputStreamWrapper(OutputStream outputStream, int segmentCount) {
+        this(outputStream, segmentCount, IOBuffer.BUFFER_SIZE);
+    }
+
+    /**
+     * @param outputStream OutputStream
+     * @param segmentCount 队列中最多等待写入的缓冲区个数
+     * @param segmentSize  缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     */
+    public WriteBehindOutputStreamWrapper(OutputStream outputStream, int segmentCount, int segmentSize) {
+        super(outputStream, IOBufferPool.getInstance(segmentSize));
+        if (segmentCount < 1)
+            throw new IllegalArgumentException("segmentCount < 1: " + segmentCount);
+        this.outputStream = outputStream;
+        // flush和close标记也占用队列位置
+        this.queue = new ArrayBlockingQueue<>(segmentCount + 1);
+        this.writeThread = new Thread(this::writeBehind, "WriteBehindOutputStreamWrapper");
+        this.writeThread.setDaemon(true);
+        this.writeThread.start();
+    }
+
+    /**
+     * 将缓冲区放入队列，由后台线程写入（队列满时等待）
+     *
+     * @param needWriteCount 需要写入的数量
+     * @throws IOException IO异常
+     */
+    @Override
+    protected void realWrite(long needWriteCount) throws IOException {
+        checkError();
+        while (needWriteCount > 0) {
+            IOBuffer buffer = head;
+            int bufferCount = buffer.limit - buffer.pos;
+            if (bufferCount > needWriteCount || (buffer.shared && buffer.isDirect())) {
+                // 只写入一部分，或者是文件映射区域（可能在写入前被解除映射）时复制出来
+                IOBuffer copy = pool.take();
+                int copyCount = (int) Math.min(Math.min(needWriteCount, bufferCount), copy.capacity());
+                buffer.copyTo(buffer.pos, copy, 0, copyCount);
+                copy.limit = copyCount;
+                buffer.pos += copyCount;
+                size -= copyCount;
+                needWriteCount -= copyCount;
+                recycleBufferIfNecessary(buffer);
+                put(copy);
+            } else {
+                head = buffer.pop();
+                size -= bufferCount;
+                needWriteCount -= bufferCount;
+                put(buffer);
+            }
+        }
+    }
+
+    /**
+     * 写入缓冲的数据，并等待后台线程写完
+     *
+     * @return OutputStreamWrapper
+     * @throws IOException IO异常
+     */
+    @Override
+    public OutputStreamWrapper flush() throws IOException {
+        super.flush();
+        long ticket = ++flushRequestCount;
+        put(FLUSH);
+        synchronized (queue) {
+            while (flushedCount < ticket && error == null) {
+                try {
+                    queue.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+        checkError();
+        return this;
+    }
+
+    /**
+     * 数据由后台线程写入，不能直接使用底层的Channel
+     *
+     * @return null
+     */
+    @Override
+    WritableByteChannel channel() {
+        return null;
+    }
+
+    /**
+     * 写入剩余数据并等待队列中的数据写完，关闭outputStream，并将剩余缓冲区归还缓冲池
+     *
+     * @throws UncheckedIOException 后台线程写入失败，并且异常还没有抛出过
+     */
+    @Override
+    public void close() {
+        try {
+            // 剩余数据先放入队列，由后台线程写完；失败时在super.close()中再次抛出
+            if (size > 0 && error == null) realWrite(size);
+        } catch (IOException ignored) {
+        }
+        try {
+            queue.put(CLOSE);
+            writeThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeThread.interrupt();
+        }
+        // 后台线程已经失败时丢弃剩余数据，避免super.close()再次写入并抛出已经抛出过的异常
+        if (error != null) recycleAll();
+        super.close();
+        if (error != null && !errorReported) {
+            errorReported = true;
+            throw new UncheckedIOException(error.getMessage(), error);
+        }
+    }
+
+    /**
+     * 放入队列（队列满时等待）
+     *
+     * @param buffer 缓冲区或标记
+     * @throws IOException IO异常
+     */
+    private void put(IOBuffer buffer) throws IOException {
+        try {
+            queue.put(buffer);
+        } catch (InterruptedException e) {
+            if (buffer != FLUSH) pool.recycle(buffer);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    /**
+     * @throws IOException 后台线程的写入异常
+     */
+    private void checkError() throws IOException {
+        if (error != null) {
+            errorReported = true;
+            throw new IOException(error.getMessage(), error);
+        }
+    }
+
+    /**
+     * 后台线程：从队列取出缓冲区写入outputStream，出错后继续取出并丢弃，避免写入方一直阻塞
+     */
+    private void writeBehind() {
+        IOBuffer heapBuffer = null;
+        try {
+            while (true) {
+                IOBuffer buffer = queue.take();
+                if (buffer == CLOSE) break;
+                if (buffer == FLUSH) {
+                    synchronized (queue) {
+                        flushedCount++;
+                        queue.notifyAll();
+                    }
+                    continue;
+                }
+
+                if (error == null) {
+                    try {
+                        if (buffer.isDirect()) {
+                            // 堆外缓冲区（从其他包装类移动过来的）需要先复制到堆内
+                            if (heapBuffer == null) heapBuffer = IOBufferPool.getInstance().take();
+                            for (int pos = buffer.pos; pos < buffer.limit; ) {
+                                int count = Math.min(buffer.limit - pos, heapBuffer.capacity());
+                                buffer.get(pos, heapBuffer.data, 0, count);
+                                outputStream.write(heapBuffer.data, 0, count);
+                                if (IOMetrics.enabled) IOMetrics.recordWrite(count);
+                                pos += count;
+                            }
+                        } else {
+                            outputStream.write(buffer.data, buffer.pos, buffer.limit - buffer.pos);
+                            if (IOMetrics.enabled) IOMetrics.recordWrite(buffer.limit - buffer.pos);
+                        }
+                    } catch (Throwable e) {
+                        // RuntimeException和Error也要记录，否则后台线程结束后写入方和flush()会一直等待
+                        synchronized (queue) {
+                            error = e instanceof IOException ? (IOException) e : new IOException(e);
+                            queue.notifyAll();
+                        }
+                    }
+                }
+                buffer.pos = buffer.limit;
+                pool.recycle(buffer);
+            }
+        } catch (InterruptedException ignored) {
+            // close()被中断，直接结束
+        } finally {
+            if (heapBuffer != null) IOBufferPool.getInstance().recycle(heapBuffer);
+        }
+    }
+}
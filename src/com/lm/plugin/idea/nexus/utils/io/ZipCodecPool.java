@@ -0,0 +1,112 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflater/Inflater缓存池（进程内共享，避免反复创建占用的本地内存）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+class ZipCodecPool {
+
+    // 每种对象最多缓存的个数
+    private static final int MAX_COUNT = Runtime.getRuntime().availableProcessors() * 2;
+
+    // 按是否nowrap（GZIP使用）分开缓存
+    private static final Pools<Deflater> DEFLATERS = new Pools<>();
+    private static final Pools<Inflater> INFLATERS = new Pools<>();
+
+    /**
+     * @param level    压缩级别（Deflater.DEFAULT_COMPRESSION或0~9）
+     * @param strategy 压缩策略（Deflater.DEFAULT_STRATEGY、FILTERED、HUFFMAN_ONLY）
+     * @param nowrap   是否不写入zlib头和校验（GZIP使用）
+     * @return Deflater
+     */
+    static Deflater takeDeflater(int level, int strategy, boolean nowrap) {
+        Deflater deflater = DEFLATERS.get(nowrap).take();
+        if (deflater == null) deflater = new Deflater(level, nowrap);
+        deflater.setLevel(level);
+        deflater.setStrategy(strategy);
+        return deflater;
+    }
+
+    /**
+     * @param deflater Deflater
+     * @param nowrap   创建时的nowrap参数
+     */
+    static void recycle(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (!DEFLATERS.get(nowrap).recycle(deflater)) deflater.end();
+    }
+
+    /**
+     * @param nowrap 是否没有zlib头和校验（GZIP使用）
+     * @return Inflater
+     */
+    static Inflater takeInflater(boolean nowrap) {
+        Inflater inflater = INFLATERS.get(nowrap).take();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    /**
+     * @param inflater Inflater
+     * @param nowrap   创建时的nowrap参数
+     */
+    static void recycle(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        if (!INFLATERS.get(nowrap).recycle(inflater)) inflater.end();
+    }
+
+    /**
+     * @param nowrap 是否nowrap
+     * @return 缓存的Deflater个数
+     */
+    static int deflaterCount(boolean nowrap) {
+        return DEFLATERS.get(nowrap).count.get();
+    }
+
+    /**
+     * @param nowrap 是否nowrap
+     * @return 缓存的Inflater个数
+     */
+    static int inflaterCount(boolean nowrap) {
+        return INFLATERS.get(nowrap).count.get();
+    }
+
+    /**
+     * zlib格式和nowrap各一个缓存池
+     */
+    private static class Pools<T> {
+        private final Pool<T> zlib = new Pool<>();
+        private final Pool<T> nowrap = new Pool<>();
+
+        Pool<T> get(boolean nowrap) {
+            return nowrap ? this.nowrap : zlib;
+        }
+    }
+
+    private static class Pool<T> {
+        private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger count = new AtomicInteger();
+
+        T take() {
+            T result = queue.poll();
+            if (result != null) count.decrementAndGet();
+            return result;
+        }
+
+        boolean recycle(T content) {
+            if (count.incrementAndGet() > MAX_COUNT) {
+                count.decrementAndGet();
+                return false;
+            }
+            queue.offer(content);
+            return true;
+        }
+    }
+}
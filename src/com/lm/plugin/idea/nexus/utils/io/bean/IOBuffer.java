@@ -1,5 +1,10 @@
 package com.lm.plugin.idea.nexus.utils.io.bean;
 
+import com.lm.plugin.idea.nexus.utils.io.ConvertUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
  * IO缓冲区
  *
@@ -7,11 +12,17 @@ package com.lm.plugin.idea.nexus.utils.io.bean;
  * @version 2019-05-16 v1.0.0
  */
 public class IOBuffer {
-    // 缓冲区大小
+    // 默认缓冲区大小（也是最小的缓冲区大小）
     public static final int BUFFER_SIZE = 2048;
 
-    // 缓冲数据
-    public byte[] data = new byte[BUFFER_SIZE];
+    // 最大的缓冲区大小
+    public static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    // 缓冲数据（堆内缓冲区）
+    public byte[] data;
+
+    // 缓冲数据（堆外缓冲区，此时data为null）
+    public ByteBuffer direct;
 
     // 下一个要被读取的数据位置
     public int pos;
@@ -19,12 +30,84 @@ public class IOBuffer {
     // 下一个要被写入的数据位置
     public int limit;
 
+    // 是否与其他对象共享数据（例如文件映射区域），共享的缓冲区不能写入，也不能回收
+    public boolean shared;
+
     // 前一个缓冲区
     public IOBuffer previous;
 
     // 后一个缓冲区
     public IOBuffer next;
 
+    // 泄漏检测的取出记录（被采样时才有）
+    IOBufferLeakDetector.LeakRecord leakRecord;
+
+    // 缓冲数据的ByteBuffer视图（用于Channel读写，不影响direct的position和limit）
+    private ByteBuffer view;
+
+    // 缓冲数据的小端ByteBuffer视图（用于按字查找）
+    private ByteBuffer wordView;
+
+    // 每个字节都是0x01
+    private static final long ONES = 0x0101010101010101L;
+
+    // 每个字节都是0x80
+    private static final long HIGHS = 0x8080808080808080L;
+
+    public IOBuffer() {
+        this(BUFFER_SIZE);
+    }
+
+    public IOBuffer(int size) {
+        this.data = new byte[size];
+    }
+
+    public IOBuffer(ByteBuffer direct) {
+        this.direct = direct;
+    }
+
+    /**
+     * 包装一段共享的堆外数据（例如文件映射区域），整段数据都可读
+     *
+     * @param direct 堆外数据
+     * @return 共享的缓冲区
+     */
+    public static IOBuffer shared(ByteBuffer direct) {
+        IOBuffer buffer = new IOBuffer(direct);
+        buffer.limit = direct.capacity();
+        buffer.shared = true;
+        return buffer;
+    }
+
+    /**
+     * @return 新建堆外缓冲区
+     */
+    public static IOBuffer allocateDirect() {
+        return allocateDirect(BUFFER_SIZE);
+    }
+
+    /**
+     * @param size 缓冲区大小
+     * @return 新建堆外缓冲区
+     */
+    public static IOBuffer allocateDirect(int size) {
+        return new IOBuffer(ByteBuffer.allocateDirect(size));
+    }
+
+    /**
+     * @return 是否是堆外缓冲区
+     */
+    public boolean isDirect() {
+        return data == null;
+    }
+
+    /**
+     * @return 缓冲区容量
+     */
+    public int capacity() {
+        return data != null ? data.length : direct.capacity();
+    }
+
     // pop
     public IOBuffer pop() {
         IOBuffer result = next != this ? next : null;
@@ -43,4 +126,346 @@ public class IOBuffer {
         next = buffer;
         return buffer;
     }
+
+    /**
+     * 读一个字节
+     *
+     * @param index 位置
+     * @return 一个字节
+     */
+    public byte get(int index) {
+        return data != null ? data[index] : direct.get(index);
+    }
+
+    /**
+     * 读两个字节 (大端)
+     *
+     * @param index 位置
+     * @return 两个字节
+     */
+    public short getShort(int index) {
+        return data != null ? ConvertUtils.getShort(data, index) : direct.getShort(index);
+    }
+
+    /**
+     * 读四个字节 (大端)
+     *
+     * @param index 位置
+     * @return 四个字节
+     */
+    public int getInt(int index) {
+        return data != null ? ConvertUtils.getInt(data, index) : direct.getInt(index);
+    }
+
+    /**
+     * 读八个字节 (大端)
+     *
+     * @param index 位置
+     * @return 八个字节
+     */
+    public long getLong(int index) {
+        return data != null ? ConvertUtils.getLong(data, index) : direct.getLong(index);
+    }
+
+    /**
+     * 读一堆字节
+     *
+     * @param index 位置
+     * @param dst   目标数组
+     * @param off   目标数组起始下标
+     * @param len   读取长度
+     */
+    public void get(int index, byte[] dst, int off, int len) {
+        if (data != null) {
+            System.arraycopy(data, index, dst, off, len);
+        } else {
+            ByteBuffer view = direct.duplicate();
+            view.position(index);
+            view.get(dst, off, len);
+        }
+    }
+
+    /**
+     * 写一个字节
+     *
+     * @param index   位置
+     * @param content 一个字节
+     */
+    public void put(int index, byte content) {
+        if (data != null) {
+            data[index] = content;
+        } else {
+            direct.put(index, content);
+        }
+    }
+
+    /**
+     * 写两个字节 (大端)
+     *
+     * @param index   位置
+     * @param content 两个字节
+     */
+    public void putShort(int index, short content) {
+        if (data != null) {
+            ConvertUtils.putShort(data, index, content);
+        } else {
+            direct.putShort(index, content);
+        }
+    }
+
+    /**
+     * 写四个字节 (大端)
+     *
+     * @param index   位置
+     * @param content 四个字节
+     */
+    public void putInt(int index, int content) {
+        if (data != null) {
+            ConvertUtils.putInt(data, index, content);
+        } else {
+            direct.putInt(index, content);
+        }
+    }
+
+    /**
+     * 写八个字节 (大端)
+     *
+     * @param index   位置
+     * @param content 八个字节
+     */
+    public void putLong(int index, long content) {
+        if (data != null) {
+            ConvertUtils.putLong(data, index, content);
+        } else {
+            direct.putLong(index, content);
+        }
+    }
+
+    /**
+     * 写一堆字节
+     *
+     * @param index 位置
+     * @param src   源数组
+     * @param off   源数组起始下标
+     * @param len   写入长度
+     */
+    public void put(int index, byte[] src, int off, int len) {
+        if (data != null) {
+            System.arraycopy(src, off, data, index, len);
+        } else {
+            ByteBuffer view = direct.duplicate();
+            view.position(index);
+            view.put(src, off, len);
+        }
+    }
+
+    /**
+     * 批量读int
+     *
+     * @param index        位置
+     * @param dst          目标数组
+     * @param off          目标数组起始下标
+     * @param len          读取个数
+     * @param littleEndian 是否小端
+     */
+    public void getInts(int index, int[] dst, int off, int len, boolean littleEndian) {
+        if (data != null) {
+            for (int i = 0; i < len; i++, index += 4) {
+                dst[off + i] = littleEndian ? ConvertUtils.getIntLE(data, index) : ConvertUtils.getInt(data, index);
+            }
+        } else {
+            ByteBuffer view = direct.duplicate().order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            view.position(index);
+            view.asIntBuffer().get(dst, off, len);
+        }
+    }
+
+    /**
+     * 批量写int
+     *
+     * @param index        位置
+     * @param src          源数组
+     * @param off          源数组起始下标
+     * @param len          写入个数
+     * @param littleEndian 是否小端
+     */
+    public void putInts(int index, int[] src, int off, int len, boolean littleEndian) {
+        if (data != null) {
+            for (int i = 0; i < len; i++, index += 4) {
+                if (littleEndian) {
+                    ConvertUtils.putIntLE(data, index, src[off + i]);
+                } else {
+                    ConvertUtils.putInt(data, index, src[off + i]);
+                }
+            }
+        } else {
+            ByteBuffer view = direct.duplicate().order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            view.position(index);
+            view.asIntBuffer().put(src, off, len);
+        }
+    }
+
+    /**
+     * 批量读long
+     *
+     * @param index        位置
+     * @param dst          目标数组
+     * @param off          目标数组起始下标
+     * @param len          读取个数
+     * @param littleEndian 是否小端
+     */
+    public void getLongs(int index, long[] dst, int off, int len, boolean littleEndian) {
+        if (data != null) {
+            for (int i = 0; i < len; i++, index += 8) {
+                dst[off + i] = littleEndian ? ConvertUtils.getLongLE(data, index) : ConvertUtils.getLong(data, index);
+            }
+        } else {
+            ByteBuffer view = direct.duplicate().order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            view.position(index);
+            view.asLongBuffer().get(dst, off, len);
+        }
+    }
+
+    /**
+     * 批量写long
+     *
+     * @param index        位置
+     * @param src          源数组
+     * @param off          源数组起始下标
+     * @param len          写入个数
+     * @param littleEndian 是否小端
+     */
+    public void putLongs(int index, long[] src, int off, int len, boolean littleEndian) {
+        if (data != null) {
+            for (int i = 0; i < len; i++, index += 8) {
+                if (littleEndian) {
+                    ConvertUtils.putLongLE(data, index, src[off + i]);
+                } else {
+                    ConvertUtils.putLong(data, index, src[off + i]);
+                }
+            }
+        } else {
+            ByteBuffer view = direct.duplicate().order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            view.position(index);
+            view.asLongBuffer().put(src, off, len);
+        }
+    }
+
+    /**
+     * 查找字符位置（每次比较8个字节）
+     *
+     * @param content   要查找的字符
+     * @param fromIndex 开始位置（包含）
+     * @param toIndex   结束位置（不包含）
+     * @return 字符位置，找不到时返回-1
+     */
+    public int indexOf(byte content, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        if (toIndex - index >= 8) {
+            ByteBuffer words = wordView();
+            long pattern = (content & 0xffL) * ONES;
+            for (; index + 8 <= toIndex; index += 8) {
+                long word = words.getLong(index) ^ pattern;
+                // 相等的字节异或后为0，找出第一个为0的字节（小端，低位是低地址）
+                long found = (word - ONES) & ~word & HIGHS;
+                if (found != 0) return index + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; index < toIndex; index++) {
+            if (get(index) == content) return index;
+        }
+        return -1;
+    }
+
+    /**
+     * 查找任意一个字符第一次出现的位置（每次比较8个字节）
+     *
+     * @param contents  要查找的字符
+     * @param fromIndex 开始位置（包含）
+     * @param toIndex   结束位置（不包含）
+     * @return 字符位置，找不到时返回-1
+     */
+    public int indexOfAny(byte[] contents, int fromIndex, int toIndex) {
+        int index = fromIndex;
+        if (toIndex - index >= 8) {
+            ByteBuffer words = wordView();
+            for (; index + 8 <= toIndex; index += 8) {
+                long word = words.getLong(index);
+                long found = 0;
+                for (byte content : contents) {
+                    long x = word ^ ((content & 0xffL) * ONES);
+                    found |= (x - ONES) & ~x & HIGHS;
+                }
+                if (found != 0) return index + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; index < toIndex; index++) {
+            byte b = get(index);
+            for (byte content : contents) {
+                if (b == content) return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 复制数据到另一个缓冲区
+     *
+     * @param index       位置
+     * @param target      目标缓冲区
+     * @param targetIndex 目标缓冲区位置
+     * @param len         复制长度
+     */
+    public void copyTo(int index, IOBuffer target, int targetIndex, int len) {
+        if (data != null) {
+            target.put(targetIndex, data, index, len);
+        } else if (target.data != null) {
+            get(index, target.data, targetIndex, len);
+        } else {
+            ByteBuffer source = direct.duplicate();
+            source.limit(index + len);
+            source.position(index);
+            ByteBuffer view = target.direct.duplicate();
+            view.position(targetIndex);
+            view.put(source);
+        }
+    }
+
+    /**
+     * 获取可读区域[pos, limit)的ByteBuffer视图，视图与缓冲区共享，只在本次Channel操作中有效
+     *
+     * @return ByteBuffer视图
+     */
+    public ByteBuffer readableByteBuffer() {
+        ByteBuffer view = byteBuffer();
+        view.limit(limit);
+        view.position(pos);
+        return view;
+    }
+
+    /**
+     * 获取可写区域[limit, limit + maxCount)的ByteBuffer视图，视图与缓冲区共享，只在本次Channel操作中有效
+     *
+     * @param maxCount 最多可写入个数
+     * @return ByteBuffer视图
+     */
+    public ByteBuffer writableByteBuffer(int maxCount) {
+        ByteBuffer view = byteBuffer();
+        view.limit(view.capacity());
+        view.position(limit);
+        view.limit(limit + Math.min(maxCount, view.capacity() - limit));
+        return view;
+    }
+
+    private ByteBuffer wordView() {
+        if (wordView == null) {
+            wordView = (data != null ? ByteBuffer.wrap(data) : direct.duplicate()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return wordView;
+    }
+
+    private ByteBuffer byteBuffer() {
+        if (view == null) view = data != null ? ByteBuffer.wrap(data) : direct.duplicate();
+        return view;
+    }
 }
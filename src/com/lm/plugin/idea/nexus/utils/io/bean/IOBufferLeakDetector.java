@@ -0,0 +1,162 @@
+package com.lm.plugin.idea.nexus.utils.io.bean;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 缓冲区泄漏检测
+ * <p>
+ * 从缓冲池取出缓冲区时按采样间隔记录取出的位置（调用栈）、线程和时间，缓冲区归还时删除记录。
+ * 没有归还的缓冲区被GC回收后，记录进入ReferenceQueue，下一次采样或调用reportLeaks()时报告。
+ * 未采样时只有一次随机数判断，默认每1024次取出采样一次，可以通过系统属性nexus.io.leakSamplingInterval修改。
+ * 默认不输出报告（只计入getLeakCount()），需要时由调用方通过setReporter()接入自己的日志
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class IOBufferLeakDetector {
+
+    // 采样间隔：平均每samplingInterval次取出记录一次，1表示全部记录，0表示关闭
+    private static volatile int samplingInterval = Integer.getInteger("nexus.io.leakSamplingInterval", 1024);
+
+    // 泄漏报告的处理方式（默认不输出）
+    private static volatile Consumer<Throwable> reporter = leak -> {
+    };
+
+    private static final ReferenceQueue<IOBuffer> QUEUE = new ReferenceQueue<>();
+
+    // 还没有归还的记录（PhantomReference本身需要强引用）
+    private static final Set<LeakRecord> RECORDS = ConcurrentHashMap.newKeySet();
+
+    private static final LongAdder LEAK_COUNT = new LongAdder();
+
+    private IOBufferLeakDetector() {
+    }
+
+    /**
+     * @param samplingInterval 采样间隔（1表示全部记录，0表示关闭）
+     */
+    public static void setSamplingInterval(int samplingInterval) {
+        if (samplingInterval < 0) throw new IllegalArgumentException("samplingInterval < 0: " + samplingInterval);
+        IOBufferLeakDetector.samplingInterval = samplingInterval;
+    }
+
+    public static int getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * @param reporter 泄漏报告的处理方式，参数的调用栈是缓冲区被取出的位置
+     */
+    public static void setReporter(Consumer<Throwable> reporter) {
+        if (reporter == null) throw new IllegalArgumentException("reporter == null");
+        IOBufferLeakDetector.reporter = reporter;
+    }
+
+    /**
+     * @return 发现的泄漏个数（只统计被采样的缓冲区）
+     */
+    public static long getLeakCount() {
+        return LEAK_COUNT.sum();
+    }
+
+    /**
+     * @return 正在记录的（已取出还没有归还的）缓冲区个数
+     */
+    public static int getTrackedCount() {
+        return RECORDS.size();
+    }
+
+    /**
+     * 报告已经被GC回收但没有归还的缓冲区
+     *
+     * @return 本次报告的个数
+     */
+    public static int reportLeaks() {
+        int count = 0;
+        LeakRecord record;
+        while ((record = (LeakRecord) QUEUE.poll()) != null) {
+            // 已经归还的记录不会进入队列，这里只是防止重复报告
+            if (!RECORDS.remove(record)) continue;
+            LEAK_COUNT.increment();
+            count++;
+            reporter.accept(record.toThrowable());
+        }
+        return count;
+    }
+
+    /**
+     * 取出缓冲区时按采样间隔记录
+     *
+     * @param buffer 缓冲区
+     */
+    static void track(IOBuffer buffer) {
+        int interval = samplingInterval;
+        if (interval == 0 || (interval > 1 && ThreadLocalRandom.current().nextInt(interval) != 0)) return;
+
+        reportLeaks();
+        LeakRecord record = new LeakRecord(buffer);
+        RECORDS.add(record);
+        buffer.leakRecord = record;
+    }
+
+    /**
+     * 归还缓冲区时删除记录
+     *
+     * @param buffer 缓冲区
+     */
+    static void untrack(IOBuffer buffer) {
+        LeakRecord record = buffer.leakRecord;
+        if (record == null) return;
+        buffer.leakRecord = null;
+        RECORDS.remove(record);
+        record.clear();
+    }
+
+    /**
+     * 缓冲区的取出记录
+     */
+    static final class LeakRecord extends PhantomReference<IOBuffer> {
+
+        private final int capacity;
+        private final boolean direct;
+        private final String threadName;
+        private final long takeTime;
+
+        // 取出的位置（调用栈在报告时才展开）
+        private final Throwable trace;
+
+        LeakRecord(IOBuffer buffer) {
+            super(buffer, QUEUE);
+            this.capacity = buffer.capacity();
+            this.direct = buffer.isDirect();
+            this.threadName = Thread.currentThread().getName();
+            this.takeTime = System.currentTimeMillis();
+            this.trace = new Throwable();
+        }
+
+        /**
+         * @return 泄漏报告，调用栈是缓冲区被取出的位置
+         */
+        Throwable toThrowable() {
+            Throwable leak = new Throwable("IOBuffer leak: " + (direct ? "direct " : "heap ") + capacity + " bytes"
+                    + ", taken by thread " + threadName
+                    + ", not recycled " + (System.currentTimeMillis() - takeTime) + "ms later when garbage collected."
+                    + " Make sure the wrapper using it is closed. Taken at:");
+            // 去掉泄漏检测自身的调用栈
+            StackTraceElement[] stackTrace = trace.getStackTrace();
+            int start = 0;
+            while (start < stackTrace.length && stackTrace[start].getClassName().startsWith(IOBufferLeakDetector.class.getName())) {
+                start++;
+            }
+            leak.setStackTrace(Arrays.copyOfRange(stackTrace, start, stackTrace.length));
+            return leak;
+        }
+    }
+}
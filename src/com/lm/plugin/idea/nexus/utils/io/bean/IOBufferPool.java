@@ -1,41 +1,279 @@
 package com.lm.plugin.idea.nexus.utils.io.bean;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * IO缓冲池
+ * IO缓冲池（进程内共享，按缓冲区大小分级，按线程分段，使用CAS代替锁）
  *
  * @author LM
  * @version 2019-05-16 v1.0.0
  */
 public class IOBufferPool {
 
+    // 每个分段最多缓存的字节数（缓冲区大于该值时每个分段缓存一个缓冲区）
     public static final long MAX_SIZE = 64 * 1024;
 
-    private IOBuffer head;
-    private long byteCount;
+    // 大小等级个数（2KB、4KB ... 1MB，每级翻倍）
+    private static final int SIZE_CLASS_COUNT = Integer.numberOfTrailingZeros(IOBuffer.MAX_BUFFER_SIZE / IOBuffer.BUFFER_SIZE) + 1;
 
-    public IOBuffer take() {
-        IOBuffer buffer;
-        if (head != null) {
-            synchronized (this) {
-                buffer = head;
-                head = buffer.next;
-                buffer.next = null;
-                byteCount -= IOBuffer.BUFFER_SIZE;
-            }
-        } else {
-            buffer = new IOBuffer();
+    // 分段正在被其他线程操作时的占位标记
+    private static final IOBuffer LOCK = new IOBuffer();
+
+    // 进程内共享的缓冲池（按大小等级）
+    private static final IOBufferPool[] INSTANCES = new IOBufferPool[SIZE_CLASS_COUNT];
+
+    // 进程内共享的堆外缓冲池（按大小等级）
+    private static final IOBufferPool[] DIRECT_INSTANCES = new IOBufferPool[SIZE_CLASS_COUNT];
+
+    static {
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            INSTANCES[i] = new IOBufferPool(false, IOBuffer.BUFFER_SIZE << i);
+            DIRECT_INSTANCES[i] = new IOBufferPool(true, IOBuffer.BUFFER_SIZE << i);
         }
+    }
+
+    // 是否缓存堆外缓冲区
+    private final boolean direct;
+
+    // 缓冲区大小
+    private final int segmentSize;
+
+    // 每个分段最多缓存的字节数
+    private final long maxStripeSize;
+
+    // 分段（每个分段是一个单向链表，链表头的limit记录该分段缓存的字节数）
+    private final AtomicReferenceArray<IOBuffer> stripes;
+
+    // 命中次数（从缓冲池中取到缓冲区）
+    private final LongAdder hitCount = new LongAdder();
+
+    // 未命中次数（缓冲池为空或者分段竞争，需要新建缓冲区）
+    private final LongAdder missCount = new LongAdder();
+
+    // 归还成功次数
+    private final LongAdder recycleCount = new LongAdder();
+
+    // 归还时被丢弃的次数（分段已满或者分段竞争）
+    private final LongAdder overflowCount = new LongAdder();
+
+    /**
+     * @return 进程内共享的缓冲池（默认大小的缓冲区）
+     */
+    public static IOBufferPool getInstance() {
+        return INSTANCES[0];
+    }
+
+    /**
+     * @param segmentSize 缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     * @return 进程内共享的缓冲池
+     */
+    public static IOBufferPool getInstance(int segmentSize) {
+        return INSTANCES[sizeClass(segmentSize)];
+    }
+
+    /**
+     * @return 进程内共享的堆外缓冲池（默认大小的缓冲区）
+     */
+    public static IOBufferPool getDirectInstance() {
+        return DIRECT_INSTANCES[0];
+    }
+
+    /**
+     * @param segmentSize 缓冲区大小（向上取整到2的幂，2KB ~ 1MB）
+     * @return 进程内共享的堆外缓冲池
+     */
+    public static IOBufferPool getDirectInstance(int segmentSize) {
+        return DIRECT_INSTANCES[sizeClass(segmentSize)];
+    }
+
+    /**
+     * @return 全部缓冲池（各个大小等级的堆内和堆外缓冲池）
+     */
+    public static List<IOBufferPool> getAllInstances() {
+        List<IOBufferPool> result = new ArrayList<>(SIZE_CLASS_COUNT * 2);
+        Collections.addAll(result, INSTANCES);
+        Collections.addAll(result, DIRECT_INSTANCES);
+        return result;
+    }
+
+    private IOBufferPool(boolean direct, int segmentSize) {
+        this.direct = direct;
+        this.segmentSize = segmentSize;
+        this.maxStripeSize = Math.max(MAX_SIZE, segmentSize);
+        // 分段数取不小于CPU核数的2的幂，方便用线程ID取模
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+        stripes = new AtomicReferenceArray<>(stripeCount);
+    }
+
+    public IOBuffer take() {
+        IOBuffer buffer = takeBuffer();
+        IOBufferLeakDetector.track(buffer);
         return buffer;
     }
 
+    /**
+     * @return 当前线程分段中的缓冲区，分段为空或者正在被其他线程操作时新建
+     */
+    private IOBuffer takeBuffer() {
+        int stripe = stripe();
+
+        IOBuffer first = stripes.getAndSet(stripe, LOCK);
+        if (first == LOCK) {
+            // 其他线程正在操作该分段，不等待直接新建
+            missCount.increment();
+            return newBuffer();
+        }
+        if (first == null) {
+            stripes.set(stripe, null);
+            missCount.increment();
+            return newBuffer();
+        }
+
+        stripes.set(stripe, first.next);
+        first.next = null;
+        first.limit = 0;
+        hitCount.increment();
+        return first;
+    }
+
     public void recycle(IOBuffer buffer) {
         if (buffer.next != null || buffer.previous != null) throw new IllegalArgumentException();
-        synchronized (this) {
-            if (byteCount + IOBuffer.BUFFER_SIZE > MAX_SIZE) return;
-            byteCount += IOBuffer.BUFFER_SIZE;
-            buffer.next = head;
-            buffer.pos = buffer.limit = 0;
-            head = buffer;
+        IOBufferLeakDetector.untrack(buffer);
+
+        // 共享的缓冲区不属于任何缓冲池
+        if (buffer.shared) return;
+
+        // 不属于当前缓冲池的缓冲区归还给对应的缓冲池
+        if (buffer.isDirect() != direct || buffer.capacity() != segmentSize) {
+            int capacity = buffer.capacity();
+            // 不是标准大小的缓冲区直接丢弃
+            if (Integer.bitCount(capacity) != 1 || capacity < IOBuffer.BUFFER_SIZE || capacity > IOBuffer.MAX_BUFFER_SIZE)
+                return;
+            int sizeClass = sizeClass(capacity);
+            (buffer.isDirect() ? DIRECT_INSTANCES : INSTANCES)[sizeClass].recycle(buffer);
+            return;
+        }
+
+        int stripe = stripe();
+
+        IOBuffer first = stripes.getAndSet(stripe, LOCK);
+        // 其他线程正在操作该分段，直接丢弃
+        if (first == LOCK) {
+            overflowCount.increment();
+            return;
         }
+
+        int firstByteCount = first != null ? first.limit : 0;
+        if (firstByteCount + segmentSize > maxStripeSize) {
+            stripes.set(stripe, first);
+            overflowCount.increment();
+            return;
+        }
+
+        buffer.next = first;
+        buffer.pos = 0;
+        buffer.limit = firstByteCount + segmentSize;
+        stripes.set(stripe, buffer);
+        recycleCount.increment();
+    }
+
+    /**
+     * @return 命中次数（从缓冲池中取到缓冲区）
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * @return 未命中次数（需要新建缓冲区）
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * @return 归还成功次数
+     */
+    public long getRecycleCount() {
+        return recycleCount.sum();
+    }
+
+    /**
+     * @return 归还时被丢弃的次数（分段已满或者分段竞争）
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+    /**
+     * @return 已取出还没有归还的字节数（近似值，包括被字节串共享和没有归还就被GC回收的缓冲区）
+     */
+    public long getOutstandingByteCount() {
+        long outstandingCount = hitCount.sum() + missCount.sum() - recycleCount.sum() - overflowCount.sum();
+        return Math.max(0, outstandingCount) * segmentSize;
+    }
+
+    /**
+     * @return 当前缓冲池中缓存的字节数（近似值）
+     */
+    public long getByteCount() {
+        long byteCount = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            IOBuffer first = stripes.get(i);
+            if (first != null && first != LOCK) byteCount += first.limit;
+        }
+        return byteCount;
+    }
+
+    /**
+     * @return 大一级的同类缓冲池（已经是最大时返回自身）
+     */
+    public IOBufferPool larger() {
+        int sizeClass = sizeClass(segmentSize);
+        if (sizeClass == SIZE_CLASS_COUNT - 1) return this;
+        return (direct ? DIRECT_INSTANCES : INSTANCES)[sizeClass + 1];
+    }
+
+    /**
+     * @return 缓冲区大小
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * @return 是否缓存堆外缓冲区
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    /**
+     * @return 新建缓冲区
+     */
+    private IOBuffer newBuffer() {
+        return direct ? IOBuffer.allocateDirect(segmentSize) : new IOBuffer(segmentSize);
+    }
+
+    /**
+     * @param segmentSize 缓冲区大小
+     * @return 大小等级
+     */
+    private static int sizeClass(int segmentSize) {
+        if (segmentSize < 1 || segmentSize > IOBuffer.MAX_BUFFER_SIZE)
+            throw new IllegalArgumentException("segmentSize: " + segmentSize);
+        if (segmentSize <= IOBuffer.BUFFER_SIZE) return 0;
+        return 32 - Integer.numberOfLeadingZeros(segmentSize - 1) - Integer.numberOfTrailingZeros(IOBuffer.BUFFER_SIZE);
+    }
+
+    /**
+     * @return 当前线程对应的分段序号
+     */
+    private int stripe() {
+        return (int) (Thread.currentThread().getId() & (stripes.length() - 1));
     }
 }
@@ -0,0 +1,317 @@
+package com.lm.plugin.idea.nexus;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * NexusDeployer的HTTP流程：用内存中的maven2仓库（com.sun.net.httpserver）检查目录结构、校验文件、元数据合并和上传中途的认证失败
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class NexusDeployerTest {
+
+    private static final String BASE = "/repository/maven-releases/";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // 仓库中的文件（路径相对于BASE）
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+    // 返回401的路径（不读取请求体）
+    private final Set<String> unauthorizedPaths = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+    private String repositoryUrl;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(BASE, this::handle);
+        server.start();
+        repositoryUrl = "http://127.0.0.1:" + server.getAddress().getPort() + BASE;
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void releaseLayoutWithChecksums() throws IOException {
+        File artifact = randomFile(300 * 1024);
+        File sources = randomFile(1000);
+
+        new NexusDeployer(repositoryUrl, "admin", "admin123")
+                .deploy("com.example", "lib", "1.0.0", "aar", "demo & test", artifact, sources, null);
+
+        String versionPath = "com/example/lib/1.0.0/";
+        assertFileWithChecksums(versionPath + "lib-1.0.0.aar", Files.readAllBytes(artifact.toPath()));
+        assertFileWithChecksums(versionPath + "lib-1.0.0-sources.jar", Files.readAllBytes(sources.toPath()));
+        assertFalse(files.containsKey(versionPath + "lib-1.0.0-javadoc.jar"));
+
+        String pom = text(versionPath + "lib-1.0.0.pom");
+        assertFileWithChecksums(versionPath + "lib-1.0.0.pom", pom.getBytes(StandardCharsets.UTF_8));
+        assertTrue(pom, pom.contains("<packaging>aar</packaging>"));
+        assertTrue(pom, pom.contains("<description>demo &amp; test</description>"));
+
+        String metadata = text("com/example/lib/maven-metadata.xml");
+        assertFileWithChecksums("com/example/lib/maven-metadata.xml", metadata.getBytes(StandardCharsets.UTF_8));
+        assertTrue(metadata, metadata.contains("<release>1.0.0</release>"));
+        assertEquals(1, count(metadata, "<version>1.0.0</version>"));
+        assertFalse(files.containsKey(versionPath + "maven-metadata.xml"));
+    }
+
+    @Test
+    public void artifactMetadataMergesExistingVersions() throws IOException {
+        files.put("com/example/lib/maven-metadata.xml", ("<metadata><versioning><versions>"
+                + "<version>0.9.0</version><version>1.0.0</version>"
+                + "</versions></versioning></metadata>").getBytes(StandardCharsets.UTF_8));
+        NexusDeployer deployer = new NexusDeployer(repositoryUrl, null, null);
+
+        deployer.deploy("com.example", "lib", "1.0.0", "jar", null, randomFile(100), null, null);
+        deployer.deploy("com.example", "lib", "1.1.0", "jar", null, randomFile(100), null, null);
+
+        String metadata = text("com/example/lib/maven-metadata.xml");
+        assertEquals(1, count(metadata, "<version>0.9.0</version>"));
+        assertEquals(1, count(metadata, "<version>1.0.0</version>"));
+        assertEquals(1, count(metadata, "<version>1.1.0</version>"));
+        assertTrue(metadata, metadata.contains("<latest>1.1.0</latest>"));
+        assertTrue(metadata, metadata.contains("<release>1.1.0</release>"));
+    }
+
+    @Test
+    public void snapshotLayoutIncrementsBuildNumber() throws IOException {
+        NexusDeployer deployer = new NexusDeployer(repositoryUrl, "admin", "admin123");
+        File first = randomFile(5000);
+        File second = randomFile(6000);
+
+        deployer.deploy("com.example", "lib", "1.0-SNAPSHOT", "jar", null, first, null, randomFile(200));
+        String firstFile = snapshotFile(1);
+        deployer.deploy("com.example", "lib", "1.0-SNAPSHOT", "jar", null, second, null, null);
+        String secondFile = snapshotFile(2);
+
+        String versionPath = "com/example/lib/1.0-SNAPSHOT/";
+        assertFileWithChecksums(versionPath + firstFile + ".jar", Files.readAllBytes(first.toPath()));
+        assertFileWithChecksums(versionPath + secondFile + ".jar", Files.readAllBytes(second.toPath()));
+        assertNotNull(files.get(versionPath + firstFile + "-javadoc.jar"));
+        assertNotNull(files.get(versionPath + secondFile + ".pom"));
+        assertTrue(text(versionPath + secondFile + ".pom").contains("<version>1.0-SNAPSHOT</version>"));
+
+        String versionMetadata = text(versionPath + "maven-metadata.xml");
+        assertFileWithChecksums(versionPath + "maven-metadata.xml", versionMetadata.getBytes(StandardCharsets.UTF_8));
+        assertTrue(versionMetadata, versionMetadata.contains("<buildNumber>2</buildNumber>"));
+        assertTrue(versionMetadata, versionMetadata.contains("<value>" + secondFile.substring("lib-".length()) + "</value>"));
+
+        String metadata = text("com/example/lib/maven-metadata.xml");
+        assertEquals(1, count(metadata, "<version>1.0-SNAPSHOT</version>"));
+        assertFalse(metadata, metadata.contains("<release>"));
+    }
+
+    @Test
+    public void unauthorizedDuringArtifactBody() throws IOException {
+        // 元数据的GET通过，上传构件时服务器不读请求体直接返回401并关闭连接
+        unauthorizedPaths.add("com/example/lib/1.0.0/lib-1.0.0.jar");
+        File artifact = randomFile(8 * 1024 * 1024);
+
+        try {
+            new NexusDeployer(repositoryUrl, "admin", "wrong")
+                    .deploy("com.example", "lib", "1.0.0", "jar", null, artifact, null, null);
+            fail();
+        } catch (IOException e) {
+            // 服务器在请求体写到一半时关闭连接，HttpURLConnection拿不到401，异常指明失败的请求
+            assertTrue(e.getMessage(), e.getMessage().startsWith("PUT " + repositoryUrl + "com/example/lib/1.0.0/lib-1.0.0.jar failed"));
+        }
+        // 构件失败后不再上传POM和元数据
+        assertTrue(files.keySet().toString(), files.isEmpty());
+    }
+
+    @Test
+    public void unauthorizedSmallArtifactReportsCode() throws IOException {
+        // 请求体很小时客户端写完后能读到401
+        unauthorizedPaths.add("com/example/lib/1.0.0/lib-1.0.0.jar");
+
+        try {
+            new NexusDeployer(repositoryUrl, "admin", "wrong")
+                    .deploy("com.example", "lib", "1.0.0", "jar", null, randomFile(1000), null, null);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("failed: 401"));
+        }
+        assertTrue(files.keySet().toString(), files.isEmpty());
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath().substring(BASE.length());
+            if (unauthorizedPaths.contains(path)) {
+                exchange.getResponseHeaders().set("WWW-Authenticate", "BASIC realm=\"Sonatype Nexus Repository Manager\"");
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+            byte[] body = readAll(exchange.getRequestBody());
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    byte[] content = files.get(path);
+                    if (content == null) {
+                        exchange.sendResponseHeaders(404, -1);
+                    } else {
+                        exchange.sendResponseHeaders(200, content.length);
+                        OutputStream out = exchange.getResponseBody();
+                        out.write(content);
+                        out.close();
+                    }
+                    break;
+                case "PUT":
+                    files.put(path, body);
+                    exchange.sendResponseHeaders(201, -1);
+                    break;
+                default:
+                    exchange.sendResponseHeaders(405, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @param buildNumber 构建号
+     * @return 版本目录中该构建号的文件名（不含扩展名）
+     */
+    private String snapshotFile(int buildNumber) {
+        Pattern pattern = Pattern.compile("com/example/lib/1\\.0-SNAPSHOT/(lib-1\\.0-\\d{8}\\.\\d{6}-" + buildNumber + ")\\.jar");
+        for (String path : files.keySet()) {
+            Matcher matcher = pattern.matcher(path);
+            if (matcher.matches()) return matcher.group(1);
+        }
+        throw new AssertionError("build " + buildNumber + " not found in " + files.keySet());
+    }
+
+    private void assertFileWithChecksums(String path, byte[] expected) {
+        assertArrayEquals(path, expected, files.get(path));
+        assertEquals(path + ".md5", hex("MD5", expected), text(path + ".md5"));
+        assertEquals(path + ".sha1", hex("SHA-1", expected), text(path + ".sha1"));
+    }
+
+    private String text(String path) {
+        byte[] content = files.get(path);
+        if (content == null) throw new AssertionError(path + " not found in " + files.keySet());
+        return new String(content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void noPublishedDependencies() {
+        String script = String.join("\n",
+                "buildscript {",
+                "    repositories { maven { url 'https://maven.aliyun.com/repository/google' } }",
+                "    dependencies {",
+                "        classpath 'com.android.tools.build:gradle:3.4.0'",
+                "    }",
+                "}",
+                "allprojects { repositories { maven { url \"https://jitpack.io\" } } }",
+                "dependencies {",
+                "    implementation fileTree(dir: 'libs', include: ['*.jar'])",
+                "    // implementation 'com.example:commented:1.0'",
+                "    /* api 'com.example:block-commented:1.0' */",
+                "    compileOnly 'com.example:provided:1.0'",
+                "    annotationProcessor 'com.example:processor:1.0'",
+                "    testImplementation 'junit:junit:4.12'",
+                "    androidTestImplementation 'com.android.support.test:runner:1.0.2'",
+                "    debugImplementation 'com.example:debug-only:1.0'",
+                "}");
+        assertTrue(NexusDeployer.findPublishedDependencies(script).isEmpty());
+        assertTrue(NexusDeployer.findPublishedDependencies("apply plugin: 'java'\n").isEmpty());
+    }
+
+    @Test
+    public void publishedDependenciesFound() {
+        String script = String.join("\r\n",
+                "buildscript { dependencies { classpath 'com.android.tools.build:gradle:3.4.0' } }",
+                "repositories { maven { url 'https://jitpack.io' } }",
+                "dependencies {",
+                "    implementation 'com.example:a:1.0' // 行尾注释",
+                "    testImplementation 'junit:junit:4.12'",
+                "    api project(':lib')",
+                "    releaseImplementation(\"com.example:b:1.0\")",
+                "    compile 'com.example:c:1.0'",
+                "    runtimeOnly 'com.example:d:1.0'",
+                "    compileOnly 'com.example:provided:1.0'",
+                "}");
+        assertEquals(Arrays.asList(
+                "implementation 'com.example:a:1.0'",
+                "api project(':lib')",
+                "releaseImplementation(\"com.example:b:1.0\")",
+                "compile 'com.example:c:1.0'",
+                "runtimeOnly 'com.example:d:1.0'"), NexusDeployer.findPublishedDependencies(script));
+    }
+
+    private File randomFile(int size) throws IOException {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static int count(String content, String part) {
+        int count = 0;
+        for (int index = content.indexOf(part); index != -1; index = content.indexOf(part, index + part.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String hex(String algorithm, byte[] data) {
+        try {
+            StringBuilder builder = new StringBuilder();
+            for (byte b : MessageDigest.getInstance(algorithm).digest(data)) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+}
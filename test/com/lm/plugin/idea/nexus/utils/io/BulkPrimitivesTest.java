@@ -0,0 +1,175 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 批量读写int、long：与ByteBuffer的字节序一致，数据从奇数偏移开始使数值跨越缓冲区边界，堆内和堆外缓冲区都覆盖
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class BulkPrimitivesTest {
+
+    // 足够跨越多个2KB缓冲区
+    private static final int COUNT = 3000;
+
+    private static final ByteOrder[] ORDERS = {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN};
+
+    private static int[] randomInts() {
+        Random random = new Random(4);
+        int[] values = new int[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextInt();
+        }
+        return values;
+    }
+
+    private static long[] randomLongs() {
+        Random random = new Random(8);
+        long[] values = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextLong();
+        }
+        return values;
+    }
+
+    /**
+     * @return 一个前导字节之后按字节序排列的int
+     */
+    private static byte[] encode(int[] values, ByteOrder order) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + values.length * 4).order(order);
+        buffer.put((byte) 0x5a);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return 一个前导字节之后按字节序排列的long
+     */
+    private static byte[] encode(long[] values, ByteOrder order) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + values.length * 8).order(order);
+        buffer.put((byte) 0x5a);
+        for (long value : values) {
+            buffer.putLong(value);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @return 分块读入的堆内包装类和堆外包装类
+     */
+    private static InputStreamWrapper[] wrappers(byte[] data) {
+        return new InputStreamWrapper[]{
+                new InputStreamWrapper(new ChunkedInputStream(data, 333)),
+                new ChannelInputStreamWrapper(Channels.newChannel(new ChunkedInputStream(data, 333)))
+        };
+    }
+
+    @Test
+    public void readInts() throws IOException {
+        int[] values = randomInts();
+        for (ByteOrder order : ORDERS) {
+            for (InputStreamWrapper wrapper : wrappers(encode(values, order))) {
+                assertEquals(0x5a, wrapper.readByte());
+                int[] dst = new int[COUNT + 2];
+                if (order == ByteOrder.BIG_ENDIAN) wrapper.readInts(dst, 1, COUNT);
+                else wrapper.readIntsLE(dst, 1, COUNT);
+                int[] expected = new int[COUNT + 2];
+                System.arraycopy(values, 0, expected, 1, COUNT);
+                assertArrayEquals(order.toString(), expected, dst);
+                wrapper.close();
+            }
+        }
+    }
+
+    @Test
+    public void readLongs() throws IOException {
+        long[] values = randomLongs();
+        for (ByteOrder order : ORDERS) {
+            for (InputStreamWrapper wrapper : wrappers(encode(values, order))) {
+                assertEquals(0x5a, wrapper.readByte());
+                long[] dst = new long[COUNT + 2];
+                if (order == ByteOrder.BIG_ENDIAN) wrapper.readLongs(dst, 1, COUNT);
+                else wrapper.readLongsLE(dst, 1, COUNT);
+                long[] expected = new long[COUNT + 2];
+                System.arraycopy(values, 0, expected, 1, COUNT);
+                assertArrayEquals(order.toString(), expected, dst);
+                wrapper.close();
+            }
+        }
+    }
+
+    @Test
+    public void writeInts() throws IOException {
+        int[] values = randomInts();
+        for (ByteOrder order : ORDERS) {
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                OutputStreamWrapper wrapper = direct ? new ChannelOutputStreamWrapper(Channels.newChannel(out)) : new OutputStreamWrapper(out);
+                wrapper.writeByte((byte) 0x5a);
+                if (order == ByteOrder.BIG_ENDIAN) wrapper.writeInts(values, 0, COUNT);
+                else wrapper.writeIntsLE(values, 0, COUNT);
+                wrapper.close();
+                assertArrayEquals(order + " direct=" + direct, encode(values, order), out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void writeLongs() throws IOException {
+        long[] values = randomLongs();
+        for (ByteOrder order : ORDERS) {
+            for (boolean direct : new boolean[]{false, true}) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                OutputStreamWrapper wrapper = direct ? new ChannelOutputStreamWrapper(Channels.newChannel(out)) : new OutputStreamWrapper(out);
+                wrapper.writeByte((byte) 0x5a);
+                if (order == ByteOrder.BIG_ENDIAN) wrapper.writeLongs(values, 0, COUNT);
+                else wrapper.writeLongsLE(values, 0, COUNT);
+                wrapper.close();
+                assertArrayEquals(order + " direct=" + direct, encode(values, order), out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void roundTripMixed() throws IOException {
+        int[] ints = randomInts();
+        long[] longs = randomLongs();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStreamWrapper writer = new OutputStreamWrapper(out);
+        writer.writeByte((byte) 1).writeIntsLE(ints, 10, 100).writeLongs(longs, 0, COUNT).writeShort((short) 7)
+                .writeInts(ints, 0, COUNT).writeLongsLE(longs, 5, 500);
+        writer.close();
+
+        InputStreamWrapper reader = new InputStreamWrapper(new ChunkedInputStream(out.toByteArray(), 1000));
+        assertEquals(1, reader.readByte());
+        int[] intsLE = new int[100];
+        reader.readIntsLE(intsLE);
+        long[] longsBE = new long[COUNT];
+        reader.readLongs(longsBE);
+        assertEquals(7, reader.readShort());
+        int[] intsBE = new int[COUNT];
+        reader.readInts(intsBE);
+        long[] longsLE = new long[500];
+        reader.readLongsLE(longsLE);
+        reader.close();
+
+        assertArrayEquals(Arrays.copyOfRange(ints, 10, 110), intsLE);
+        assertArrayEquals(longs, longsBE);
+        assertArrayEquals(ints, intsBE);
+        assertArrayEquals(Arrays.copyOfRange(longs, 5, 505), longsLE);
+    }
+}
@@ -0,0 +1,112 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 多字节串查找（Aho-Corasick），包括跨缓冲区和短读取的情况
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class BytePatternsTest {
+
+    @Test
+    public void matchSpanningSegmentBoundary() throws IOException {
+        byte[] data = new byte[IOBuffer.BUFFER_SIZE * 3];
+        Arrays.fill(data, (byte) 'x');
+        byte[] needle = "needle".getBytes(StandardCharsets.UTF_8);
+        int start = IOBuffer.BUFFER_SIZE - 3;
+        System.arraycopy(needle, 0, data, start, needle.length);
+
+        BytePatterns patterns = BytePatterns.ofUTF8("zzz", "needle");
+        InputStreamWrapper source = new InputStreamWrapper(new ChunkedInputStream(data, 1000));
+        assertEquals(start, source.indexOf(patterns));
+        assertEquals(1, patterns.patternAt(source, start));
+        assertEquals(6, patterns.length(1));
+    }
+
+    @Test
+    public void earliestEndingMatchWins() throws IOException {
+        BytePatterns patterns = BytePatterns.ofUTF8("abcd", "bc");
+        assertEquals(2, wrap("xabcd").indexOf(patterns));
+
+        // 同一位置结束时取最长的
+        BytePatterns classic = BytePatterns.ofUTF8("he", "she", "his", "hers");
+        InputStreamWrapper source = wrap("ushers");
+        assertEquals(1, source.indexOf(classic));
+        assertEquals(1, classic.patternAt(source, 1));
+    }
+
+    @Test
+    public void startIndexSkipsEarlierMatches() throws IOException {
+        BytePatterns patterns = BytePatterns.ofUTF8("ab");
+        InputStreamWrapper source = wrap("ab--ab--ab");
+        assertEquals(0, source.indexOf(patterns, 0));
+        assertEquals(4, source.indexOf(patterns, 1));
+        assertEquals(8, source.indexOf(patterns, 5));
+        assertEquals(-1, source.indexOf(patterns, 9));
+    }
+
+    @Test
+    public void noMatchReturnsMinusOne() throws IOException {
+        assertEquals(-1, wrap("abcabc").indexOf(BytePatterns.ofUTF8("abd", "cc")));
+        assertEquals(-1, wrap("").indexOf(BytePatterns.ofUTF8("a")));
+    }
+
+    @Test
+    public void randomInputMatchesNaiveSearch() throws IOException {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            byte[] data = randomText(random, IOBuffer.BUFFER_SIZE * 2 + random.nextInt(1000));
+            byte[][] patterns = new byte[1 + random.nextInt(4)][];
+            for (int i = 0; i < patterns.length; i++) {
+                patterns[i] = randomText(random, 1 + random.nextInt(8));
+            }
+            long startIndex = random.nextInt(data.length);
+            int chunkSize = 1 + random.nextInt(3000);
+
+            InputStreamWrapper source = new InputStreamWrapper(new ChunkedInputStream(data, chunkSize));
+            long expected = naiveIndexOf(data, patterns, startIndex);
+            assertEquals("round " + round, expected, source.indexOf(BytePatterns.of(patterns), startIndex));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyPatternIsRejected() {
+        BytePatterns.of(new byte[0]);
+    }
+
+    /**
+     * @return 结束位置最早的匹配的开始位置（同一位置结束时取最长的）
+     */
+    private static long naiveIndexOf(byte[] data, byte[][] patterns, long startIndex) {
+        for (int end = (int) startIndex; end < data.length; end++) {
+            int longest = 0;
+            for (byte[] pattern : patterns) {
+                int start = end - pattern.length + 1;
+                if (start < startIndex || pattern.length <= longest) continue;
+                if (Arrays.equals(pattern, Arrays.copyOfRange(data, start, end + 1))) longest = pattern.length;
+            }
+            if (longest > 0) return end - longest + 1;
+        }
+        return -1;
+    }
+
+    private static byte[] randomText(Random random, int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) data[i] = (byte) ('a' + random.nextInt(3));
+        return data;
+    }
+
+    private static InputStreamWrapper wrap(String content) {
+        return new InputStreamWrapper(new ChunkedInputStream(content.getBytes(StandardCharsets.UTF_8), 2));
+    }
+}
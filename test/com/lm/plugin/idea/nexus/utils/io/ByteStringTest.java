@@ -0,0 +1,146 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 字节串：跨缓冲区的字节串与单个数组的字节串行为一致，只占缓冲区一小部分的数据复制而不是共享
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ByteStringTest {
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 从默认大小（2KB）的缓冲区读取，得到跨多个缓冲区的字节串
+     */
+    private static ByteString readSegmented(byte[] data, int off) throws IOException {
+        InputStreamWrapper wrapper = new InputStreamWrapper(new ChunkedInputStream(data, 700));
+        wrapper.skip(off);
+        return wrapper.readByteString(data.length - off);
+    }
+
+    @Test
+    public void segmentedEqualsSingleArray() throws IOException {
+        byte[] data = randomBytes(10000);
+        ByteString segmented = readSegmented(data, 300);
+        assertTrue(segmented.segments.length > 1);
+
+        ByteString single = ByteString.of(data, 300, data.length - 300);
+        assertEquals(single, segmented);
+        assertEquals(segmented, single);
+        assertEquals(single.hashCode(), segmented.hashCode());
+        assertArrayEquals(Arrays.copyOfRange(data, 300, data.length), segmented.toByteArray());
+
+        byte[] other = data.clone();
+        other[data.length - 1] ^= 1;
+        assertNotEquals(ByteString.of(other, 300, other.length - 300), segmented);
+        assertNotEquals(ByteString.of(data, 300, data.length - 301), segmented);
+    }
+
+    @Test
+    public void segmentedAccessors() throws IOException {
+        byte[] data = randomBytes(9000);
+        ByteString segmented = readSegmented(data, 0);
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(data[i], segmented.getByte(i));
+        }
+        assertTrue(segmented.startsWith(Arrays.copyOf(data, 5000)));
+        assertTrue(segmented.startsWith(ByteString.of(data, 0, 4097)));
+        assertFalse(segmented.startsWith(Arrays.copyOf(data, data.length + 1)));
+        // 跨越缓冲区边界比较
+        assertTrue(segmented.rangeEquals(2000, data, 2000, 3000));
+        assertFalse(segmented.rangeEquals(2000, data, 2001, 3000));
+        assertFalse(segmented.rangeEquals(8000, data, 8000, 2000));
+
+        String content = "中文内容和emoji😀";
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 3000) {
+            builder.append(content);
+        }
+        byte[] utf8 = builder.toString().getBytes(StandardCharsets.UTF_8);
+        assertEquals(builder.toString(), readSegmented(utf8, 0).utf8());
+        assertEquals(ByteString.encodeUTF8(builder.toString()), readSegmented(utf8, 0));
+    }
+
+    @Test
+    public void hex() throws IOException {
+        assertEquals("", ByteString.EMPTY.hex());
+        assertEquals("00017f80ff", ByteString.of((byte) 0, (byte) 1, (byte) 0x7f, (byte) 0x80, (byte) 0xff).hex());
+
+        byte[] data = randomBytes(5000);
+        StringBuilder expected = new StringBuilder();
+        for (byte b : data) {
+            expected.append(String.format("%02x", b & 0xff));
+        }
+        assertEquals(expected.toString(), readSegmented(data, 0).hex());
+    }
+
+    @Test
+    public void base64Padding() throws IOException {
+        byte[] data = randomBytes(6000);
+        for (int count = 0; count <= 5; count++) {
+            byte[] slice = Arrays.copyOf(data, count);
+            assertEquals(Base64.getEncoder().encodeToString(slice), ByteString.of(slice).base64());
+        }
+        // 跨越缓冲区边界的三字节组
+        for (int off = 0; off < 3; off++) {
+            byte[] slice = Arrays.copyOfRange(data, off, data.length);
+            assertEquals(Base64.getEncoder().encodeToString(slice), readSegmented(data, off).base64());
+        }
+    }
+
+    @Test
+    public void digests() throws IOException, NoSuchAlgorithmException {
+        byte[] data = randomBytes(20000);
+        ByteString segmented = readSegmented(data, 0);
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(data), segmented.md5().toByteArray());
+        assertArrayEquals(MessageDigest.getInstance("SHA-1").digest(data), segmented.sha1().toByteArray());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(data), segmented.sha256().toByteArray());
+        assertArrayEquals(MessageDigest.getInstance("SHA-512").digest(data), segmented.digest("SHA-512").toByteArray());
+    }
+
+    @Test
+    public void smallSliceOfLargeSegmentIsCopied() throws IOException {
+        byte[] data = randomBytes(100 * 1024);
+        InputStreamWrapper wrapper = new InputStreamWrapper(new ByteArrayInputStream(data), 64 * 1024);
+
+        // 2000字节只占64KB缓冲区的一小部分：复制，缓冲区不会被钉住
+        ByteString small = wrapper.readByteString(2000);
+        assertFalse(wrapper.head.shared);
+        assertTrue(small.segments[0] != wrapper.head.data);
+        assertEquals(ByteString.of(data, 0, 2000), small);
+
+        // 超过缓冲区一半：共享，缓冲区之后不再被写入
+        ByteString large = wrapper.readByteString(40 * 1024);
+        assertTrue(wrapper.head.shared);
+        assertTrue(large.segments[0] == wrapper.head.data);
+        assertEquals(ByteString.of(data, 2000, 40 * 1024), large);
+
+        // 剩余数据继续读取，字节串内容不变
+        byte[] rest = wrapper.readBytes(data.length - 2000 - 40 * 1024);
+        assertArrayEquals(Arrays.copyOfRange(data, 2000 + 40 * 1024, data.length), rest);
+        assertEquals(ByteString.of(data, 2000, 40 * 1024), large);
+        wrapper.close();
+    }
+}
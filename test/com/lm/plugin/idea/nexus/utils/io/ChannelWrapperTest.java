@@ -0,0 +1,241 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ScatteringByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Channel包装类：分散读入和集中写入（包括每次只接受一部分数据的Channel），以及拒绝非阻塞模式的Channel
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ChannelWrapperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 每次最多读出maxCount个字节的ScatteringByteChannel，记录多缓冲区读取的次数
+     */
+    private static class ShortScatteringChannel implements ScatteringByteChannel {
+        private final ByteBuffer data;
+        private final int maxCount;
+        int scatterCount;
+
+        ShortScatteringChannel(byte[] data, int maxCount) {
+            this.data = ByteBuffer.wrap(data);
+            this.maxCount = maxCount;
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) {
+            if (length > 1) scatterCount++;
+            if (!data.hasRemaining()) return -1;
+            long readCount = 0;
+            for (int i = offset; i < offset + length && readCount < maxCount && data.hasRemaining(); i++) {
+                readCount += transfer(dsts[i], (int) (maxCount - readCount));
+            }
+            return readCount;
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts) {
+            return read(dsts, 0, dsts.length);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!data.hasRemaining()) return -1;
+            return transfer(dst, maxCount);
+        }
+
+        private int transfer(ByteBuffer dst, int limit) {
+            int count = Math.min(Math.min(dst.remaining(), data.remaining()), limit);
+            ByteBuffer slice = data.duplicate();
+            slice.limit(slice.position() + count);
+            dst.put(slice);
+            data.position(data.position() + count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 每次最多接受maxCount个字节的GatheringByteChannel，记录多缓冲区写入的次数
+     */
+    private static class ShortGatheringChannel implements GatheringByteChannel {
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int maxCount;
+        int gatherCount;
+
+        ShortGatheringChannel(int maxCount) {
+            this.maxCount = maxCount;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            if (length > 1) gatherCount++;
+            long writeCount = 0;
+            for (int i = offset; i < offset + length && writeCount < maxCount; i++) {
+                writeCount += transfer(srcs[i], (int) (maxCount - writeCount));
+            }
+            return writeCount;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs) {
+            return write(srcs, 0, srcs.length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            return transfer(src, maxCount);
+        }
+
+        private int transfer(ByteBuffer src, int limit) {
+            int count = Math.min(src.remaining(), limit);
+            for (int i = 0; i < count; i++) {
+                written.write(src.get());
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void scatterReadWithShortReads() throws IOException {
+        byte[] data = randomBytes(300000);
+        for (int maxCount : new int[]{1000, 5000, 100000}) {
+            ShortScatteringChannel channel = new ShortScatteringChannel(data, maxCount);
+            ChannelInputStreamWrapper wrapper = new ChannelInputStreamWrapper(channel);
+            // 先读一部分，使尾部缓冲区只剩一部分空间
+            assertArrayEquals(Arrays.copyOf(data, 100), wrapper.readBytes(100));
+            assertArrayEquals(Arrays.copyOfRange(data, 100, data.length), wrapper.readBytes(data.length - 100));
+            assertTrue("maxCount=" + maxCount, channel.scatterCount > 0);
+            try {
+                wrapper.readByte();
+                fail();
+            } catch (EOFException expected) {
+                // 读完
+            }
+            wrapper.close();
+        }
+    }
+
+    @Test
+    public void scatterReadPastEnd() throws IOException {
+        byte[] data = randomBytes(10000);
+        ChannelInputStreamWrapper wrapper = new ChannelInputStreamWrapper(new ShortScatteringChannel(data, 3000));
+        try {
+            wrapper.readBytes(50000);
+            fail();
+        } catch (EOFException expected) {
+            // 数据不够
+        }
+        wrapper.close();
+    }
+
+    @Test
+    public void scatterReadFromFileChannel() throws IOException {
+        byte[] data = randomBytes(1024 * 1024 + 123);
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            ChannelInputStreamWrapper wrapper = new ChannelInputStreamWrapper(raf.getChannel());
+            assertArrayEquals(data, wrapper.readBytes(data.length));
+            wrapper.close();
+        }
+    }
+
+    @Test
+    public void gatherWriteWithShortWrites() throws IOException {
+        byte[] data = randomBytes(300000);
+        for (int maxCount : new int[]{1, 777, 5000, 1000000}) {
+            ShortGatheringChannel channel = new ShortGatheringChannel(maxCount);
+            ChannelOutputStreamWrapper wrapper = new ChannelOutputStreamWrapper(channel);
+            int off = 0;
+            for (int chunkSize : new int[]{10, 100000, 3, 50000}) {
+                wrapper.writeBytes(data, off, chunkSize);
+                off += chunkSize;
+            }
+            wrapper.writeBytes(data, off, data.length - off);
+            wrapper.flush();
+            assertArrayEquals("maxCount=" + maxCount, data, channel.written.toByteArray());
+            assertTrue("maxCount=" + maxCount, channel.gatherCount > 0);
+            wrapper.close();
+        }
+    }
+
+    @Test
+    public void nonBlockingChannelsRejected() throws IOException {
+        Pipe pipe = Pipe.open();
+        try {
+            pipe.source().configureBlocking(false);
+            pipe.sink().configureBlocking(false);
+            try {
+                new ChannelInputStreamWrapper(pipe.source());
+                fail();
+            } catch (IllegalArgumentException expected) {
+                // 非阻塞模式
+            }
+            try {
+                new ChannelOutputStreamWrapper(pipe.sink());
+                fail();
+            } catch (IllegalArgumentException expected) {
+                // 非阻塞模式
+            }
+
+            pipe.source().configureBlocking(true);
+            pipe.sink().configureBlocking(true);
+            ChannelOutputStreamWrapper sink = new ChannelOutputStreamWrapper(pipe.sink());
+            ChannelInputStreamWrapper source = new ChannelInputStreamWrapper(pipe.source());
+            sink.writeBytes(new byte[]{1, 2, 3}).flush();
+            assertArrayEquals(new byte[]{1, 2, 3}, source.readBytes(3));
+            sink.close();
+            source.close();
+        } finally {
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * 每次最多返回chunkSize个字节的输入流，用来模拟网络等短读取的数据源
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+class ChunkedInputStream extends ByteArrayInputStream {
+
+    private final int chunkSize;
+
+    ChunkedInputStream(byte[] data, int chunkSize) {
+        super(data);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) {
+        return super.read(b, off, Math.min(len, chunkSize));
+    }
+}
@@ -0,0 +1,126 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * ConvertUtils的大小端读写与ByteBuffer逐字节一致（包括非零起始下标和符号位）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ConvertUtilsTest {
+
+    private static final int COUNT = 1000;
+
+    // 起始下标
+    private static final int OFF = 3;
+
+    /**
+     * @return ByteBuffer按指定字节序写出的字节
+     */
+    private static byte[] expected(ByteOrder order, int width, long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(width).order(order);
+        if (width == 2) buffer.putShort((short) value);
+        else if (width == 4) buffer.putInt((int) value);
+        else buffer.putLong(value);
+        return buffer.array();
+    }
+
+    /**
+     * @return 从起始下标开始的width个字节
+     */
+    private static byte[] slice(byte[] dst, int width) {
+        byte[] slice = new byte[width];
+        System.arraycopy(dst, OFF, slice, 0, width);
+        return slice;
+    }
+
+    private static long[] values(long seed) {
+        Random random = new Random(seed);
+        long[] values = new long[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            values[i] = random.nextLong();
+        }
+        // 边界值
+        values[0] = 0;
+        values[1] = -1;
+        values[2] = Long.MIN_VALUE;
+        values[3] = Long.MAX_VALUE;
+        values[4] = 0x80;
+        values[5] = 0x8000;
+        values[6] = 0x80000000L;
+        return values;
+    }
+
+    @Test
+    public void shorts() {
+        byte[] dst = new byte[OFF + 8];
+        for (long value : values(2)) {
+            short content = (short) value;
+            byte[] big = expected(ByteOrder.BIG_ENDIAN, 2, content);
+            byte[] little = expected(ByteOrder.LITTLE_ENDIAN, 2, content);
+
+            ConvertUtils.putShort(dst, OFF, content);
+            assertArrayEquals(big, slice(dst, 2));
+            assertEquals(content, ConvertUtils.getShort(dst, OFF));
+            assertArrayEquals(big, ConvertUtils.short2Bytes(content));
+
+            ConvertUtils.putShortLE(dst, OFF, content);
+            assertArrayEquals(little, slice(dst, 2));
+            assertEquals(content, ConvertUtils.getShortLE(dst, OFF));
+            assertArrayEquals(little, ConvertUtils.short2BytesLE(content));
+
+            assertEquals(Short.reverseBytes(content), ConvertUtils.reverseBytesShort(content));
+        }
+    }
+
+    @Test
+    public void ints() {
+        byte[] dst = new byte[OFF + 8];
+        for (long value : values(4)) {
+            int content = (int) value;
+            byte[] big = expected(ByteOrder.BIG_ENDIAN, 4, content);
+            byte[] little = expected(ByteOrder.LITTLE_ENDIAN, 4, content);
+
+            ConvertUtils.putInt(dst, OFF, content);
+            assertArrayEquals(big, slice(dst, 4));
+            assertEquals(content, ConvertUtils.getInt(dst, OFF));
+            assertArrayEquals(big, ConvertUtils.int2Bytes(content));
+
+            ConvertUtils.putIntLE(dst, OFF, content);
+            assertArrayEquals(little, slice(dst, 4));
+            assertEquals(content, ConvertUtils.getIntLE(dst, OFF));
+            assertArrayEquals(little, ConvertUtils.int2BytesLE(content));
+
+            assertEquals(Integer.reverseBytes(content), ConvertUtils.reverseBytesInt(content));
+        }
+    }
+
+    @Test
+    public void longs() {
+        byte[] dst = new byte[OFF + 8];
+        for (long content : values(8)) {
+            byte[] big = expected(ByteOrder.BIG_ENDIAN, 8, content);
+            byte[] little = expected(ByteOrder.LITTLE_ENDIAN, 8, content);
+
+            ConvertUtils.putLong(dst, OFF, content);
+            assertArrayEquals(big, slice(dst, 8));
+            assertEquals(content, ConvertUtils.getLong(dst, OFF));
+            assertArrayEquals(big, ConvertUtils.long2Bytes(content));
+
+            ConvertUtils.putLongLE(dst, OFF, content);
+            assertArrayEquals(little, slice(dst, 8));
+            assertEquals(content, ConvertUtils.getLongLE(dst, OFF));
+            assertArrayEquals(little, ConvertUtils.long2BytesLE(content));
+
+            assertEquals(Long.reverseBytes(content), ConvertUtils.reverseBytesLong(content));
+        }
+    }
+}
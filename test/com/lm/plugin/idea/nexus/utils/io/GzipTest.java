@@ -0,0 +1,266 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 压缩和解压包装类：与JDK的GZIP、zlib流互通，检查GZIP尾部的CRC32和长度，Deflater/Inflater归还缓存池
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class GzipTest {
+
+    /**
+     * @return 部分可压缩（重复的单词）、部分随机的数据，压缩后仍跨越多个缓冲区
+     */
+    private static byte[] sampleData(int count) {
+        Random random = new Random(count);
+        String[] words = {"nexus", "maven", "gradle", "artifact", "upload", "中文", "\n"};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        while (out.size() < count) {
+            if (random.nextInt(10) == 0) {
+                byte[] noise = new byte[random.nextInt(200)];
+                random.nextBytes(noise);
+                out.write(noise, 0, noise.length);
+            } else {
+                byte[] word = words[random.nextInt(words.length)].getBytes(StandardCharsets.UTF_8);
+                out.write(word, 0, word.length);
+            }
+        }
+        return Arrays.copyOf(out.toByteArray(), count);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3000];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] compressed, boolean gzip) throws IOException {
+        InflaterInputStreamWrapper wrapper = new InflaterInputStreamWrapper(
+                new InputStreamWrapper(new ChunkedInputStream(compressed, 1500)), gzip);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            OutputStreamWrapper sink = new OutputStreamWrapper(out);
+            sink.writeAll(wrapper);
+            sink.close();
+            return out.toByteArray();
+        } finally {
+            wrapper.close();
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void deflaterOutputReadByGZIPInputStream() throws IOException {
+        byte[] data = sampleData(500000);
+        for (boolean direct : new boolean[]{false, true}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            OutputStreamWrapper sink = direct ? new ChannelOutputStreamWrapper(Channels.newChannel(out)) : new OutputStreamWrapper(out);
+            DeflaterOutputStreamWrapper wrapper = new DeflaterOutputStreamWrapper(sink, true);
+            for (int off = 0; off < data.length; off += 7777) {
+                wrapper.writeBytes(data, off, Math.min(7777, data.length - off));
+            }
+            wrapper.close();
+            assertArrayEquals("direct=" + direct, data, readAll(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+        }
+    }
+
+    @Test
+    public void deflaterOutputZlib() throws IOException {
+        byte[] data = sampleData(300000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DeflaterOutputStreamWrapper wrapper = new DeflaterOutputStreamWrapper(new OutputStreamWrapper(out), false);
+        wrapper.writeBytes(data);
+        wrapper.close();
+        assertArrayEquals(data, readAll(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void inflaterInputReadsGZIPOutputStream() throws IOException {
+        byte[] data = sampleData(500000);
+        assertArrayEquals(data, inflate(gzip(data), true));
+        assertArrayEquals(new byte[0], inflate(gzip(new byte[0]), true));
+    }
+
+    @Test
+    public void inflaterInputZlib() throws IOException {
+        byte[] data = sampleData(300000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream zlib = new DeflaterOutputStream(out)) {
+            zlib.write(data);
+        }
+        assertArrayEquals(data, inflate(out.toByteArray(), false));
+    }
+
+    @Test
+    public void inflaterInputFromDirectBuffers() throws IOException {
+        byte[] data = sampleData(400000);
+        InflaterInputStreamWrapper wrapper = new InflaterInputStreamWrapper(new ChannelInputStreamWrapper(
+                Channels.newChannel(new ChunkedInputStream(gzip(data), 5000))), true);
+        assertArrayEquals(data, wrapper.readBytes(data.length));
+        wrapper.close();
+    }
+
+    @Test
+    public void inflaterInputSkipsOptionalHeaderFields() throws IOException {
+        byte[] data = sampleData(100000);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(raw, deflater)) {
+            out.write(data);
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStreamWrapper wrapper = new OutputStreamWrapper(out);
+        // FHCRC | FEXTRA | FNAME | FCOMMENT
+        wrapper.writeShort((short) 0x1f8b).writeByte((byte) 8).writeByte((byte) 30).writeIntLE(0)
+                .writeByte((byte) 0).writeByte((byte) 3)
+                .writeShortLE((short) 4).writeIntLE(0x12345678)
+                .writeBytes("file.txt\0".getBytes(StandardCharsets.UTF_8))
+                .writeBytes("comment\0".getBytes(StandardCharsets.UTF_8))
+                .writeShortLE((short) 0)
+                .writeBytes(raw.toByteArray())
+                .writeIntLE((int) crc.getValue()).writeIntLE(data.length);
+        wrapper.close();
+        assertArrayEquals(data, inflate(out.toByteArray(), true));
+    }
+
+    @Test
+    public void trailerCrcMismatch() throws IOException {
+        byte[] compressed = gzip(sampleData(50000));
+        compressed[compressed.length - 8] ^= 1;
+        try {
+            inflate(compressed, true);
+            fail();
+        } catch (IOException e) {
+            assertEquals("corrupt GZIP trailer: crc mismatch", e.getMessage());
+        }
+    }
+
+    @Test
+    public void trailerSizeMismatch() throws IOException {
+        byte[] compressed = gzip(sampleData(50000));
+        compressed[compressed.length - 1] ^= 1;
+        try {
+            inflate(compressed, true);
+            fail();
+        } catch (IOException e) {
+            assertEquals("corrupt GZIP trailer: size mismatch", e.getMessage());
+        }
+    }
+
+    @Test
+    public void truncatedStream() throws IOException {
+        byte[] compressed = gzip(sampleData(50000));
+        try {
+            inflate(Arrays.copyOf(compressed, compressed.length / 2), true);
+            fail();
+        } catch (IOException expected) {
+            // 压缩流提前结束
+        }
+    }
+
+    @Test
+    public void codecsReturnedToPool() throws IOException {
+        for (boolean gzip : new boolean[]{false, true}) {
+            // 先取空缓存池，之后的个数变化只来自被测的包装类
+            List<Inflater> inflaters = new ArrayList<>();
+            while (ZipCodecPool.inflaterCount(gzip) > 0) inflaters.add(ZipCodecPool.takeInflater(gzip));
+            List<Deflater> deflaters = new ArrayList<>();
+            while (ZipCodecPool.deflaterCount(gzip) > 0) {
+                deflaters.add(ZipCodecPool.takeDeflater(Deflater.DEFAULT_COMPRESSION, Deflater.DEFAULT_STRATEGY, gzip));
+            }
+
+            byte[] data = sampleData(20000);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DeflaterOutputStreamWrapper deflater = new DeflaterOutputStreamWrapper(new OutputStreamWrapper(out), gzip);
+            deflater.writeBytes(data);
+            assertEquals(0, ZipCodecPool.deflaterCount(gzip));
+            deflater.close();
+            assertEquals(1, ZipCodecPool.deflaterCount(gzip));
+            // 重复关闭不会重复归还
+            deflater.close();
+            assertEquals(1, ZipCodecPool.deflaterCount(gzip));
+
+            assertArrayEquals(data, inflate(out.toByteArray(), gzip));
+            assertEquals(1, ZipCodecPool.inflaterCount(gzip));
+
+            // 解压失败时同样归还
+            byte[] corrupt = out.toByteArray();
+            corrupt[corrupt.length / 2] ^= 0x55;
+            corrupt[corrupt.length - 5] ^= 0x55;
+            try {
+                inflate(corrupt, gzip);
+            } catch (IOException expected) {
+                // 数据损坏
+            }
+            assertEquals(1, ZipCodecPool.inflaterCount(gzip));
+
+            // 写入sink失败时同样归还
+            DeflaterOutputStreamWrapper failing = new DeflaterOutputStreamWrapper(new OutputStreamWrapper(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("write failed");
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    throw new IOException("write failed");
+                }
+            }), gzip);
+            // 使用的是刚才归还的Deflater
+            assertEquals(0, ZipCodecPool.deflaterCount(gzip));
+            failing.writeBytes(data);
+            try {
+                failing.close();
+                fail();
+            } catch (UncheckedIOException expected) {
+                // 写入失败
+            }
+            assertEquals(1, ZipCodecPool.deflaterCount(gzip));
+
+            for (Inflater inflater : inflaters) ZipCodecPool.recycle(inflater, gzip);
+            for (Deflater codec : deflaters) ZipCodecPool.recycle(codec, gzip);
+        }
+    }
+}
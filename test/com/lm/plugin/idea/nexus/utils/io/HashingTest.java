@@ -0,0 +1,169 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 摘要包装类：跨越多个缓冲区、堆内和堆外缓冲区、整段移动和部分复制时，结果与MessageDigest一致
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class HashingTest {
+
+    private static final String[] ALGORITHMS = {"MD5", "SHA-1", "SHA-256", "SHA-512"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] expected(String algorithm, byte[] data, int len) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance(algorithm);
+        digest.update(data, 0, len);
+        return digest.digest();
+    }
+
+    private static void assertDigests(HashingInputStreamWrapper wrapper, byte[] data) throws NoSuchAlgorithmException {
+        for (String algorithm : ALGORITHMS) {
+            assertArrayEquals(algorithm, expected(algorithm, data, data.length), wrapper.digest(algorithm).toByteArray());
+        }
+    }
+
+    private static void assertDigests(HashingOutputStreamWrapper wrapper, byte[] data, int len) throws Exception {
+        for (String algorithm : ALGORITHMS) {
+            assertArrayEquals(algorithm, expected(algorithm, data, len), wrapper.digest(algorithm).toByteArray());
+        }
+    }
+
+    /**
+     * 按不同大小分块读出全部数据
+     */
+    private static byte[] readInVaryingChunks(InputStreamWrapper wrapper, int length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int chunkSize = 1;
+        while (out.size() < length) {
+            int count = Math.min(chunkSize, length - out.size());
+            out.write(wrapper.readBytes(count));
+            chunkSize = chunkSize * 3 + 1;
+            if (chunkSize > 20000) chunkSize = 1;
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void inputMatchesMessageDigest() throws Exception {
+        byte[] data = randomBytes(200000);
+        HashingInputStreamWrapper wrapper = new HashingInputStreamWrapper(
+                new InputStreamWrapper(new ChunkedInputStream(data, 777)), ALGORITHMS);
+        assertArrayEquals(data, readInVaryingChunks(wrapper, data.length));
+        assertDigests(wrapper, data);
+        // 摘要可以重复获取
+        assertDigests(wrapper, data);
+        wrapper.close();
+    }
+
+    @Test
+    public void inputFromDirectBuffers() throws Exception {
+        byte[] data = randomBytes(150000);
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            HashingInputStreamWrapper wrapper = new HashingInputStreamWrapper(
+                    new ChannelInputStreamWrapper(raf.getChannel()), ALGORITHMS);
+            assertArrayEquals(data, readInVaryingChunks(wrapper, data.length));
+            assertDigests(wrapper, data);
+            wrapper.close();
+        }
+    }
+
+    @Test
+    public void outputMatchesMessageDigest() throws Exception {
+        byte[] data = randomBytes(200000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HashingOutputStreamWrapper wrapper = new HashingOutputStreamWrapper(new OutputStreamWrapper(out), ALGORITHMS);
+
+        int off = 0;
+        int chunkSize = 1;
+        while (off < data.length) {
+            int count = Math.min(chunkSize, data.length - off);
+            wrapper.writeBytes(data, off, count);
+            off += count;
+            chunkSize = chunkSize * 3 + 1;
+            if (chunkSize > 20000) chunkSize = 1;
+            // 中途获取摘要包含到目前为止写入的全部数据，不影响后续计算
+            if (off > 100000 && off - count <= 100000) assertDigests(wrapper, data, off);
+        }
+        assertDigests(wrapper, data, data.length);
+        wrapper.close();
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void outputFromDirectBuffers() throws Exception {
+        byte[] data = randomBytes(150000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HashingOutputStreamWrapper wrapper = new HashingOutputStreamWrapper(
+                new ChannelOutputStreamWrapper(Channels.newChannel(out)), ALGORITHMS);
+        wrapper.writeAll(new InputStreamWrapper(new ChunkedInputStream(data, 5000)));
+        assertDigests(wrapper, data, data.length);
+        wrapper.close();
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void fileToFileBypassesTransferTo() throws Exception {
+        byte[] data = randomBytes(300000);
+        File source = folder.newFile();
+        File target = folder.newFile();
+        Files.write(source.toPath(), data);
+
+        InputStreamWrapper input = new InputStreamWrapper(new FileInputStream(source));
+        // 先读一部分，剩余部分走writeAll
+        byte[] head = input.readBytes(1234);
+        HashingOutputStreamWrapper wrapper = new HashingOutputStreamWrapper(
+                new OutputStreamWrapper(new FileOutputStream(target)), ALGORITHMS);
+        wrapper.writeBytes(head);
+        assertEquals(data.length - head.length, wrapper.writeAll(input));
+        // 两端都是文件，但数据没有绕过摘要
+        assertDigests(wrapper, data, data.length);
+        wrapper.close();
+        input.close();
+        assertArrayEquals(data, Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void mappedSourceIntoHashingOutput() throws Exception {
+        byte[] data = randomBytes(250000);
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HashingOutputStreamWrapper wrapper = new HashingOutputStreamWrapper(new OutputStreamWrapper(out), ALGORITHMS);
+        MappedInputStreamWrapper mapped = new MappedInputStreamWrapper(file);
+        wrapper.writeAll(mapped);
+        mapped.close();
+        assertDigests(wrapper, data, data.length);
+        wrapper.close();
+        assertArrayEquals(data, out.toByteArray());
+    }
+}
@@ -0,0 +1,152 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferLeakDetector;
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * IO统计：读写字节数和次数、开关、清零、缓冲池的近似计数，以及读取泄漏个数没有副作用
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class IOMetricsTest {
+
+    private final IOMetrics metrics = IOMetrics.getInstance();
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        enabled = metrics.isEnabled();
+        metrics.setEnabled(true);
+        metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        metrics.setEnabled(enabled);
+        metrics.reset();
+    }
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void readAndWriteCounters() throws IOException {
+        byte[] data = randomBytes(100000);
+        InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(data, 1000));
+        input.readBytes(data.length);
+        input.close();
+
+        assertEquals(data.length, metrics.getBytesRead());
+        // 每次最多读出1000个字节
+        assertTrue(metrics.getReadCount() >= 100);
+        assertEquals((double) metrics.getBytesRead() / metrics.getReadCount(), metrics.getAverageBytesPerRead(), 1e-9);
+
+        OutputStreamWrapper output = new OutputStreamWrapper(new ByteArrayOutputStream());
+        output.writeBytes(data);
+        output.close();
+
+        assertEquals(data.length, metrics.getBytesWritten());
+        assertTrue(metrics.getWriteCount() > 0);
+        assertEquals((double) metrics.getBytesWritten() / metrics.getWriteCount(), metrics.getAverageBytesPerWrite(), 1e-9);
+
+        IOMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(metrics.getBytesRead(), snapshot.bytesRead);
+        assertEquals(metrics.getReadCount(), snapshot.readCount);
+        assertEquals(metrics.getBytesWritten(), snapshot.bytesWritten);
+        assertEquals(metrics.getWriteCount(), snapshot.writeCount);
+
+        metrics.reset();
+        assertEquals(0, metrics.getBytesRead());
+        assertEquals(0, metrics.getReadCount());
+        assertEquals(0, metrics.getBytesWritten());
+        assertEquals(0, metrics.getWriteCount());
+        assertEquals(0, metrics.getAverageBytesPerRead(), 0);
+    }
+
+    @Test
+    public void disabledRecordsNothing() throws IOException {
+        metrics.setEnabled(false);
+        byte[] data = randomBytes(10000);
+        InputStreamWrapper input = new InputStreamWrapper(new ByteArrayInputStream(data));
+        OutputStreamWrapper output = new OutputStreamWrapper(new ByteArrayOutputStream());
+        output.writeAll(input);
+        output.close();
+        input.close();
+        assertEquals(0, metrics.getBytesRead());
+        assertEquals(0, metrics.getReadCount());
+        assertEquals(0, metrics.getBytesWritten());
+        assertEquals(0, metrics.getWriteCount());
+    }
+
+    @Test
+    public void outstandingBytesFollowPoolCounters() {
+        // 其他测试很少使用的大小，避免互相影响
+        IOBufferPool pool = IOBufferPool.getInstance(512 * 1024);
+        long outstanding = metrics.getOutstandingBytes();
+        long hit = metrics.getPoolHitCount() + metrics.getPoolMissCount();
+
+        IOBuffer first = pool.take();
+        IOBuffer second = pool.take();
+        assertEquals(outstanding + 2L * pool.getSegmentSize(), metrics.getOutstandingBytes());
+        assertEquals(hit + 2, metrics.getPoolHitCount() + metrics.getPoolMissCount());
+
+        long recycled = metrics.getPoolRecycleCount() + metrics.getPoolOverflowCount();
+        pool.recycle(first);
+        pool.recycle(second);
+        assertEquals(outstanding, metrics.getOutstandingBytes());
+        assertEquals(recycled + 2, metrics.getPoolRecycleCount() + metrics.getPoolOverflowCount());
+    }
+
+    @Test(timeout = 30000)
+    public void bufferLeakCountHasNoSideEffect() throws InterruptedException {
+        int samplingInterval = IOBufferLeakDetector.getSamplingInterval();
+        AtomicInteger reported = new AtomicInteger();
+        IOBufferLeakDetector.setReporter(leak -> reported.incrementAndGet());
+        try {
+            IOBufferLeakDetector.setSamplingInterval(1);
+            IOBufferLeakDetector.reportLeaks();
+            long leakCount = metrics.getBufferLeakCount();
+
+            // 取出后不归还
+            IOBufferPool.getInstance(256 * 1024).take();
+
+            // 读取属性不会处理已被GC回收的记录
+            for (int i = 0; i < 20; i++) {
+                System.gc();
+                Thread.sleep(10);
+                assertEquals(leakCount, metrics.getBufferLeakCount());
+            }
+            assertEquals(0, reported.get());
+
+            // 显式报告之后计入
+            while (IOBufferLeakDetector.reportLeaks() == 0) {
+                System.gc();
+                Thread.sleep(10);
+            }
+            assertEquals(1, reported.get());
+            assertEquals(leakCount + 1, metrics.getBufferLeakCount());
+        } finally {
+            IOBufferLeakDetector.setSamplingInterval(samplingInterval);
+            IOBufferLeakDetector.setReporter(leak -> {
+            });
+        }
+    }
+}
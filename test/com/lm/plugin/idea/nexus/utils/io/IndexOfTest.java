@@ -0,0 +1,110 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 按字（8个字节）查找：字内每个偏移、0x80以上的字节、堆外缓冲区、跨缓冲区的匹配
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class IndexOfTest {
+
+    @Test
+    public void matchAtEveryOffsetWithinWord() {
+        for (IOBuffer buffer : new IOBuffer[]{new IOBuffer(64), IOBuffer.allocateDirect(64)}) {
+            for (int from = 0; from < 8; from++) {
+                for (int offset = 0; offset < 16; offset++) {
+                    fill(buffer, (byte) 'a');
+                    int index = from + offset;
+                    buffer.put(index, (byte) '\n');
+                    assertEquals("from=" + from + " offset=" + offset, index, buffer.indexOf((byte) '\n', from, 64));
+                    assertEquals("from=" + from + " offset=" + offset, index,
+                            buffer.indexOfAny(new byte[]{'\r', '\n'}, from, 64));
+                    // 结束位置之外的匹配不算
+                    assertEquals(-1, buffer.indexOf((byte) '\n', from, index));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void highBytes() {
+        IOBuffer buffer = new IOBuffer(64);
+        for (int value = 0; value < 256; value++) {
+            byte content = (byte) value;
+            for (int index = 0; index < 16; index++) {
+                // 填充只有最高位不同的字节，以及比目标大1的字节（借位容易出错的情况）
+                fill(buffer, (byte) (value ^ 0x80));
+                buffer.put(index + 1, (byte) (value + 1));
+                buffer.put(index, content);
+                assertEquals("value=" + value + " index=" + index, index, buffer.indexOf(content, 0, 64));
+                assertEquals("value=" + value + " index=" + index, index,
+                        buffer.indexOfAny(new byte[]{(byte) (value ^ 0x40), content}, 0, 64));
+            }
+        }
+    }
+
+    @Test
+    public void matchesNaiveSearchOnRandomData() {
+        Random random = new Random(5);
+        byte[] data = new byte[300];
+        IOBuffer heap = new IOBuffer(data.length);
+        IOBuffer direct = IOBuffer.allocateDirect(data.length);
+        for (int round = 0; round < 200; round++) {
+            // 字节值范围小，匹配密集
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (0x7c + random.nextInt(8));
+            }
+            heap.put(0, data, 0, data.length);
+            direct.put(0, data, 0, data.length);
+            byte content = (byte) (0x7c + random.nextInt(8));
+            int from = random.nextInt(data.length);
+            int to = from + random.nextInt(data.length - from + 1);
+            int expected = naiveIndexOf(data, content, from, to);
+            assertEquals(expected, heap.indexOf(content, from, to));
+            assertEquals(expected, direct.indexOf(content, from, to));
+        }
+    }
+
+    @Test
+    public void matchCrossingSegmentBoundary() throws IOException {
+        int segmentSize = IOBuffer.BUFFER_SIZE;
+        for (int index = segmentSize - 10; index <= segmentSize + 10; index++) {
+            byte[] data = new byte[segmentSize * 3];
+            Arrays.fill(data, (byte) 0xe0);
+            data[index] = (byte) 0xff;
+            // 每次只读入一部分，查找在读入之间继续
+            InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(data, 1000));
+            try {
+                assertEquals(index, input.indexOf((byte) 0xff));
+                assertEquals(index, input.indexOfAny((byte) 0x0a, (byte) 0xff));
+                assertEquals(-1, input.indexOf((byte) 0xff, index + 1));
+            } finally {
+                input.close();
+            }
+        }
+    }
+
+    private static void fill(IOBuffer buffer, byte content) {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, content);
+        }
+        buffer.pos = 0;
+        buffer.limit = buffer.capacity();
+    }
+
+    private static int naiveIndexOf(byte[] data, byte content, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == content) return i;
+        }
+        return -1;
+    }
+}
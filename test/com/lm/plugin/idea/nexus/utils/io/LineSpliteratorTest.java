@@ -0,0 +1,142 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 按行读取文件：行的顺序、读完和异常时关闭映射、提前结束时由Stream关闭
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class LineSpliteratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelLinesKeepFileOrder() throws IOException {
+        List<String> expected = lines(100000);
+        File file = write(expected);
+        try (Stream<String> stream = IOUtils.lines(file, "UTF-8")) {
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void tryAdvanceAfterEndReturnsFalse() throws IOException {
+        FileChannel channel = new RandomAccessFile(write(lines(3)), "r").getChannel();
+        try (LineSpliterator spliterator = new LineSpliterator(channel, "UTF-8")) {
+            List<String> result = new ArrayList<>();
+            while (spliterator.tryAdvance(result::add)) ;
+            assertEquals(lines(3), result);
+
+            assertFalse(spliterator.tryAdvance(result::add));
+            assertEquals(0, spliterator.estimateSize());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void estimateSizeIsRemainingBytes() throws IOException {
+        List<String> lines = lines(20000);
+        File file = write(lines);
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try (LineSpliterator spliterator = new LineSpliterator(channel, "UTF-8")) {
+            long remaining = file.length();
+            assertEquals(remaining, spliterator.estimateSize());
+            for (String line : lines) {
+                assertTrue(spliterator.tryAdvance(result -> assertEquals(line, result)));
+                // 每行都是ASCII加一个换行符
+                remaining -= line.length() + 1;
+                assertEquals(remaining, spliterator.estimateSize());
+            }
+            assertFalse(spliterator.tryAdvance(result -> fail()));
+            assertEquals(0, spliterator.estimateSize());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void estimateSizeBeyondOneMapping() throws IOException {
+        // 稀疏文件：第一行之后是超过一次映射大小的空字节，只读第一行
+        File file = folder.newFile();
+        long length = MappedInputStreamWrapper.MAP_SIZE + 1024 * 1024;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write("first\n".getBytes(StandardCharsets.UTF_8));
+            raf.setLength(length);
+        }
+        FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+        try (LineSpliterator spliterator = new LineSpliterator(channel, "UTF-8")) {
+            assertTrue(spliterator.tryAdvance(result -> assertEquals("first", result)));
+            // 缓冲的只有第一次映射的区域，剩余字节数包括还没有映射的部分
+            assertEquals(length - 6, spliterator.estimateSize());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void consumerExceptionClosesReader() throws IOException {
+        FileChannel channel = new RandomAccessFile(write(lines(3)), "r").getChannel();
+        try (LineSpliterator spliterator = new LineSpliterator(channel, "UTF-8")) {
+            try {
+                spliterator.tryAdvance(line -> {
+                    throw new IllegalStateException(line);
+                });
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals("line0", e.getMessage());
+            }
+
+            assertFalse(spliterator.tryAdvance(line -> fail(line)));
+            assertEquals(0, spliterator.estimateSize());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test
+    public void shortCircuitThenCloseReleasesFile() throws IOException {
+        File file = write(lines(100000));
+        try (Stream<String> stream = IOUtils.lines(file, "UTF-8")) {
+            Optional<String> first = stream.filter(line -> line.endsWith("7")).findFirst();
+            assertEquals("line7", first.orElse(null));
+        }
+        assertTrue(file.delete());
+    }
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("line" + i);
+        }
+        return lines;
+    }
+
+    private File write(List<String> lines) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        return file;
+    }
+}
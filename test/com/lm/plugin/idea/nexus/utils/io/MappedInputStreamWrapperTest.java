@@ -0,0 +1,130 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * MappedInputStreamWrapper的seek和直接传输
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class MappedInputStreamWrapperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void seekDiscardsBufferedRegion() throws IOException {
+        byte[] data = randomBytes(64 * 1024);
+        MappedInputStreamWrapper input = new MappedInputStreamWrapper(write(data));
+        try {
+            assertEquals(data[0], input.readByte());
+            input.seek(5000);
+            assertEquals(5000, input.position());
+            assertEquals(data[5000], input.readByte());
+            assertEquals(5001, input.position());
+
+            input.seek(data.length);
+            assertEquals(data.length, input.position());
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void seekBeyondEndIsRejected() throws IOException {
+        MappedInputStreamWrapper input = new MappedInputStreamWrapper(write(randomBytes(10)));
+        try {
+            input.seek(11);
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void writeAllToFileTransfersRemainingData() throws IOException {
+        byte[] data = randomBytes(300 * 1024);
+        MappedInputStreamWrapper input = new MappedInputStreamWrapper(write(data));
+        File target = folder.newFile();
+        OutputStreamWrapper output = IOUtils.outputStreamWrapper(target, false);
+        try {
+            input.seek(1000);
+            assertEquals(data.length - 1000, output.writeAll(input));
+            output.flush();
+            assertEquals(data.length, input.position());
+        } finally {
+            input.close();
+            output.close();
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 1000, data.length), Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void writeAllStopsAtRangeEnd() throws IOException {
+        byte[] data = randomBytes(100 * 1024);
+        FileChannel channel = new RandomAccessFile(write(data), "r").getChannel();
+        File target = folder.newFile();
+        OutputStreamWrapper output = IOUtils.outputStreamWrapper(target, false);
+        try {
+            MappedInputStreamWrapper input = new MappedInputStreamWrapper(channel, 100, 20000);
+            assertEquals(19900, output.writeAll(input));
+            output.flush();
+            input.close();
+            // 区域读取不关闭共享的channel，也不改变channel的position
+            assertEquals(0, channel.position());
+        } finally {
+            output.close();
+            channel.close();
+        }
+        assertArrayEquals(Arrays.copyOfRange(data, 100, 20000), Files.readAllBytes(target.toPath()));
+    }
+
+    @Test
+    public void transferToStreamCopiesMappedRegions() throws IOException {
+        byte[] data = randomBytes(3 * 1024 * 1024 + 123);
+        MappedInputStreamWrapper input = new MappedInputStreamWrapper(write(data));
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        OutputStreamWrapper output = new OutputStreamWrapper(target);
+        try {
+            assertEquals(data[0], input.readByte());
+            assertEquals(data.length - 1, input.transferTo(output, data.length - 1));
+            // 映射区域没有接到输出的缓冲区链，源关闭（解除映射）后仍然可以写出
+            for (IOBuffer buffer = output.head; buffer != null; buffer = buffer.next == output.head ? null : buffer.next) {
+                assertFalse(buffer.shared);
+            }
+        } finally {
+            input.close();
+        }
+        output.flush();
+        output.close();
+        assertArrayEquals(Arrays.copyOfRange(data, 1, data.length), target.toByteArray());
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+        return file;
+    }
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,130 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * InputStreamWrapper的mark/reset、seek和随机访问
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class MarkResetSeekTest {
+
+    private static final byte[] DATA = new byte[IOBuffer.BUFFER_SIZE * 8 + 123];
+
+    static {
+        new Random(7).nextBytes(DATA);
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resetRereadsAcrossSegments() throws IOException {
+        InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(DATA, 1000));
+        input.skip(10);
+        input.mark(DATA.length);
+        byte[] first = input.readBytes(IOBuffer.BUFFER_SIZE * 3 + 5);
+        input.reset();
+        assertArrayEquals(first, input.readBytes(first.length));
+
+        // 标记仍然有效，可以再次回退
+        input.reset();
+        assertArrayEquals(Arrays.copyOfRange(DATA, 10, DATA.length), input.readBytes(DATA.length - 10));
+    }
+
+    @Test
+    public void markBeyondReadLimitIsInvalid() throws IOException {
+        InputStreamWrapper input = new InputStreamWrapper(new ByteArrayInputStream(DATA));
+        input.mark(100);
+        input.skip(IOBuffer.BUFFER_SIZE * 3);
+        assertResetFails(input);
+    }
+
+    @Test
+    public void unmarkAndTransferInvalidateMark() throws IOException {
+        InputStreamWrapper input = new InputStreamWrapper(new ByteArrayInputStream(DATA));
+        assertResetFails(input);
+
+        input.mark(DATA.length);
+        input.readByte();
+        input.unmark();
+        assertResetFails(input);
+
+        input.mark(DATA.length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        input.transferTo(new OutputStreamWrapper(out), IOBuffer.BUFFER_SIZE * 4);
+        assertResetFails(input);
+    }
+
+    @Test
+    public void seekOnFile() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), DATA);
+        InputStreamWrapper input = IOUtils.inputStreamWrapper(file);
+        try {
+            input.readByte();
+            input.seek(DATA.length - 22);
+            assertEquals(DATA.length - 22, input.position());
+            assertArrayEquals(Arrays.copyOfRange(DATA, DATA.length - 22, DATA.length), input.readBytes(22));
+
+            input.seek(5);
+            assertEquals(DATA[5], input.readByte());
+            assertEquals(6, input.position());
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void seekWithoutFileChannelIsUnsupported() throws IOException {
+        new InputStreamWrapper(new ByteArrayInputStream(DATA)).seek(1);
+    }
+
+    @Test
+    public void randomAccessOverManySegments() throws IOException {
+        InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(DATA, 777));
+        assertTrue(input.rangeEquals(DATA.length - 3, Arrays.copyOfRange(DATA, DATA.length - 3, DATA.length)));
+        assertFalse(input.rangeEquals(DATA.length - 3, new byte[4]));
+
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(DATA.length);
+            assertEquals(DATA[index], input.valueOf(index));
+        }
+
+        // 头部变化后目录重建
+        input.skip(IOBuffer.BUFFER_SIZE + 17);
+        int base = IOBuffer.BUFFER_SIZE + 17;
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(DATA.length - base);
+            assertEquals(DATA[base + index], input.valueOf(index));
+        }
+    }
+
+    private static void assertResetFails(InputStreamWrapper input) {
+        try {
+            input.reset();
+            fail("reset should fail");
+        } catch (IOException expected) {
+            assertEquals("mark invalid", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * OutputStreamWrapper从InputStreamWrapper移动数据
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class OutputStreamWrapperTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void partialTransferFromMappedSegmentKeepsOneSegmentBuffered() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        new Random(1).nextBytes(data);
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordingOutputStreamWrapper sink = new RecordingOutputStreamWrapper(out);
+        MappedInputStreamWrapper source = new MappedInputStreamWrapper(file);
+        try {
+            // 先读入一个字节，整个文件映射成一个缓冲区，传输的数量小于这个缓冲区时走复制分支
+            source.readByte();
+            source.transferTo(sink, data.length - 100);
+            sink.flush();
+        } finally {
+            source.close();
+            sink.close();
+        }
+
+        assertArrayEquals(Arrays.copyOfRange(data, 1, data.length - 99), out.toByteArray());
+        // 映射区域按块复制，缓冲的数据不超过一块
+        assertTrue("maxBufferedCount=" + sink.maxBufferedCount, sink.maxBufferedCount <= IOBufferPool.MAX_SIZE);
+    }
+
+    @Test
+    public void directSegmentsAreWrittenWithoutSmallBounceCopies() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        new Random(2).nextBytes(data);
+
+        CountingOutputStream out = new CountingOutputStream();
+        OutputStreamWrapper sink = new OutputStreamWrapper(out);
+        // 64KB的堆外缓冲区整段移动到输出
+        ChannelInputStreamWrapper source = new ChannelInputStreamWrapper(Channels.newChannel(new ByteArrayInputStream(data)), 64 * 1024);
+        try {
+            sink.writeAll(source);
+            sink.flush();
+        } finally {
+            source.close();
+            sink.close();
+        }
+
+        assertArrayEquals(data, out.toByteArray());
+        // 每次写入至少8KB（Channels.newChannel的分块大小），不是每2KB写一次
+        assertTrue("writeCount=" + out.writeCount, out.writeCount <= data.length / 8192 + 16);
+    }
+
+    @Test(timeout = 10000)
+    public void transferToFallsBackWhenChannelAcceptsNothing() throws IOException {
+        byte[] data = new byte[100 * 1024];
+        new Random(3).nextBytes(data);
+        File file = folder.newFile();
+        Files.write(file.toPath(), data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChannelOutputStreamWrapper sink = new ChannelOutputStreamWrapper(new ReluctantChannel(out));
+        MappedInputStreamWrapper source = new MappedInputStreamWrapper(file);
+        try {
+            assertEquals(data.length, source.transferTo(sink, data.length));
+            sink.flush();
+        } finally {
+            source.close();
+            sink.close();
+        }
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    /**
+     * 记录写入次数
+     */
+    private static class CountingOutputStream extends ByteArrayOutputStream {
+
+        int writeCount;
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            writeCount++;
+            super.write(b, off, len);
+        }
+    }
+
+    /**
+     * 来自FileChannel.transferTo的写入（JDK的8KB临时缓冲区）一个字节也不接受，模拟暂时不可写的非阻塞Channel
+     */
+    private static class ReluctantChannel implements WritableByteChannel {
+
+        private final ByteArrayOutputStream out;
+
+        ReluctantChannel(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            if (src.capacity() == 8192) return 0;
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            out.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * 记录提交写入时缓冲的最大字节数
+     */
+    private static class RecordingOutputStreamWrapper extends OutputStreamWrapper {
+
+        long maxBufferedCount;
+
+        RecordingOutputStreamWrapper(ByteArrayOutputStream out) {
+            super(out);
+        }
+
+        @Override
+        protected void realWrite(long needWriteCount) throws IOException {
+            maxBufferedCount = Math.max(maxBufferedCount, size);
+            super.realWrite(needWriteCount);
+        }
+    }
+}
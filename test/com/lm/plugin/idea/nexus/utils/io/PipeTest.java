@@ -0,0 +1,137 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBufferPool;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Pipe的跨线程传输、关闭写入端后读完剩余数据、关闭读取端后回收队列并让写入端失败
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class PipeTest {
+
+    @Test
+    public void sinkCloseThenSourceReadsRemainingAndEof() throws IOException {
+        byte[] data = randomBytes(10000);
+        Pipe pipe = new Pipe(16);
+        OutputStreamWrapper sink = pipe.sink();
+        InputStreamWrapper source = pipe.source();
+
+        sink.writeBytes(data);
+        sink.close();
+
+        assertArrayEquals(data, source.readBytes(data.length));
+        try {
+            source.readByte();
+            fail();
+        } catch (EOFException expected) {
+            // sink关闭并且读完后返回EOF
+        }
+        source.close();
+    }
+
+    @Test
+    public void sourceCloseFailsSink() throws IOException {
+        Pipe pipe = new Pipe(4);
+        OutputStreamWrapper sink = pipe.sink();
+        pipe.source().close();
+
+        try {
+            sink.writeBytes(randomBytes(5000)).flush();
+            fail();
+        } catch (IOException e) {
+            assertEquals("pipe source closed", e.getMessage());
+        }
+        // 读取端已关闭时丢弃剩余数据，不抛出异常
+        sink.close();
+    }
+
+    @Test
+    public void crossThreadTransfer() throws Exception {
+        byte[] data = randomBytes(1024 * 1024 + 123);
+        // 队列只有两个缓冲区，写入端会反复挂起等待读取端
+        Pipe pipe = new Pipe(2);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                OutputStreamWrapper sink = pipe.sink();
+                Random random = new Random(1);
+                int off = 0;
+                while (off < data.length) {
+                    int len = Math.min(data.length - off, 1 + random.nextInt(5000));
+                    sink.writeBytes(data, off, len);
+                    off += len;
+                }
+                sink.close();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "pipe-writer");
+        writer.start();
+
+        InputStreamWrapper source = pipe.source();
+        try {
+            assertArrayEquals(data, source.readBytes(data.length));
+            assertEquals("", source.readAllUTF8());
+        } finally {
+            source.close();
+        }
+        writer.join(10000);
+        assertFalse(writer.isAlive());
+        if (error.get() != null) throw new AssertionError(error.get());
+    }
+
+    @Test
+    public void sourceCloseDrainsQueueAndWakesSink() throws Exception {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        Pipe pipe = new Pipe(2);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                OutputStreamWrapper sink = pipe.sink();
+                byte[] segment = new byte[pool.getSegmentSize()];
+                while (true) {
+                    sink.writeBytes(segment).flush();
+                }
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        }, "pipe-writer");
+        writer.start();
+
+        // 等待队列写满，写入端挂起
+        long deadline = System.currentTimeMillis() + 10000;
+        while (writer.getState() != Thread.State.WAITING) {
+            assertTrue("writer never blocked", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+
+        long returnedBefore = pool.getRecycleCount() + pool.getOverflowCount();
+        pipe.source().close();
+        writer.join(10000);
+        assertFalse(writer.isAlive());
+
+        // 队列中的两个缓冲区和写入端正在放入的缓冲区都归还缓冲池
+        assertTrue(pool.getRecycleCount() + pool.getOverflowCount() - returnedBefore >= 3);
+        assertTrue(error.get() instanceof IOException);
+        assertEquals("pipe source closed", error.get().getMessage());
+    }
+
+    private static byte[] randomBytes(int count) {
+        byte[] bytes = new byte[count];
+        new Random(count).nextBytes(bytes);
+        return bytes;
+    }
+}
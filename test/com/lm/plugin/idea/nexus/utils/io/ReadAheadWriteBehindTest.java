@@ -0,0 +1,198 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 预读和后台写入：数据完整、有界队列下的往返，以及后台线程的任何异常都能传给调用方而不是一直等待
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class ReadAheadWriteBehindTest {
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 读出指定个数之后抛出异常的InputStream
+     */
+    private static class FailingInputStream extends InputStream {
+        private final InputStream data;
+        private final RuntimeException runtimeException;
+        private final IOException ioException;
+
+        FailingInputStream(byte[] data, RuntimeException runtimeException, IOException ioException) {
+            this.data = new ChunkedInputStream(data, 1000);
+            this.runtimeException = runtimeException;
+            this.ioException = ioException;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int readCount = data.read(b, off, len);
+            if (readCount != -1) return readCount;
+            if (runtimeException != null) throw runtimeException;
+            throw ioException;
+        }
+    }
+
+    /**
+     * 写入指定个数之后抛出异常的OutputStream
+     */
+    private static class FailingOutputStream extends OutputStream {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int failAfter;
+        private final RuntimeException runtimeException;
+
+        FailingOutputStream(int failAfter, RuntimeException runtimeException) {
+            this.failAfter = failAfter;
+            this.runtimeException = runtimeException;
+        }
+
+        @Override
+        public void write(int b) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (written.size() + len > failAfter) {
+                if (runtimeException != null) throw runtimeException;
+                throw new IOException("write failed");
+            }
+            written.write(b, off, len);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void readAheadRoundTrip() throws IOException {
+        byte[] data = randomBytes(100000);
+        ReadAheadInputStreamWrapper wrapper = new ReadAheadInputStreamWrapper(new ChunkedInputStream(data, 777), 2);
+        assertArrayEquals(data, wrapper.readBytes(data.length));
+        try {
+            wrapper.readByte();
+            fail();
+        } catch (EOFException expected) {
+            // 读完
+        }
+        wrapper.close();
+    }
+
+    @Test(timeout = 10000)
+    public void readAheadPropagatesIOException() throws IOException {
+        byte[] data = randomBytes(5000);
+        ReadAheadInputStreamWrapper wrapper = new ReadAheadInputStreamWrapper(
+                new FailingInputStream(data, null, new IOException("read failed")), 2);
+        assertArrayEquals(data, wrapper.readBytes(data.length));
+        try {
+            wrapper.readByte();
+            fail();
+        } catch (IOException e) {
+            assertEquals("read failed", e.getMessage());
+        }
+        wrapper.close();
+    }
+
+    @Test(timeout = 10000)
+    public void readAheadPropagatesRuntimeException() throws IOException {
+        byte[] data = randomBytes(5000);
+        IllegalStateException failure = new IllegalStateException("broken stream");
+        ReadAheadInputStreamWrapper wrapper = new ReadAheadInputStreamWrapper(new FailingInputStream(data, failure, null), 2);
+        assertArrayEquals(data, wrapper.readBytes(data.length));
+        try {
+            wrapper.readByte();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IOException);
+            assertTrue(e.getCause().getCause() == failure);
+        }
+        wrapper.close();
+    }
+
+    @Test(timeout = 10000)
+    public void readAheadCloseWhileQueueFull() throws Exception {
+        ReadAheadInputStreamWrapper wrapper = new ReadAheadInputStreamWrapper(new ChunkedInputStream(randomBytes(100000), 2048), 1);
+        wrapper.readByte();
+        // 后台线程阻塞在满队列上，close()中断它并回收缓冲区
+        Thread.sleep(50);
+        wrapper.close();
+    }
+
+    @Test(timeout = 10000)
+    public void writeBehindRoundTrip() throws IOException {
+        byte[] data = randomBytes(100000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WriteBehindOutputStreamWrapper wrapper = new WriteBehindOutputStreamWrapper(out, 2);
+        wrapper.writeBytes(data, 0, 30000).flush();
+        // flush()返回时数据已经写入底层outputStream
+        assertArrayEquals(Arrays.copyOf(data, 30000), out.toByteArray());
+        wrapper.writeBytes(data, 30000, data.length - 30000);
+        wrapper.close();
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test(timeout = 10000)
+    public void writeBehindFlushReportsIOException() {
+        WriteBehindOutputStreamWrapper wrapper = new WriteBehindOutputStreamWrapper(new FailingOutputStream(10000, null), 2);
+        try {
+            wrapper.writeBytes(randomBytes(50000)).flush();
+            fail();
+        } catch (IOException e) {
+            assertEquals("write failed", e.getMessage());
+        }
+        // 异常已经抛出过，close()不再抛出
+        wrapper.close();
+    }
+
+    @Test(timeout = 10000)
+    public void writeBehindFlushReportsRuntimeException() {
+        IllegalStateException failure = new IllegalStateException("broken stream");
+        WriteBehindOutputStreamWrapper wrapper = new WriteBehindOutputStreamWrapper(new FailingOutputStream(10000, failure), 2);
+        try {
+            // 后台线程出错后继续取出缓冲区，写入方不会阻塞在满队列上，flush()也不会一直等待
+            wrapper.writeBytes(randomBytes(50000)).flush();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getCause().getCause() == failure);
+        }
+        wrapper.close();
+    }
+
+    @Test(timeout = 10000)
+    public void writeBehindCloseReportsUnreportedError() {
+        WriteBehindOutputStreamWrapper wrapper = new WriteBehindOutputStreamWrapper(new FailingOutputStream(0, null), 2);
+        try {
+            wrapper.writeByte((byte) 1);
+        } catch (IOException e) {
+            fail();
+        }
+        try {
+            wrapper.close();
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("write failed", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 跨缓冲区解码：被缓冲区边界截断的多字节字符、无法解码的字节替换、解码失败后复用解码器
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class SegmentDecoderTest {
+
+    @Test
+    public void multiByteCharactersSplitAcrossSegments() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        // 1、2、3、4个字节的字符交替出现，每隔几个字符多一个ASCII，截断位置不固定
+        String[] characters = {"a", "é", "中", "😀"};
+        for (int i = 0; i < 3000; i++) {
+            builder.append(characters[i % characters.length]);
+            if (i % 7 == 0) builder.append('z');
+        }
+        String content = builder.toString();
+        for (String charsetName : new String[]{"UTF-8", "UTF-16LE", "GB18030"}) {
+            byte[] data = content.getBytes(charsetName);
+            // 读入的块大小不同，字符在不同的位置被截断
+            for (int chunkSize : new int[]{1, 3, 7, 1000}) {
+                InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(data, chunkSize));
+                try {
+                    assertEquals(charsetName + " chunkSize=" + chunkSize, content, input.readString(data.length, charsetName));
+                } finally {
+                    input.close();
+                }
+
+                input = new InputStreamWrapper(new ChunkedInputStream(data, chunkSize));
+                try {
+                    StringBuilder out = new StringBuilder();
+                    assertEquals(data.length, input.readAll(out, charsetName));
+                    assertEquals(charsetName + " chunkSize=" + chunkSize, content, out.toString());
+                } finally {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void malformedInputIsReplacedLikeString() throws IOException {
+        byte[][] malformed = {
+                {(byte) 0xff},
+                {(byte) 0xe4, (byte) 0xb8},               // 截断的3字节字符
+                {(byte) 0xc0, (byte) 0x80},               // 过长编码
+                {(byte) 0xed, (byte) 0xa0, (byte) 0x80},  // 代理区间
+                {(byte) 0xf0, (byte) 0x9f, (byte) 0x98}   // 截断的4字节字符
+        };
+        for (byte[] bad : malformed) {
+            // 无法解码的字节放在缓冲区边界附近
+            for (int prefix = IOBuffer.BUFFER_SIZE - 4; prefix <= IOBuffer.BUFFER_SIZE + 1; prefix++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                for (int i = 0; i < prefix; i++) {
+                    out.write('a');
+                }
+                out.write(bad, 0, bad.length);
+                out.write("中z".getBytes(StandardCharsets.UTF_8), 0, 4);
+                byte[] data = out.toByteArray();
+
+                InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(data, 1000));
+                try {
+                    assertEquals(Arrays.toString(bad) + " prefix=" + prefix,
+                            new String(data, StandardCharsets.UTF_8), input.readString(data.length, "UTF-8"));
+                } finally {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void decoderIsResetAfterFailure() throws IOException {
+        // 第一段以截断的“中”结尾，之后读取失败一次，恢复后全是ASCII
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        for (int i = 0; i < 100; i++) {
+            first.write('a');
+        }
+        first.write(0xe4);
+        byte[] rest = new byte[5000];
+        Arrays.fill(rest, (byte) 'b');
+
+        InputStreamWrapper input = new InputStreamWrapper(new FailOnceInputStream(first.toByteArray(), rest));
+        try {
+            try {
+                input.readAll(new StringBuilder(), "UTF-8");
+                fail();
+            } catch (IOException e) {
+                assertEquals("read failed", e.getMessage());
+            }
+
+            // 截断的0xe4不能和后面的数据一起解码
+            StringBuilder out = new StringBuilder();
+            input.readAll(out, "UTF-8");
+            assertEquals(new String(rest, StandardCharsets.UTF_8), out.toString());
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * 先返回first，然后失败一次，之后返回rest
+     */
+    private static class FailOnceInputStream extends InputStream {
+
+        private final byte[] first;
+        private final byte[] rest;
+        private int state;
+        private int position;
+
+        FailOnceInputStream(byte[] first, byte[] rest) {
+            this.first = first;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (state == 0) {
+                state = 1;
+                System.arraycopy(first, 0, b, off, first.length);
+                return first.length;
+            }
+            if (state == 1) {
+                state = 2;
+                throw new IOException("read failed");
+            }
+            if (position == rest.length) return -1;
+            int count = Math.min(len, rest.length - position);
+            System.arraycopy(rest, position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 每个包装类独立的缓冲区大小，以及顺序读满缓冲区时的自适应增长（不超过上限、短读时不增长）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class SegmentSizeTest {
+
+    private static byte[] randomBytes(int count) {
+        byte[] data = new byte[count];
+        new Random(count).nextBytes(data);
+        return data;
+    }
+
+    /**
+     * 分块读出全部数据，检查数据完整
+     */
+    private static void readAllInChunks(InputStreamWrapper wrapper, byte[] data, int chunkSize) throws IOException {
+        for (int off = 0; off < data.length; off += chunkSize) {
+            int count = Math.min(chunkSize, data.length - off);
+            byte[] chunk = wrapper.readBytes(count);
+            for (int i = 0; i < count; i++) {
+                if (chunk[i] != data[off + i]) fail("mismatch at " + (off + i));
+            }
+        }
+    }
+
+    @Test
+    public void perWrapperSegmentSize() throws IOException {
+        byte[] data = randomBytes(300000);
+        InputStreamWrapper small = new InputStreamWrapper(new ByteArrayInputStream(data));
+        InputStreamWrapper rounded = new InputStreamWrapper(new ByteArrayInputStream(data), 10000);
+        InputStreamWrapper large = new InputStreamWrapper(new ByteArrayInputStream(data), 256 * 1024);
+        assertEquals(IOBuffer.BUFFER_SIZE, small.getSegmentSize());
+        assertEquals(16 * 1024, rounded.getSegmentSize());
+        assertEquals(256 * 1024, large.getSegmentSize());
+        assertEquals(IOBuffer.BUFFER_SIZE, new InputStreamWrapper(null, 1).getSegmentSize());
+
+        // 不同大小的包装类交替读取互不影响
+        for (int off = 0; off < data.length; off += 5000) {
+            int count = Math.min(5000, data.length - off);
+            byte[] expected = Arrays.copyOfRange(data, off, off + count);
+            assertArrayEquals(expected, small.readBytes(count));
+            assertArrayEquals(expected, rounded.readBytes(count));
+            assertArrayEquals(expected, large.readBytes(count));
+        }
+        small.close();
+        rounded.close();
+        large.close();
+    }
+
+    @Test
+    public void invalidSegmentSize() {
+        try {
+            new InputStreamWrapper(null, IOBuffer.MAX_BUFFER_SIZE + 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 超过最大缓冲区大小
+        }
+        try {
+            new InputStreamWrapper(null).setAdaptiveSegmentSize(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 上限必须为正数
+        }
+    }
+
+    @Test
+    public void adaptiveGrowthOnSequentialFullReads() throws IOException {
+        byte[] data = randomBytes(2 * 1024 * 1024);
+        InputStreamWrapper wrapper = new InputStreamWrapper(new ByteArrayInputStream(data)).setAdaptiveSegmentSize(64 * 1024);
+        readAllInChunks(wrapper, data, 100000);
+        assertEquals(64 * 1024, wrapper.getSegmentSize());
+        wrapper.close();
+    }
+
+    @Test
+    public void adaptiveGrowthStopsBelowNonPowerOfTwoLimit() throws IOException {
+        byte[] data = randomBytes(2 * 1024 * 1024);
+        InputStreamWrapper wrapper = new InputStreamWrapper(new ByteArrayInputStream(data)).setAdaptiveSegmentSize(100000);
+        readAllInChunks(wrapper, data, 100000);
+        // 上一级是128KB，超过上限，不再增长
+        assertEquals(64 * 1024, wrapper.getSegmentSize());
+        wrapper.close();
+    }
+
+    @Test
+    public void noGrowthOnShortReads() throws IOException {
+        byte[] data = randomBytes(1024 * 1024);
+        // 每次最多读出1000个字节，读不满缓冲区
+        InputStreamWrapper wrapper = new InputStreamWrapper(new ChunkedInputStream(data, 1000)).setAdaptiveSegmentSize(64 * 1024);
+        readAllInChunks(wrapper, data, 100000);
+        assertEquals(IOBuffer.BUFFER_SIZE, wrapper.getSegmentSize());
+        wrapper.close();
+    }
+
+    @Test
+    public void adaptiveGrowthOnChannel() throws IOException {
+        byte[] data = randomBytes(2 * 1024 * 1024);
+        InputStreamWrapper wrapper = new ChannelInputStreamWrapper(Channels.newChannel(new ByteArrayInputStream(data)))
+                .setAdaptiveSegmentSize(32 * 1024);
+        readAllInChunks(wrapper, data, 70000);
+        assertEquals(32 * 1024, wrapper.getSegmentSize());
+        wrapper.close();
+    }
+}
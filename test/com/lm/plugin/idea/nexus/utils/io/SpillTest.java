@@ -0,0 +1,160 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 限制内存后溢出到临时文件，以及溢出过程中的查找（数据源每次只返回一部分）
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class SpillTest {
+
+    private static final int MEMORY_LIMIT = 4096;
+
+    @Test
+    public void indexOfByteWithShortReads() throws IOException {
+        byte[] data = longLine(64 * 1024);
+        InputStreamWrapper input = bounded(data, 1000);
+        try {
+            assertEquals(data.length - 1, input.indexOf((byte) '\n'));
+            assertEquals(data.length - 1, input.indexOfAny((byte) '\r', (byte) '\n'));
+            assertArrayEquals(data, input.readBytes(data.length));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void indexOfBytesWithShortReads() throws IOException {
+        byte[] data = longLine(64 * 1024);
+        byte[] pattern = Arrays.copyOfRange(data, data.length - 10, data.length);
+        InputStreamWrapper input = bounded(data, 1000);
+        try {
+            assertEquals(data.length - 10, input.indexOf(pattern));
+            assertEquals(-1, input.indexOf("not there".getBytes(StandardCharsets.UTF_8)));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void indexOfPatternsWithShortReads() throws IOException {
+        byte[] data = longLine(64 * 1024);
+        BytePatterns patterns = BytePatterns.of(new byte[]{'\r', '\n'}, new byte[]{'\n'});
+        InputStreamWrapper input = bounded(data, 1000);
+        try {
+            assertEquals(data.length - 1, input.indexOf(patterns));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void linesLongerThanMemoryLimit() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        Random random = new Random(5);
+        String[] lines = new String[20];
+        for (int i = 0; i < lines.length; i++) {
+            char[] content = new char[random.nextInt(MEMORY_LIMIT * 4)];
+            for (int j = 0; j < content.length; j++) content[j] = (char) ('a' + random.nextInt(26));
+            lines[i] = new String(content);
+            builder.append(lines[i]).append('\n');
+        }
+
+        for (int chunkSize : new int[]{1, 999, 5000}) {
+            InputStreamWrapper input = bounded(builder.toString().getBytes(StandardCharsets.UTF_8), chunkSize);
+            try {
+                for (String line : lines) {
+                    assertEquals(line, input.readUTF8Line());
+                }
+                assertEquals(null, input.readUTF8Line());
+            } finally {
+                input.close();
+            }
+        }
+    }
+
+    @Test
+    public void bufferedDataIsSpilled() throws IOException {
+        byte[] data = longLine(256 * 1024);
+        InputStreamWrapper input = bounded(data, 1000);
+        try {
+            assertTrue(input.rangeEquals(data.length - 1, new byte[]{'\n'}));
+            assertEquals(data[data.length / 2], input.valueOf(data.length / 2));
+            assertArrayEquals(data, input.readBytes(data.length));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void spillFileLeavesNothingInTempDir() throws IOException {
+        Assume.assumeFalse(System.getProperty("os.name").startsWith("Windows"));
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        int before = spillFileCount(tempDir);
+
+        byte[] data = longLine(256 * 1024);
+        InputStreamWrapper input = bounded(data, 1000);
+        try {
+            assertEquals(data.length - 1, input.indexOf((byte) '\n'));
+            // 临时文件打开后就已经删除，包装类没有关闭时也不留在临时目录
+            assertEquals(before, spillFileCount(tempDir));
+            assertArrayEquals(data, input.readBytes(data.length));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void spilledBytesAreNotCountedAsWrites() throws IOException {
+        IOMetrics metrics = IOMetrics.getInstance();
+        boolean enabled = metrics.isEnabled();
+        metrics.setEnabled(true);
+        metrics.reset();
+        byte[] data = longLine(256 * 1024);
+        InputStreamWrapper input = bounded(data, 1000);
+        try {
+            assertEquals(data.length - 1, input.indexOf((byte) '\n'));
+            assertTrue(metrics.getBytesSpilled() > data.length / 2);
+            assertTrue(metrics.getSpillCount() > 0);
+            assertEquals(0, metrics.getBytesWritten());
+            assertEquals(0, metrics.getWriteCount());
+        } finally {
+            input.close();
+            metrics.setEnabled(enabled);
+            metrics.reset();
+        }
+    }
+
+    private static int spillFileCount(File tempDir) {
+        File[] files = tempDir.listFiles((dir, name) -> name.startsWith("nexus-spill"));
+        return files == null ? 0 : files.length;
+    }
+
+    private static InputStreamWrapper bounded(byte[] data, int chunkSize) {
+        return new InputStreamWrapper(new ChunkedInputStream(data, chunkSize)).setMemoryLimit(MEMORY_LIMIT);
+    }
+
+    /**
+     * @return 一行数据，只有最后一个字节是换行符
+     */
+    private static byte[] longLine(int length) {
+        byte[] data = new byte[length];
+        Random random = new Random(length);
+        for (int i = 0; i < length - 1; i++) data[i] = (byte) ('a' + random.nextInt(26));
+        data[length - 1] = '\n';
+        return data;
+    }
+}
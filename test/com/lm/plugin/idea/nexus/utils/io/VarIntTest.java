@@ -0,0 +1,122 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 变长整数（LEB128和ZigZag）的读写
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class VarIntTest {
+
+    private static final int[] INTS = {0, 1, 63, 64, 127, 128, 255, 16383, 16384, (1 << 21) - 1, 1 << 21,
+            (1 << 28) - 1, 1 << 28, Integer.MAX_VALUE, Integer.MIN_VALUE, -1, -64, -65};
+
+    private static final long[] LONGS = {0, 1, 127, 128, (1L << 35) - 1, 1L << 35, (1L << 56) - 1, 1L << 56,
+            (1L << 63) - 1, Long.MIN_VALUE, -1, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    @Test
+    public void encodedLengths() throws IOException {
+        assertEquals(1, encodedLength(wrapper -> wrapper.writeVarInt(0)));
+        assertEquals(1, encodedLength(wrapper -> wrapper.writeVarInt(127)));
+        assertEquals(2, encodedLength(wrapper -> wrapper.writeVarInt(128)));
+        assertEquals(3, encodedLength(wrapper -> wrapper.writeVarInt(16384)));
+        assertEquals(5, encodedLength(wrapper -> wrapper.writeVarInt(-1)));
+        assertEquals(10, encodedLength(wrapper -> wrapper.writeVarLong(-1)));
+        assertEquals(9, encodedLength(wrapper -> wrapper.writeVarLong(Long.MAX_VALUE)));
+        // ZigZag：绝对值小的负数也很短
+        assertEquals(1, encodedLength(wrapper -> wrapper.writeSignedVarInt(-1)));
+        assertEquals(1, encodedLength(wrapper -> wrapper.writeSignedVarLong(-64)));
+        assertEquals(2, encodedLength(wrapper -> wrapper.writeSignedVarLong(-65)));
+    }
+
+    @Test
+    public void roundTripBoundaryValues() throws IOException {
+        // 每个偏移都试一次，让变长整数落在缓冲区边界的不同位置
+        for (int padding = IOBuffer.BUFFER_SIZE - 12; padding <= IOBuffer.BUFFER_SIZE; padding++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            OutputStreamWrapper output = new OutputStreamWrapper(out);
+            output.writeBytes(new byte[padding]);
+            for (int value : INTS) {
+                output.writeVarInt(value).writeSignedVarInt(value);
+            }
+            for (long value : LONGS) {
+                output.writeVarLong(value).writeSignedVarLong(value);
+            }
+            output.writeUTF8WithLength("变长\u0000string").writeUTF8WithLength("");
+            output.flush();
+
+            for (int chunkSize : new int[]{1, 7, 4096}) {
+                InputStreamWrapper input = new InputStreamWrapper(new ChunkedInputStream(out.toByteArray(), chunkSize));
+                input.skip(padding);
+                for (int value : INTS) {
+                    assertEquals(value, input.readVarInt());
+                    assertEquals(value, input.readSignedVarInt());
+                }
+                for (long value : LONGS) {
+                    assertEquals(value, input.readVarLong());
+                    assertEquals(value, input.readSignedVarLong());
+                }
+                assertEquals("变长\u0000string", input.readUTF8WithLength());
+                assertEquals("", input.readUTF8WithLength());
+                // 全部读完，没有多读或少读
+                assertEquals(-1, input.indexOf((byte) 0));
+            }
+        }
+    }
+
+    @Test
+    public void malformedVarIntIsRejected() throws IOException {
+        byte[] data = {(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01};
+        try {
+            new InputStreamWrapper(new ByteArrayInputStream(data)).readVarInt();
+            fail();
+        } catch (EOFException e) {
+            throw e;
+        } catch (IOException expected) {
+            // 超过5个字节
+        }
+    }
+
+    @Test
+    public void malformedVarLongIsRejected() throws IOException {
+        byte[] data = new byte[11];
+        Arrays.fill(data, (byte) 0xff);
+        try {
+            new InputStreamWrapper(new ByteArrayInputStream(data)).readVarLong();
+            fail();
+        } catch (EOFException e) {
+            throw e;
+        } catch (IOException expected) {
+            // 超过10个字节
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedVarIntThrowsEof() throws IOException {
+        new InputStreamWrapper(new ByteArrayInputStream(new byte[]{(byte) 0x80, (byte) 0x80})).readVarInt();
+    }
+
+    private static int encodedLength(Writer writer) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OutputStreamWrapper output = new OutputStreamWrapper(out);
+        writer.write(output);
+        output.flush();
+        return out.size();
+    }
+
+    private interface Writer {
+        void write(OutputStreamWrapper wrapper) throws IOException;
+    }
+}
@@ -0,0 +1,123 @@
+package com.lm.plugin.idea.nexus.utils.io;
+
+import com.lm.plugin.idea.nexus.utils.io.bean.IOBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * writeUTF8直接编码到缓冲区：与String.getBytes(UTF_8)逐字节一致，包括缓冲区末尾的多字节字符和不成对的代理字符
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class WriteUTF8Test {
+
+    // 2、3、4个字节的字符
+    private static final String[] MULTI_BYTE = {"é", "中", "😀"};
+
+    @Test
+    public void multiByteCharactersAtSegmentEnd() throws IOException {
+        for (String character : MULTI_BYTE) {
+            for (int prefix = IOBuffer.BUFFER_SIZE - 6; prefix <= IOBuffer.BUFFER_SIZE + 2; prefix++) {
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < prefix; i++) {
+                    builder.append('a');
+                }
+                // 字符之后继续写入，检查跳过的缓冲区尾部没有写出
+                String content = builder.append(character).append(character).append("z").toString();
+                assertEncoded(content);
+            }
+        }
+    }
+
+    @Test
+    public void surrogatePairAfterEveryPrefixLength() throws IOException {
+        // 代理对的两个char在输入中相邻，输出的4个字节不能跨缓冲区写一半
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < IOBuffer.BUFFER_SIZE * 2; i++) {
+            builder.append("😀").append(i % 3 == 0 ? "x" : "");
+        }
+        assertEncoded(builder.toString());
+    }
+
+    @Test
+    public void unpairedSurrogatesBecomeQuestionMark() throws IOException {
+        String[] contents = {
+                "\ud83d",                 // 结尾的高代理
+                "a\ud83db",               // 高代理后面不是低代理
+                "a\ude00b",               // 单独的低代理
+                "\ude00\ud83d",           // 顺序颠倒
+                "\ud83d😀",             // 两个高代理后跟低代理
+                "中\ud83d"
+        };
+        for (String content : contents) {
+            assertEncoded(content);
+        }
+    }
+
+    @Test
+    public void rangeEndingInsidePair() throws IOException {
+        String content = "ab😀cd";
+        for (int start = 0; start <= content.length(); start++) {
+            for (int end = start; end <= content.length(); end++) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                OutputStreamWrapper output = new OutputStreamWrapper(out);
+                output.writeUTF8(content, start, end).flush();
+                output.close();
+                byte[] expected = content.substring(start, end).getBytes(StandardCharsets.UTF_8);
+                assertArrayEquals("start=" + start + " end=" + end, expected, out.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void randomRoundTrip() throws IOException {
+        Random random = new Random(8);
+        for (int round = 0; round < 50; round++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(10000);
+            for (int i = 0; i < length; i++) {
+                int kind = random.nextInt(5);
+                if (kind == 0) {
+                    builder.append((char) random.nextInt(0x80));
+                } else if (kind == 1) {
+                    builder.append((char) (0x80 + random.nextInt(0x800 - 0x80)));
+                } else if (kind == 2) {
+                    builder.append((char) (0xe000 + random.nextInt(0x2000)));
+                } else if (kind == 3) {
+                    builder.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                } else {
+                    // 任意char，可能产生不成对的代理字符
+                    builder.append((char) random.nextInt(0x10000));
+                }
+            }
+            assertEncoded(builder.toString());
+        }
+    }
+
+    /**
+     * 分别写入堆内和堆外缓冲区，与String.getBytes(UTF_8)比较
+     */
+    private static void assertEncoded(String content) throws IOException {
+        byte[] expected = content.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream heapOut = new ByteArrayOutputStream();
+        OutputStreamWrapper heap = new OutputStreamWrapper(heapOut);
+        heap.writeUTF8(content).flush();
+        heap.close();
+        assertArrayEquals(content, expected, heapOut.toByteArray());
+
+        ByteArrayOutputStream directOut = new ByteArrayOutputStream();
+        OutputStreamWrapper direct = new ChannelOutputStreamWrapper(Channels.newChannel(directOut));
+        direct.writeUTF8(content).flush();
+        direct.close();
+        assertArrayEquals(content, expected, directOut.toByteArray());
+    }
+}
@@ -0,0 +1,79 @@
+package com.lm.plugin.idea.nexus.utils.io.bean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 泄漏检测：默认只计数不输出，设置reporter后报告给调用方
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class IOBufferLeakDetectorTest {
+
+    private final int samplingInterval = IOBufferLeakDetector.getSamplingInterval();
+
+    @After
+    public void restore() {
+        IOBufferLeakDetector.setSamplingInterval(samplingInterval);
+        IOBufferLeakDetector.setReporter(leak -> {
+        });
+    }
+
+    @Test
+    public void defaultReporterIsQuiet() throws InterruptedException {
+        IOBufferLeakDetector.setSamplingInterval(1);
+        PrintStream err = System.err;
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(captured, true));
+        try {
+            long leakCount = IOBufferLeakDetector.getLeakCount();
+            leak();
+            assertTrue(IOBufferLeakDetector.getLeakCount() > leakCount);
+        } finally {
+            System.setErr(err);
+        }
+        assertEquals("", captured.toString());
+    }
+
+    @Test
+    public void reporterReceivesTakeLocation() throws InterruptedException {
+        IOBufferLeakDetector.setSamplingInterval(1);
+        List<Throwable> leaks = new ArrayList<>();
+        IOBufferLeakDetector.setReporter(leaks::add);
+
+        leak();
+
+        assertTrue(leaks.size() > 0);
+        Throwable leak = leaks.get(0);
+        assertTrue(leak.getMessage(), leak.getMessage().startsWith("IOBuffer leak: "));
+        // 调用栈从缓冲池取出的位置开始
+        assertEquals(IOBufferPool.class.getName(), leak.getStackTrace()[0].getClassName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullReporterIsRejected() {
+        IOBufferLeakDetector.setReporter(null);
+    }
+
+    /**
+     * 取出缓冲区不归还，等待GC回收后报告
+     */
+    private static void leak() throws InterruptedException {
+        IOBufferPool.getInstance().take();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (IOBufferLeakDetector.reportLeaks() == 0) {
+            assertTrue("leak not reported", System.currentTimeMillis() < deadline);
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+}
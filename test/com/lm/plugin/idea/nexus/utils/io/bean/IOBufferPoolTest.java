@@ -0,0 +1,136 @@
+package com.lm.plugin.idea.nexus.utils.io.bean;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * IOBufferPool取出、归还和计数
+ * <p>
+ * 缓冲池是进程内共享的，每个测试先取空当前线程的分段，计数只比较前后的差值
+ *
+ * @author LM
+ * @version 2019-05-16 v1.0.0
+ */
+public class IOBufferPoolTest {
+
+    @Test
+    public void takeFromEmptyStripeIsMiss() {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        drain(pool);
+
+        long missCount = pool.getMissCount();
+        long hitCount = pool.getHitCount();
+        IOBuffer buffer = pool.take();
+        assertEquals(missCount + 1, pool.getMissCount());
+        assertEquals(hitCount, pool.getHitCount());
+        assertEquals(IOBuffer.BUFFER_SIZE, buffer.capacity());
+        assertEquals(0, buffer.limit);
+    }
+
+    @Test
+    public void recycledBufferIsReused() {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        drain(pool);
+
+        IOBuffer buffer = pool.take();
+        buffer.limit = 100;
+        buffer.pos = 10;
+        long recycleCount = pool.getRecycleCount();
+        pool.recycle(buffer);
+        assertEquals(recycleCount + 1, pool.getRecycleCount());
+
+        long hitCount = pool.getHitCount();
+        IOBuffer taken = pool.take();
+        assertSame(buffer, taken);
+        assertEquals(hitCount + 1, pool.getHitCount());
+        // 取出的缓冲区是干净的
+        assertEquals(0, taken.pos);
+        assertEquals(0, taken.limit);
+        assertNull(taken.next);
+    }
+
+    @Test
+    public void stripeOverflowIsCounted() {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        drain(pool);
+
+        int stripeCapacity = (int) (IOBufferPool.MAX_SIZE / pool.getSegmentSize());
+        IOBuffer[] buffers = new IOBuffer[stripeCapacity + 1];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new IOBuffer(pool.getSegmentSize());
+        }
+
+        long recycleCount = pool.getRecycleCount();
+        long overflowCount = pool.getOverflowCount();
+        for (IOBuffer buffer : buffers) {
+            pool.recycle(buffer);
+        }
+        assertEquals(recycleCount + stripeCapacity, pool.getRecycleCount());
+        assertEquals(overflowCount + 1, pool.getOverflowCount());
+    }
+
+    @Test
+    public void foreignSizeIsRecycledToItsOwnPool() {
+        IOBufferPool small = IOBufferPool.getInstance();
+        IOBufferPool large = IOBufferPool.getInstance(IOBuffer.BUFFER_SIZE * 4);
+        assertEquals(IOBuffer.BUFFER_SIZE * 4, large.getSegmentSize());
+        drain(large);
+
+        IOBuffer buffer = new IOBuffer(IOBuffer.BUFFER_SIZE * 4);
+        long smallRecycleCount = small.getRecycleCount();
+        long largeRecycleCount = large.getRecycleCount();
+        small.recycle(buffer);
+        assertEquals(smallRecycleCount, small.getRecycleCount());
+        assertEquals(largeRecycleCount + 1, large.getRecycleCount());
+        assertSame(buffer, large.take());
+    }
+
+    @Test
+    public void sharedAndOddSizedBuffersAreDropped() {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        drain(pool);
+
+        long recycleCount = pool.getRecycleCount();
+        pool.recycle(IOBuffer.shared(ByteBuffer.allocateDirect(IOBuffer.BUFFER_SIZE)));
+        pool.recycle(new IOBuffer(IOBuffer.BUFFER_SIZE + 1));
+        assertEquals(recycleCount, pool.getRecycleCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void linkedBufferIsRejected() {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        IOBuffer buffer = new IOBuffer(IOBuffer.BUFFER_SIZE);
+        buffer.next = buffer;
+        buffer.previous = buffer;
+        pool.recycle(buffer);
+    }
+
+    @Test
+    public void largerReturnsNextSizeClass() {
+        IOBufferPool pool = IOBufferPool.getInstance();
+        assertEquals(IOBuffer.BUFFER_SIZE * 2, pool.larger().getSegmentSize());
+        IOBufferPool largest = IOBufferPool.getInstance(IOBuffer.MAX_BUFFER_SIZE);
+        assertSame(largest, largest.larger());
+        assertSame(IOBufferPool.getDirectInstance(), IOBufferPool.getDirectInstance(IOBuffer.BUFFER_SIZE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentSizeOutOfRangeIsRejected() {
+        IOBufferPool.getInstance(IOBuffer.MAX_BUFFER_SIZE + 1);
+    }
+
+    /**
+     * 取空当前线程的分段
+     */
+    private static void drain(IOBufferPool pool) {
+        long missCount = pool.getMissCount();
+        while (pool.getMissCount() == missCount) {
+            pool.take();
+        }
+    }
+}